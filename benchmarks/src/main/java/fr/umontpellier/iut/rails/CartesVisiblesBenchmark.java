@@ -0,0 +1,62 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prise d'une carte wagon visible (retrait, remplacement par la carte du
+ * dessus de la pioche et application de la règle des 3 locomotives) sur une
+ * partie de 5 joueurs. La carte prise est aussitôt défaussée pour que l'état
+ * des piles reste stable d'une itération à l'autre. {@code piocherCarte}
+ * mesure de la même façon la pioche d'une carte face cachée.
+ * <p>
+ * {@code parcoursPiles} mesure, pour comparaison, le comptage des cartes
+ * autres que des locomotives en parcourant les trois piles (ce que faisait
+ * chaque prise avant que les piles ne tiennent leurs compteurs).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartesVisiblesBenchmark {
+    private Jeu jeu;
+
+    @Setup
+    public void setUp() {
+        jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"});
+    }
+
+    @Benchmark
+    public CouleurWagon prendreCarteVisible() {
+        CouleurWagon carte = jeu.getCartesWagonVisibles().get(0);
+        jeu.retirerCarteWagonVisible(carte);
+        jeu.defausserCarteWagon(carte);
+        return carte;
+    }
+
+    @Benchmark
+    public CouleurWagon piocherCarte() {
+        CouleurWagon carte = jeu.piocherCarteWagon();
+        jeu.defausserCarteWagon(carte);
+        return carte;
+    }
+
+    @Benchmark
+    public int parcoursPiles() {
+        return compterNonLocomotives(jeu.getCartesWagonVisibles())
+                + compterNonLocomotives(jeu.getPileCartesWagon())
+                + compterNonLocomotives(jeu.getDefausseCartesWagon());
+    }
+
+    private static int compterNonLocomotives(List<CouleurWagon> cartes) {
+        int nb = 0;
+        for (CouleurWagon carte : cartes) {
+            if (!carte.equals(CouleurWagon.LOCOMOTIVE)) nb++;
+        }
+        return nb;
+    }
+}
@@ -0,0 +1,109 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plus long chemin continu sur des réseaux de 45 routes (le maximum pour un
+ * joueur) choisis pour être défavorables : beaucoup de villes de degré impair
+ * et de nombreux cycles.
+ * <ul>
+ * <li>{@code complet} : graphe complet à 10 villes (toutes de degré 9) ;</li>
+ * <li>{@code grille} : grille de 4 x 6 villes complétée par des diagonales
+ * jusqu'à 45 routes ;</li>
+ * <li>{@code multigraphe} : 12 villes reliées au hasard, routes doubles
+ * comprises.</li>
+ * </ul>
+ * {@code cinqJoueurs} calcule en parallèle les chemins de cinq joueurs ayant
+ * chacun un tel réseau, comme en fin de partie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheminLePlusLongBenchmark {
+    private static final int NB_ROUTES = 45;
+
+    @Param({"complet", "grille", "multigraphe"})
+    public String reseau;
+
+    private CheminLePlusLong calcul;
+    private BitSet routes;
+    private List<BitSet> routesJoueurs;
+
+    @Setup
+    public void setUp() {
+        List<Ville> villes = new ArrayList<>();
+        List<Route> liste = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+        switch (reseau) {
+            case "complet":
+                creerVilles(villes, 10);
+                for (int a = 0; a < 10; a++) {
+                    for (int b = a + 1; b < 10; b++) {
+                        liste.add(new Route(villes.get(a), villes.get(b), 1, CouleurWagon.GRIS));
+                    }
+                }
+                break;
+            case "grille":
+                creerVilles(villes, 24);
+                for (int l = 0; l < 4; l++) {
+                    for (int c = 0; c < 6; c++) {
+                        int v = 6 * l + c;
+                        if (c < 5) {
+                            liste.add(new Route(villes.get(v), villes.get(v + 1), 1 + random.nextInt(2), CouleurWagon.GRIS));
+                        }
+                        if (l < 3) {
+                            liste.add(new Route(villes.get(v), villes.get(v + 6), 1 + random.nextInt(2), CouleurWagon.GRIS));
+                        }
+                    }
+                }
+                // ajout de diagonales pour arriver à 45 routes
+                for (int v = 0; liste.size() < NB_ROUTES; v += 2) {
+                    liste.add(new Route(villes.get(v % 18), villes.get(v % 18 + 7), 2, CouleurWagon.GRIS));
+                }
+                break;
+            default:
+                creerVilles(villes, 12);
+                for (int r = 0; r < NB_ROUTES; r++) {
+                    int a = random.nextInt(12);
+                    int b = (a + 1 + random.nextInt(11)) % 12;
+                    liste.add(new Route(villes.get(a), villes.get(b), 1 + random.nextInt(3), CouleurWagon.GRIS));
+                }
+        }
+        for (int r = 0; r < liste.size(); r++) {
+            liste.get(r).setNom(liste.get(r).getNom() + "#" + r);
+        }
+        Plateau plateau = new Plateau(villes, liste);
+        calcul = new CheminLePlusLong(plateau.getGraphe());
+        routes = new BitSet();
+        routes.set(0, NB_ROUTES);
+        routesJoueurs = new ArrayList<>();
+        for (int j = 0; j < 5; j++) {
+            routesJoueurs.add(routes);
+        }
+    }
+
+    private static void creerVilles(List<Ville> villes, int nb) {
+        for (int v = 0; v < nb; v++) {
+            villes.add(new Ville("Ville" + v));
+        }
+    }
+
+    @Benchmark
+    public int unJoueur() {
+        return calcul.calculer(routes);
+    }
+
+    @Benchmark
+    public int[] cinqJoueurs() {
+        return calcul.calculer(routesJoueurs);
+    }
+}
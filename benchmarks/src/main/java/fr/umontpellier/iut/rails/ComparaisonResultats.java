@@ -0,0 +1,97 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare deux fichiers de résultats JMH au format JSON (voir
+ * {@link LanceurBenchmarks}) :
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar fr.umontpellier.iut.rails.ComparaisonResultats avant.json apres.json [seuil%]
+ * </pre>
+ * Affiche l'évolution de chaque benchmark présent dans les deux fichiers. Une
+ * évolution défavorable de plus de {@code seuil} % (10 % par défaut), au-delà
+ * des marges d'erreur des deux mesures, est signalée comme régression et le
+ * programme se termine avec le code 2 (pour faire échouer un script
+ * d'intégration).
+ */
+public class ComparaisonResultats {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ComparaisonResultats avant.json apres.json [seuil%]");
+            System.exit(1);
+        }
+        double seuil = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, JsonObject> avant = lire(Path.of(args[0]));
+        Map<String, JsonObject> apres = lire(Path.of(args[1]));
+        int nbRegressions = 0;
+        for (Map.Entry<String, JsonObject> entree : apres.entrySet()) {
+            JsonObject ancien = avant.get(entree.getKey());
+            if (ancien == null) {
+                continue;
+            }
+            JsonObject nouveau = entree.getValue();
+            double scoreAvant = score(ancien);
+            double scoreApres = score(nouveau);
+            double evolution = (scoreApres - scoreAvant) / scoreAvant;
+            // en débit un score plus élevé est meilleur, en temps moyen c'est l'inverse
+            boolean plusGrandEstMieux = nouveau.get("mode").getAsString().equals("thrpt");
+            double degradation = plusGrandEstMieux ? -evolution : evolution;
+            double ecart = Math.abs(scoreApres - scoreAvant);
+            boolean regression = degradation > seuil && ecart > erreur(ancien) + erreur(nouveau);
+            if (regression) {
+                nbRegressions++;
+            }
+            System.out.printf("%-70s %12.3f -> %12.3f %s  %+6.1f %%%s%n", entree.getKey(), scoreAvant, scoreApres,
+                    unite(nouveau), 100 * evolution, regression ? "  REGRESSION" : "");
+        }
+        if (nbRegressions > 0) {
+            System.out.printf("%d régression(s)%n", nbRegressions);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * @return les résultats d'un fichier, indexés par nom de benchmark et valeurs des paramètres
+     */
+    private static Map<String, JsonObject> lire(Path fichier) throws IOException {
+        Map<String, JsonObject> resultats = new LinkedHashMap<>();
+        try (Reader lecteur = Files.newBufferedReader(fichier)) {
+            JsonArray benchmarks = JsonParser.parseReader(lecteur).getAsJsonArray();
+            for (JsonElement element : benchmarks) {
+                JsonObject resultat = element.getAsJsonObject();
+                StringBuilder cle = new StringBuilder(resultat.get("benchmark").getAsString());
+                if (resultat.has("params")) {
+                    for (Map.Entry<String, JsonElement> param : resultat.getAsJsonObject("params").entrySet()) {
+                        cle.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+                    }
+                }
+                resultats.put(cle.toString(), resultat);
+            }
+        }
+        return resultats;
+    }
+
+    private static double score(JsonObject resultat) {
+        return resultat.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+
+    private static double erreur(JsonObject resultat) {
+        JsonElement erreur = resultat.getAsJsonObject("primaryMetric").get("scoreError");
+        // "NaN" quand il n'y a qu'une itération de mesure
+        return erreur.isJsonPrimitive() && erreur.getAsJsonPrimitive().isNumber() ? erreur.getAsDouble() : 0;
+    }
+
+    private static String unite(JsonObject resultat) {
+        return resultat.getAsJsonObject("primaryMetric").get("scoreUnit").getAsString();
+    }
+}
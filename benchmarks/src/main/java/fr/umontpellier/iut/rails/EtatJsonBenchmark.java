@@ -0,0 +1,85 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture de l'état complet envoyé aux clients à chaque question, sur une
+ * partie de 5 joueurs en milieu de partie (log de plusieurs centaines de
+ * lignes).
+ * <p>
+ * {@code fluxJson} mesure le chemin actuel : nouvelle version du
+ * {@link SuiviEtat} (fragments JSON écrits au fil de l'eau) puis assemblage
+ * de l'état complet. {@code pojoGson} mesure l'ancien chemin, qui produit le
+ * même texte : tables {@code Map.ofEntries} du prompt et des piles, POJO de
+ * chaque joueur (ceux des villes et des routes étaient conservés d'une
+ * version à l'autre), puis {@code new Gson().toJson(...)} de l'ensemble.
+ * <p>
+ * Pour comparer les allocations :
+ * {@code java -jar benchmarks/target/benchmarks.jar EtatJson -prof gc}
+ * (colonne {@code gc.alloc.rate.norm}, en octets par opération).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EtatJsonBenchmark {
+    private Jeu jeu;
+    private Tour tour;
+    private List<Object> pojoVilles;
+    private List<Object> pojoRoutes;
+
+    @Setup
+    public void setUp() {
+        jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"}, 42);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(42)), true);
+        jeu.simuler(1000);
+        tour = jeu.getJoueurCourant().getTour();
+        pojoVilles = new ArrayList<>();
+        for (Ville ville : jeu.getVilles()) {
+            pojoVilles.add(ville.asPOJO());
+        }
+        pojoRoutes = new ArrayList<>();
+        for (Route route : jeu.getRoutes()) {
+            pojoRoutes.add(route.asPOJO());
+        }
+    }
+
+    @Benchmark
+    public String fluxJson() {
+        jeu.enregistrerEtat(tour.getInstruction(), tour.getBoutons(), tour.peutPasser());
+        return jeu.getSuiviEtat().etatJson();
+    }
+
+    @Benchmark
+    public String pojoGson() {
+        Map<String, Object> prompt = Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("instruction", tour.getInstruction()),
+                new AbstractMap.SimpleEntry<String, Object>("boutons", new ArrayList<>(tour.getBoutons())),
+                new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", jeu.getJoueurCourant().getNom()),
+                new AbstractMap.SimpleEntry<String, Object>("peutPasser", tour.peutPasser()),
+                new AbstractMap.SimpleEntry<String, Object>("graine", Long.toString(jeu.getGraine())));
+        Map<String, Object> piles = Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", jeu.getPileCartesWagon().size()),
+                new AbstractMap.SimpleEntry<String, Object>("pileDestinations", jeu.getPileDestinations().size()),
+                new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", new ArrayList<>(jeu.getDefausseCartesWagon())),
+                new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", new ArrayList<>(jeu.getCartesWagonVisibles())));
+        List<Object> pojoJoueurs = new ArrayList<>();
+        for (Joueur joueur : jeu.getJoueurs()) {
+            pojoJoueurs.add(joueur.asPOJO());
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("prompt", prompt);
+        data.put("villes", pojoVilles);
+        data.put("routes", pojoRoutes);
+        data.put("joueurs", pojoJoueurs);
+        data.put("piles", piles);
+        data.put("log", new ArrayList<>(jeu.getLog()));
+        return new Gson().toJson(data);
+    }
+}
@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche d'une route et d'une ville par nom sur un plateau synthétique de
+ * 5000 routes : index du plateau comparé au parcours linéaire des listes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexPlateauBenchmark {
+    private static final int NB_VILLES = 1000;
+    private static final int NB_ROUTES = 5000;
+
+    private Plateau plateau;
+    private String[] nomsRoutes;
+    private String[] nomsVilles;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Ville> villes = new ArrayList<>();
+        for (int v = 0; v < NB_VILLES; v++) {
+            villes.add(new Ville("Ville" + v));
+        }
+        List<Route> routes = new ArrayList<>();
+        for (int r = 0; r < NB_ROUTES; r++) {
+            Ville v1 = villes.get(random.nextInt(NB_VILLES));
+            Ville v2 = villes.get(random.nextInt(NB_VILLES));
+            Route route = new Route(v1, v2, 1 + random.nextInt(6), CouleurWagon.GRIS);
+            route.setNom(route.getNom() + "#" + r);
+            routes.add(route);
+        }
+        plateau = new Plateau(villes, routes);
+
+        nomsRoutes = new String[1024];
+        nomsVilles = new String[1024];
+        for (int k = 0; k < nomsRoutes.length; k++) {
+            // copies des noms, comme les chaînes reçues sur la websocket
+            nomsRoutes[k] = new String(routes.get(random.nextInt(NB_ROUTES)).getNom());
+            nomsVilles[k] = new String(villes.get(random.nextInt(NB_VILLES)).getNom());
+        }
+    }
+
+    @Benchmark
+    public Route routeParIndex() {
+        return plateau.getRoute(nomsRoutes[i++ & 1023]);
+    }
+
+    @Benchmark
+    public Route routeParParcours() {
+        String nom = nomsRoutes[i++ & 1023];
+        for (Route r : plateau.getRoutes()) {
+            if (r.getNom().equals(nom)) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Ville villeParIndex() {
+        return plateau.getVille(nomsVilles[i++ & 1023]);
+    }
+
+    @Benchmark
+    public Ville villeParParcours() {
+        String nom = nomsVilles[i++ & 1023];
+        for (Ville ville : plateau.getVilles()) {
+            if (ville.toString().equals(nom)) {
+                return ville;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sauvegarde et restauration d'une partie à 5 joueurs en milieu de partie
+ * (voir {@link Instantane}). La taille de l'instantané est affichée au début
+ * du benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantaneBenchmark {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"};
+
+    private Jeu jeu;
+    private byte[] instantane;
+
+    @Setup
+    public void preparer() {
+        jeu = new Jeu(NOMS_JOUEURS, 42);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(42)), false);
+        jeu.simuler(1000);
+        while (jeu.getJoueurCourant().getTour().getEtat() != Tour.Etat.CHOIX_ACTION) {
+            jeu.simuler(1);
+        }
+        instantane = Instantane.capturer(jeu);
+        System.out.println("Taille de l'instantané : " + instantane.length + " octets");
+    }
+
+    @Benchmark
+    public byte[] capturer() {
+        return Instantane.capturer(jeu);
+    }
+
+    @Benchmark
+    public Jeu restaurer() {
+        return Instantane.restaurer(instantane);
+    }
+}
@@ -0,0 +1,47 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Point d'entrée de {@code benchmarks.jar} : mêmes options que JMH, mais les
+ * résultats sont enregistrés par défaut au format JSON dans
+ * {@value #RESULTATS}, pour comparer deux versions du moteur (par exemple
+ * avec https://jmh.morethan.io ou {@link ComparaisonResultats}). Les options
+ * {@code -rf} et {@code -rff} de JMH restent prioritaires.
+ */
+public class LanceurBenchmarks {
+    public static final String RESULTATS = "jmh-resultats.json";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Erreur dans les options : " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            // aide et listes : JMH s'en charge directement
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!options.getResult().hasValue()) {
+            builder.result(RESULTATS);
+        }
+        new Runner(builder.build()).run();
+    }
+}
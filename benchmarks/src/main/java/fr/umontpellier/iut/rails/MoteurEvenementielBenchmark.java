@@ -0,0 +1,72 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût du traitement d'une entrée en mode événementiel ({@link Jeu#traiterEntree(String)}),
+ * sur un seul thread qui fait avancer à tour de rôle de nombreuses parties de 4
+ * joueurs (chaque entrée fait passer son tour au joueur courant de l'une des
+ * parties, puis la partie pose la question suivante). L'inverse du temps mesuré
+ * donne le nombre d'entrées traitées par seconde et par cœur.
+ * <p>
+ * La mémoire occupée par partie est affichée (sur la sortie d'erreur) à la
+ * préparation du benchmark. L'affichage des parties sur la sortie standard est
+ * désactivé pendant la mesure.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoteurEvenementielBenchmark {
+    @Param({"1000", "10000"})
+    public int nbParties;
+
+    private Jeu[] jeux;
+    private int i;
+    private PrintStream sortie;
+
+    @Setup
+    public void setUp() {
+        sortie = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long memoireAvant = memoireUtilisee();
+        jeux = new Jeu[nbParties];
+        for (int k = 0; k < nbParties; k++) {
+            jeux[k] = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+            jeux[k].demarrer();
+            // les 4 joueurs gardent leurs destinations initiales
+            for (int j = 0; j < 4; j++) {
+                jeux[k].traiterEntree("");
+            }
+        }
+        long memoireApres = memoireUtilisee();
+        System.err.printf("%d parties, %d Ko par partie%n", nbParties, (memoireApres - memoireAvant) / nbParties / 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(sortie);
+    }
+
+    private static long memoireUtilisee() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int k = 0; k < 3; k++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public Joueur entree() {
+        Jeu jeu = jeux[i];
+        i = (i + 1) % jeux.length;
+        jeu.traiterEntree("");
+        return jeu.getJoueurCourant();
+    }
+}
@@ -0,0 +1,61 @@
+package fr.umontpellier.iut.rails;
+
+import fr.umontpellier.iut.gui.Partie;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envoi de l'état du jeu aux clients à chaque question ({@link Jeu#prompt}),
+ * sur une partie hébergée de 5 joueurs en début de partie.
+ * {@code etatComplet} mesure l'enregistrement d'une nouvelle version de l'état
+ * suivi de sa description complète au format JSON (ce que reçoivent les
+ * clients JSON), {@code trameDelta} la trame différentielle envoyée à un client
+ * qui a acquitté la version précédente.
+ * <p>
+ * L'affichage du jeu sur la sortie standard fait partie de {@code prompt} :
+ * il est mesuré, mais la sortie est désactivée pendant le benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBenchmark {
+    private static final List<String> BOUTONS = List.of("Madrid - Dieppe (8)", "Stockholm - Wien (11)");
+
+    private Jeu jeu;
+    private Partie partie;
+    private PrintStream sortie;
+
+    @Setup
+    public void setUp() {
+        sortie = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"}, 42);
+        partie = new Partie("benchmark", jeu);
+        jeu.demarrer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(sortie);
+    }
+
+    @Benchmark
+    public String etatComplet() {
+        jeu.prompt("Choisir les destinations à defausser (max 2)", BOUTONS, true);
+        return partie.getEtatJeu();
+    }
+
+    @Benchmark
+    public String trameDelta() {
+        jeu.prompt("Choisir les destinations à defausser (max 2)", BOUTONS, true);
+        SuiviEtat suivi = jeu.getSuiviEtat();
+        return suivi.trameJson(suivi.getVersion() - 1);
+    }
+}
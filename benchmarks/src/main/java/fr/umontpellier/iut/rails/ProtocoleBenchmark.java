@@ -0,0 +1,69 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparaison des protocoles JSON et binaire (voir {@link ProtocoleBinaire})
+ * sur l'état complet d'une partie à 5 joueurs en milieu de partie : écriture
+ * de la trame par le serveur à partir de la version enregistrée, et lecture
+ * par un client (tables et listes, lignes de log mises en forme). La taille
+ * des trames et des commandes est affichée au début du benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocoleBenchmark {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"};
+
+    private final Gson gson = new Gson();
+    private Jeu jeu;
+    private SuiviEtat suivi;
+    private String trameJson;
+    private byte[] trameBinaire;
+
+    @Setup
+    public void preparer() {
+        jeu = new Jeu(NOMS_JOUEURS, 42);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(42)), true);
+        jeu.simuler(1000);
+        Tour tour = jeu.getJoueurCourant().getTour();
+        jeu.enregistrerEtat(tour.getInstruction(), tour.getBoutons(), tour.peutPasser());
+        suivi = jeu.getSuiviEtat();
+        trameJson = suivi.etatJson();
+        trameBinaire = suivi.etatBinaire();
+        System.out.println("État complet : " + trameJson.getBytes(StandardCharsets.UTF_8).length + " octets en JSON, "
+                + trameBinaire.length + " octets en binaire");
+        String route = jeu.getRoutes().get(42).getNom();
+        System.out.println("Commande \"" + route + "\" : " + route.getBytes(StandardCharsets.UTF_8).length
+                + " octets en texte, " + ProtocoleBinaire.ecrireCommande(route, jeu).length + " octets en binaire");
+    }
+
+    @Benchmark
+    public String ecrireJson() {
+        return suivi.etatJson();
+    }
+
+    @Benchmark
+    public byte[] ecrireBinaire() {
+        return suivi.etatBinaire();
+    }
+
+    @Benchmark
+    public Map<?, ?> lireJson() {
+        return gson.fromJson(trameJson, Map.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> lireBinaire() {
+        return ProtocoleBinaire.decoder(trameBinaire, jeu);
+    }
+}
@@ -0,0 +1,57 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests de faisabilité et de paiement des routes, appelés pour chaque route
+ * du plateau à chaque choix d'action ({@link Route#testFaisabiliteGris}) et
+ * pour chaque carte proposée pendant la pose des cartes
+ * ({@link Route#verifierCouleurWagonChoisie}), avec une main de 12 cartes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+    private Route routeGrise;
+    private Route routeRose;
+    private MainCartesWagon main;
+    private MainCartesWagon aucuneCarte;
+    private MainCartesWagon posees;
+
+    @Setup
+    public void setUp() {
+        Jeu jeu = new Jeu(new String[]{"Guybrush", "Largo"}, 42);
+        // Kyiv - Warszawa : route grise de longueur 4, Marseille - Zurich : tunnel rose de longueur 2
+        routeGrise = jeu.getRouteByNom("Kyiv - Warszawa");
+        routeRose = jeu.getRouteByNom("Marseille - Zurich");
+        main = new MainCartesWagon();
+        main.ajouter(CouleurWagon.ROUGE, 2);
+        main.ajouter(CouleurWagon.BLEU, 2);
+        main.ajouter(CouleurWagon.ROSE, 3);
+        main.ajouter(CouleurWagon.VERT, 3);
+        main.ajouter(CouleurWagon.LOCOMOTIVE, 2);
+        aucuneCarte = new MainCartesWagon();
+        posees = new MainCartesWagon();
+        posees.ajouter(CouleurWagon.LOCOMOTIVE, 1);
+    }
+
+    @Benchmark
+    public boolean testFaisabiliteGris() {
+        return routeGrise.testFaisabiliteGris(main);
+    }
+
+    @Benchmark
+    public boolean verifierPremiereCarte() {
+        return routeGrise.verifierCouleurWagonChoisie(CouleurWagon.VERT, main, aucuneCarte);
+    }
+
+    @Benchmark
+    public boolean verifierApresLocomotive() {
+        return routeRose.verifierCouleurWagonChoisie(CouleurWagon.ROSE, main, posees);
+    }
+}
@@ -0,0 +1,36 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation sans affichage de parties complètes à 5 joueurs sur le plateau
+ * Europe, avec des joueurs qui répondent au hasard. {@code partieComplete}
+ * comprend la création du jeu (plateau, pioches et joueurs),
+ * {@code creationJeu} mesure cette création seule.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"};
+
+    private final SourceDecisions joueurAleatoire = SourceDecisions.aleatoire(new Random(1));
+
+    @Benchmark
+    public boolean partieComplete() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(joueurAleatoire, false);
+        return jeu.simuler(1_000_000);
+    }
+
+    @Benchmark
+    public Jeu creationJeu() {
+        return new Jeu(NOMS_JOUEURS);
+    }
+}
@@ -0,0 +1,89 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tour complet joué par {@link Joueur#jouerTour()} avec des réponses lues dans
+ * un script (comme les tests avec {@code IOJeu}) : capture du tunnel
+ * Marseille - Zurich avec une carte supplémentaire à défausser (choix de la
+ * route, pose de 2 cartes, retournement de 3 cartes et paiement du
+ * supplément). La partie est en mode sans affichage sans log.
+ * <p>
+ * L'état (main, pioche, propriétaire de la route, wagons et score du joueur)
+ * est remis en place avant chaque tour, en dehors de la mesure : le tour dure
+ * quelques microsecondes, le coût de la remise en place par JMH reste faible
+ * devant la mesure.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TourScripteBenchmark {
+    private JeuScripte jeu;
+    private Joueur joueur;
+    private Route tunnel;
+
+    @Setup
+    public void setUp() {
+        jeu = new JeuScripte(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"},
+                "Marseille - Zurich", // coûte 2 ROSE (tunnel)
+                "ROSE",
+                "LOCOMOTIVE",
+                "ROSE" // coût supplémentaire du tunnel
+        );
+        jeu.setModeSansAffichage(null, false);
+        joueur = jeu.getJoueurs().get(0);
+        tunnel = jeu.getRouteByNom("Marseille - Zurich");
+    }
+
+    @Setup(Level.Invocation)
+    public void remettreEnPlace() {
+        jeu.recommencerScript();
+        tunnel.setProprietaire(null);
+        joueur.restaurer(joueur.getCouleur(), 3, 45, 12);
+        MainCartesWagon main = joueur.getCartesWagon();
+        main.clear();
+        main.ajouter(CouleurWagon.ROSE, 2);
+        main.ajouter(CouleurWagon.ROUGE, 2);
+        main.ajouter(CouleurWagon.LOCOMOTIVE, 1);
+        // cartes retournées après le paiement du prix initial du tunnel
+        PileCartesWagon pile = jeu.getPileCartesWagon();
+        pile.ajouterDessus(CouleurWagon.BLEU);
+        pile.ajouterDessus(CouleurWagon.ROSE);
+        pile.ajouterDessus(CouleurWagon.JAUNE);
+        jeu.getDefausseCartesWagon().clear();
+    }
+
+    @Benchmark
+    public int jouerTour() {
+        joueur.jouerTour();
+        return joueur.getScore();
+    }
+
+    /**
+     * Jeu dont les entrées sont lues dans un script rejoué à l'identique à
+     * chaque tour (sans allocation, contrairement à {@code IOJeu})
+     */
+    static class JeuScripte extends Jeu {
+        private final String[] script;
+        private int position;
+
+        JeuScripte(String[] nomJoueurs, String... script) {
+            super(nomJoueurs, 42);
+            this.script = script;
+        }
+
+        void recommencerScript() {
+            position = 0;
+        }
+
+        @Override
+        public String lireLigne() {
+            return script[position++];
+        }
+    }
+}
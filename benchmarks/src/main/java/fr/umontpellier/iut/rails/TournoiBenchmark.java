@@ -0,0 +1,47 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passage à l'échelle du tournoi entre robots : un lot de parties à 5 joueurs
+ * (joueurs aléatoires) est joué sur un pool de {@code nbThreads} threads. Le
+ * débit en parties par seconde s'obtient en multipliant le score par
+ * {@link #NB_PARTIES} ; il doit croître à peu près linéairement avec le
+ * nombre de threads tant qu'il ne dépasse pas le nombre de cœurs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class TournoiBenchmark {
+    private static final int NB_PARTIES = 256;
+
+    @Param({"1", "2", "4", "8"})
+    public int nbThreads;
+
+    private ForkJoinPool pool;
+    private Tournoi tournoi;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(nbThreads);
+        tournoi = new Tournoi(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine", "Murray"},
+                () -> SourceDecisions.aleatoire(new Random()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ResultatsTournoi tournoi() {
+        return tournoi.jouer(NB_PARTIES, pool);
+    }
+}
@@ -0,0 +1,55 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction d'un tunnel ({@link Tunnel#piocherCartesSupplementaires}) :
+ * retournement des 3 premières cartes de la pioche et calcul du nombre de
+ * cartes supplémentaires à défausser. Les 3 cartes retournées sont fixées
+ * (une rose, une locomotive et une bleue) et remises sur la pioche à chaque
+ * itération, le joueur a posé 2 cartes roses et peut payer le supplément.
+ * <p>
+ * La partie est en mode sans affichage sans log, comme dans un tournoi
+ * ({@code avecLog} mesure le même appel avec les messages d'information).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TunnelBenchmark {
+    @Param({"false", "true"})
+    public boolean avecLog;
+
+    private Jeu jeu;
+    private Joueur joueur;
+    private Route tunnel;
+
+    @Setup
+    public void setUp() {
+        jeu = new Jeu(new String[]{"Guybrush", "Largo"}, 42);
+        jeu.setModeSansAffichage(null, avecLog);
+        joueur = jeu.getJoueurs().get(0);
+        joueur.getCartesWagon().clear();
+        joueur.getCartesWagon().ajouter(CouleurWagon.ROSE, 2);
+        joueur.getCartesWagon().ajouter(CouleurWagon.LOCOMOTIVE, 2);
+        joueur.getCartesWagonPosees().ajouter(CouleurWagon.ROSE, 2);
+        // Marseille - Zurich : tunnel rose de longueur 2
+        tunnel = jeu.getRouteByNom("Marseille - Zurich");
+    }
+
+    @Benchmark
+    public int piocherCartesSupplementaires() {
+        PileCartesWagon pile = jeu.getPileCartesWagon();
+        pile.ajouterDessus(CouleurWagon.BLEU);
+        pile.ajouterDessus(CouleurWagon.LOCOMOTIVE);
+        pile.ajouterDessus(CouleurWagon.ROSE);
+        int nb = tunnel.piocherCartesSupplementaires(joueur);
+        jeu.getDefausseCartesWagon().clear();
+        jeu.getLog().clear();
+        return nb;
+    }
+}
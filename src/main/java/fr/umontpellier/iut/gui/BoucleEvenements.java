@@ -0,0 +1,77 @@
+package fr.umontpellier.iut.gui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Petit ensemble de boucles d'événements (une par cœur par défaut) qui font
+ * avancer les parties hébergées en mode événementiel.
+ * <p>
+ * Une partie en mode événementiel n'a pas de thread à elle : chaque entrée
+ * reçue est traitée par une tâche ({@link fr.umontpellier.iut.rails.Jeu#traiterEntree(String)})
+ * exécutée sur la boucle de la partie, puis la boucle passe aux autres
+ * parties. Toutes les tâches d'une même partie sont exécutées par la même
+ * boucle, dans l'ordre de soumission : le jeu n'a pas besoin d'être protégé
+ * contre les accès concurrents.
+ */
+public class BoucleEvenements {
+    private final ExecutorService[] boucles;
+
+    public BoucleEvenements(int nbBoucles) {
+        boucles = new ExecutorService[nbBoucles];
+        for (int i = 0; i < nbBoucles; i++) {
+            String nom = "boucle-" + i;
+            boucles[i] = Executors.newSingleThreadExecutor(tache -> {
+                Thread thread = new Thread(tache, nom);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Crée une boucle par cœur disponible
+     */
+    public BoucleEvenements() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getNbBoucles() {
+        return boucles.length;
+    }
+
+    /**
+     * Exécute une tâche sur la boucle de la partie (une erreur dans la tâche
+     * n'arrête pas la boucle)
+     *
+     * @param idPartie identifiant de la partie concernée
+     * @param tache    la tâche à exécuter
+     */
+    public void executer(String idPartie, Runnable tache) {
+        boucles[Math.floorMod(idPartie.hashCode(), boucles.length)].execute(() -> {
+            try {
+                tache.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Termine les tâches déjà soumises puis arrête les boucles
+     */
+    public void arreter() {
+        for (ExecutorService boucle : boucles) {
+            boucle.shutdown();
+        }
+        for (ExecutorService boucle : boucles) {
+            try {
+                boucle.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
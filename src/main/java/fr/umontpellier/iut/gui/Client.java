@@ -0,0 +1,315 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.ProtocoleBinaire;
+
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Un client connecté à une partie, avec le protocole qu'il a choisi à la
+ * connexion.
+ * <p>
+ * Les trames ne sont pas envoyées par le thread du jeu : elles sont placées dans
+ * une file bornée propre au client, et envoyées une par une (envoi asynchrone)
+ * par un exécuteur partagé par tous les clients. Un client lent ou bloqué ne
+ * ralentit donc ni le jeu ni les autres clients. Comme chaque trame décrit l'état
+ * le plus récent (ou les modifications depuis la dernière version acquittée,
+ * qui englobent celles des trames précédentes), lorsque la file d'un client est
+ * pleine les trames en attente sont abandonnées au profit de la dernière.
+ */
+public class Client {
+    /**
+     * Protocoles d'envoi de l'état du jeu
+     */
+    public enum Protocole {
+        /**
+         * l'état complet du jeu est envoyé à chaque prompt (protocole par défaut)
+         */
+        JSON,
+        /**
+         * seules les modifications depuis la dernière version acquittée par le
+         * client sont envoyées (voir {@code SuiviEtat})
+         */
+        DELTA,
+        /**
+         * l'état complet du jeu est envoyé à chaque prompt dans des trames
+         * binaires compactes, et le client répond par des commandes binaires
+         * (voir {@link ProtocoleBinaire})
+         */
+        BINAIRE
+    }
+
+    /**
+     * Nom du paramètre de connexion indiquant le protocole choisi
+     * (ex : ws://localhost:3232/?protocole=delta)
+     */
+    public static final String PARAMETRE_PROTOCOLE = "protocole";
+    /**
+     * Message envoyé par un client DELTA pour acquitter une version (suivi du numéro de version)
+     */
+    public static final String ACQUITTEMENT = "@ack ";
+    /**
+     * Message envoyé par un client DELTA pour redemander l'état complet
+     */
+    public static final String RESYNCHRONISATION = "@resync";
+    /**
+     * Message envoyé par un client (quel que soit son protocole) pour demander
+     * les lignes de log qui précèdent un numéro de séquence (suivi de ce numéro,
+     * voir {@code SuiviEtat.pageLogJson}). Comme les autres trames, la page peut
+     * être abandonnée si le client est trop lent : il la redemande alors.
+     */
+    public static final String HISTORIQUE = "@log ";
+    /**
+     * Nombre maximum de trames en attente d'envoi pour un client
+     */
+    public static final int CAPACITE_FILE = 4;
+    /**
+     * Exécuteur qui envoie les trames de tous les clients
+     */
+    private static final ExecutorService ECRIVAINS = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), tache -> {
+                Thread thread = new Thread(tache, "envoi-websocket");
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * Compteurs globaux des clients lents : nombre de fois où la file d'un client
+     * était pleine, et nombre total de trames abandonnées
+     */
+    private static final AtomicLong totalCoalescences = new AtomicLong();
+    private static final AtomicLong totalTramesCoalescees = new AtomicLong();
+
+    private final Session session;
+    private final Partie partie;
+    private final Protocole protocole;
+    /**
+     * Dernière version de l'état acquittée par le client (0 si aucune)
+     */
+    private volatile int versionAcquittee;
+    /**
+     * Verrou qui protège la file d'envoi, dans laquelle le thread du jeu place
+     * les trames (voir {@link FabriqueThreads} pour le choix du verrou)
+     */
+    private final ReentrantLock verrouFile = new ReentrantLock();
+    /**
+     * Trames en attente d'envoi, textes ou tableaux d'octets (protégé par
+     * verrouFile)
+     */
+    private final ArrayDeque<Object> fileSortante = new ArrayDeque<>(CAPACITE_FILE);
+    /**
+     * Indique si une trame est en cours d'envoi (protégé par verrouFile)
+     */
+    private boolean envoiEnCours;
+    /**
+     * Nombre de trames envoyées et de trames abandonnées pour ce client
+     */
+    private final AtomicLong nbTramesEnvoyees = new AtomicLong();
+    private final AtomicLong nbTramesCoalescees = new AtomicLong();
+
+    public Client(Session session, Partie partie, Protocole protocole) {
+        this.session = session;
+        this.partie = partie;
+        this.protocole = protocole;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Partie getPartie() {
+        return partie;
+    }
+
+    public Protocole getProtocole() {
+        return protocole;
+    }
+
+    public int getVersionAcquittee() {
+        return versionAcquittee;
+    }
+
+    /**
+     * Traite les messages de contrôle : demande d'historique du log, et
+     * acquittement et resynchronisation du protocole DELTA
+     *
+     * @param message le message reçu du client
+     * @return true si le message était un message de contrôle (et ne doit donc pas
+     * être transmis au jeu)
+     */
+    public boolean traiterControle(String message) {
+        if (message.startsWith(HISTORIQUE)) {
+            try {
+                int avant = Integer.parseInt(message.substring(HISTORIQUE.length()).trim());
+                envoyerPageLog(avant);
+            } catch (NumberFormatException e) {
+                System.err.println("Demande d'historique invalide : " + message);
+            }
+            return true;
+        }
+        if (protocole != Protocole.DELTA) {
+            return false;
+        }
+        if (message.startsWith(ACQUITTEMENT)) {
+            try {
+                int version = Integer.parseInt(message.substring(ACQUITTEMENT.length()).trim());
+                if (version > versionAcquittee) {
+                    versionAcquittee = version;
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Acquittement invalide : " + message);
+            }
+            return true;
+        }
+        if (message.equals(RESYNCHRONISATION)) {
+            versionAcquittee = 0;
+            envoyer(partie.trame(this));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Traite une commande binaire d'un client BINAIRE : une demande
+     * d'historique reçoit une page du log, les autres commandes sont traduites
+     * en réponses textuelles et transmises au jeu
+     */
+    public void traiterBinaire(byte[] commande) {
+        try {
+            int avant = ProtocoleBinaire.lireDemandeHistorique(commande);
+            if (avant >= 0) {
+                envoyerPageLog(avant);
+            } else {
+                partie.addInput(ProtocoleBinaire.lireCommande(commande, partie.getJeu()));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Commande binaire invalide du client " + session.getId() + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Envoie les lignes de log qui précèdent un numéro de séquence, dans le
+     * format du protocole du client
+     */
+    private void envoyerPageLog(int avant) {
+        if (protocole == Protocole.BINAIRE) {
+            envoyer(partie.getJeu().getSuiviEtat().pageLogBinaire(avant));
+        } else {
+            envoyer(partie.getJeu().getSuiviEtat().pageLogJson(avant));
+        }
+    }
+
+    public long getNbTramesEnvoyees() {
+        return nbTramesEnvoyees.get();
+    }
+
+    public long getNbTramesCoalescees() {
+        return nbTramesCoalescees.get();
+    }
+
+    public int getNbTramesEnAttente() {
+        verrouFile.lock();
+        try {
+            return fileSortante.size();
+        } finally {
+            verrouFile.unlock();
+        }
+    }
+
+    /**
+     * @return le nombre de fois où un client était trop lent (sa file était pleine)
+     * depuis le démarrage du serveur
+     */
+    public static long getTotalCoalescences() {
+        return totalCoalescences.get();
+    }
+
+    /**
+     * @return le nombre de trames abandonnées car un client était trop lent depuis
+     * le démarrage du serveur
+     */
+    public static long getTotalTramesCoalescees() {
+        return totalTramesCoalescees.get();
+    }
+
+    /**
+     * Place une trame dans la file d'envoi du client (sans attendre son envoi).
+     * Si la file est pleine, les trames en attente sont abandonnées et seule la
+     * nouvelle trame est conservée.
+     */
+    public void envoyer(String trame) {
+        placer(trame);
+    }
+
+    /**
+     * Place une trame binaire dans la file d'envoi du client (voir
+     * {@link #envoyer(String)})
+     */
+    public void envoyer(byte[] trame) {
+        placer(trame);
+    }
+
+    private void placer(Object trame) {
+        boolean demarrerEnvoi;
+        verrouFile.lock();
+        try {
+            if (fileSortante.size() >= CAPACITE_FILE) {
+                int nbAbandonnees = fileSortante.size();
+                fileSortante.clear();
+                nbTramesCoalescees.addAndGet(nbAbandonnees);
+                totalTramesCoalescees.addAndGet(nbAbandonnees);
+                totalCoalescences.incrementAndGet();
+            }
+            fileSortante.add(trame);
+            demarrerEnvoi = !envoiEnCours;
+            envoiEnCours = true;
+        } finally {
+            verrouFile.unlock();
+        }
+        if (demarrerEnvoi) {
+            ECRIVAINS.execute(this::envoyerSuivante);
+        }
+    }
+
+    /**
+     * Envoie la trame en tête de file. La trame suivante n'est envoyée que
+     * lorsque l'envoi de celle-ci est terminé.
+     */
+    private void envoyerSuivante() {
+        Object trame;
+        verrouFile.lock();
+        try {
+            trame = fileSortante.poll();
+            if (trame == null) {
+                envoiEnCours = false;
+                return;
+            }
+        } finally {
+            verrouFile.unlock();
+        }
+        try {
+            if (trame instanceof byte[] octets) {
+                session.getAsyncRemote().sendBinary(ByteBuffer.wrap(octets), this::envoiTermine);
+            } else {
+                session.getAsyncRemote().sendText((String) trame, this::envoiTermine);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            ECRIVAINS.execute(this::envoyerSuivante);
+        }
+    }
+
+    private void envoiTermine(SendResult resultat) {
+        if (resultat.isOK()) {
+            nbTramesEnvoyees.incrementAndGet();
+        } else {
+            System.err.println("Erreur d'envoi pour le client " + session.getId() + " : " + resultat.getException());
+        }
+        ECRIVAINS.execute(this::envoyerSuivante);
+    }
+}
@@ -0,0 +1,79 @@
+package fr.umontpellier.iut.gui;
+
+import java.lang.reflect.Method;
+
+/**
+ * Création des threads des parties.
+ * <p>
+ * Sur Java 21 ou plus, une partie peut tourner sur un thread virtuel : tant
+ * qu'elle attend l'instruction suivante d'un joueur (ce qui est le cas la
+ * plupart du temps), elle n'occupe aucun thread système, et un serveur peut
+ * héberger des centaines de milliers de parties inactives. Le projet est
+ * compilé pour Java 17 : les threads virtuels sont créés par réflexion, et on
+ * se rabat sur un thread système (démon) s'ils ne sont pas disponibles.
+ * <p>
+ * Les données partagées entre le thread d'une partie et les threads du
+ * serveur sont protégées par des {@link java.util.concurrent.locks.ReentrantLock}
+ * plutôt que par {@code synchronized} : un thread virtuel qui attend un
+ * {@code ReentrantLock} libère son thread porteur, alors qu'il le bloque dans
+ * un bloc {@code synchronized}.
+ */
+public final class FabriqueThreads {
+    /**
+     * {@code Thread.ofVirtual()} et les méthodes {@code name(String)} et
+     * {@code unstarted(Runnable)} de {@code Thread.Builder} (null si la JVM ne
+     * connaît pas les threads virtuels)
+     */
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private FabriqueThreads() {
+    }
+
+    /**
+     * @return true si la JVM permet de créer des threads virtuels
+     */
+    public static boolean threadsVirtuelsDisponibles() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Crée un thread (non démarré)
+     *
+     * @param tache   la tâche exécutée par le thread
+     * @param nom     le nom du thread
+     * @param virtuel si true, le thread est virtuel lorsque c'est possible (sinon
+     *                c'est un thread système démon)
+     */
+    public static Thread nouveauThread(Runnable tache, String nom, boolean virtuel) {
+        if (virtuel && OF_VIRTUAL != null) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), nom);
+                return (Thread) UNSTARTED.invoke(builder, tache);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        Thread thread = new Thread(tache, nom);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -1,41 +1,116 @@
 package fr.umontpellier.iut.gui;
 
 import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Journal;
 import org.glassfish.tyrus.server.Server;
 
+import javax.websocket.CloseReason;
 import javax.websocket.DeploymentException;
 import javax.websocket.Session;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class GameServer {
     /**
-     * Liste des clients connectés au serveur
+     * Identifiant de la partie rejointe par les clients qui n'en précisent pas
+     * (et qui reçoit les instructions tapées dans la console)
      */
-    private static ArrayList<Session> clients = new ArrayList<>();
+    public static final String PARTIE_DEFAUT = "defaut";
     /**
-     * Description de l'état du jeu, envoyé aux clients pour la mise à jour de l'interface graphique
+     * Nom du paramètre de connexion indiquant la partie à rejoindre
+     * (ex : ws://localhost:3232/?partie=ma-partie)
      */
-    private static String etatJeu = "";
+    public static final String PARAMETRE_PARTIE = "partie";
     /**
-     * Instance de jeu exécutée par le serveur
+     * Propriété de session websocket qui contient le {@link Client} associé
      */
-    private static Jeu jeu;
+    private static final String PROPRIETE_CLIENT = "client";
+    /**
+     * Noms des joueurs des parties créées par le serveur
+     */
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+    /**
+     * Parties hébergées par le serveur, indexées par leur identifiant
+     */
+    private static final ConcurrentHashMap<String, Partie> parties = new ConcurrentHashMap<>();
+    /**
+     * Identifiants des parties en cours de création (voir
+     * {@link #creerSiAbsente(String, boolean)}), associés à la création
+     * attendue par les autres connexions
+     */
+    private static final ConcurrentHashMap<String, CompletableFuture<Void>> creations = new ConcurrentHashMap<>();
+    /**
+     * Propriété système qui choisit le moteur des parties : "threads" (un thread
+     * par partie, par défaut), "virtuels" (un thread virtuel par partie, Java 21
+     * ou plus) ou "evenements" (les parties avancent sur une boucle d'événements
+     * par cœur, voir {@link BoucleEvenements})
+     */
+    public static final String PROPRIETE_MOTEUR = "rails.moteur";
+    /**
+     * Propriété système qui indique le dossier des journaux des parties (voir
+     * {@link Journal}). Si elle est définie, les entrées de chaque partie sont
+     * enregistrées, et une partie dont le journal existe déjà est reconstruite
+     * (reprise après un arrêt du serveur) au lieu d'être recommencée. Le journal
+     * d'une partie terminée est archivé (voir {@link Journal#terminer()}) : la
+     * partie suivante de même identifiant est une nouvelle partie. Un journal
+     * illisible est renommé en {@code <partie>.journal.<date>.illisible} et la
+     * partie recommence. Une partie dont le journal ne peut pas être créé n'est
+     * pas hébergée : aucune partie ne tourne sans journal.
+     */
+    public static final String PROPRIETE_JOURNAUX = "rails.journaux";
+    /**
+     * Propriété système qui fixe le nombre maximum de parties hébergées (par
+     * défaut {@link #MAX_PARTIES}) : au-delà, les connexions qui demandent une
+     * nouvelle partie sont refusées
+     */
+    public static final String PROPRIETE_MAX_PARTIES = "rails.maxParties";
+    public static final int MAX_PARTIES = 1000;
+    /**
+     * Propriété système qui fixe le délai (en millisecondes, par défaut
+     * {@link #DELAI_INACTIVITE}) au bout duquel une partie inachevée que plus
+     * aucun client ne suit est retirée du serveur (voir
+     * {@link Partie#fermerSiSansClient()}). Si les journaux sont activés, la
+     * partie est reprise à partir de son journal lorsqu'un client la rejoint.
+     * La partie par défaut n'est jamais retirée.
+     */
+    public static final String PROPRIETE_DELAI_INACTIVITE = "rails.inactivite";
+    public static final long DELAI_INACTIVITE = 10 * 60 * 1000;
+    /**
+     * Thread qui retire les parties abandonnées après le délai d'inactivité
+     */
+    private static final ScheduledExecutorService evictions = Executors.newSingleThreadScheduledExecutor(tache -> {
+        Thread thread = new Thread(tache, "evictions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Boucles d'événements des parties, créées au premier besoin en mode
+     * événementiel
+     */
+    private static volatile BoucleEvenements boucle;
 
     public static void main(String[] args) {
-        // Lancement de la partie
-        jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
-
         // Prépare le serveur websocket
         Server server = new Server("localhost", 3232, "/", WebSocketClient.class);
 
         try (Scanner scanner = new Scanner(System.in)) {
             server.start();             // lance le serveur
-            new Thread(jeu).start();    // démarre le jeu (exécute la méthode Jeu.run() dans un nouveau thread)
-            //methode run à faire, qui a besoin de choisir destination
+            // Lancement de la partie par défaut (les autres sont créées à la demande des clients)
+            getOuCreerPartie(PARTIE_DEFAUT);
             while (true) {//detacher l'interface et la console
-                jeu.addInput(scanner.nextLine());
+                addInput(PARTIE_DEFAUT, scanner.nextLine());
             }
         } catch (DeploymentException e) {
             throw new RuntimeException(e);
@@ -45,54 +120,317 @@ public class GameServer {
     }
 
     /**
-     * Ajoute une nouvelle instruction à la file d'instructions
-     * (cette méthode est appelée lorsqu'un message est reçue sur la websocket)
-     * 
-     * @param message l'instruction à ajouter
+     * Crée une nouvelle partie (sans la démarrer) et l'enregistre sur le serveur
+     *
+     * @param id identifiant de la partie
+     * @return la partie créée, ou null si une partie avec cet identifiant existe déjà
+     * @throws UncheckedIOException si le journal de la partie ne peut pas être
+     *                              créé (voir {@link #PROPRIETE_JOURNAUX})
      */
-    public static void addInput(String message) {
-        jeu.addInput(message);
+    public static Partie creerPartie(String id) {
+        return creerSiAbsente(id, false);
     }
 
     /**
-     * Met à jour l'état de la partie, et envoie le nouvel état à tous les clients connectés
-     * 
-     * @param etatJeu l'état de la partie
+     * Renvoie la partie d'identifiant donné, en la créant et en la démarrant si
+     * elle n'existe pas encore (si une autre connexion est en train de la
+     * créer, on attend qu'elle soit prête)
+     *
+     * @param id identifiant de la partie
+     * @return la partie, ou null si elle n'existe pas et que le serveur héberge
+     * déjà le nombre maximum de parties (voir {@link #PROPRIETE_MAX_PARTIES})
+     * @throws UncheckedIOException si le journal de la partie ne peut pas être
+     *                              créé (voir {@link #PROPRIETE_JOURNAUX})
      */
-    public static void setEtatJeu(String etatJeu) {
-        GameServer.etatJeu = etatJeu;
-        // Envoie l'état de la partie à tous les clients
+    public static Partie getOuCreerPartie(String id) {
+        while (true) {
+            Partie partie = parties.get(id);
+            if (partie != null) {
+                return partie;
+            }
+            CompletableFuture<Void> creation = creations.get(id);
+            if (creation != null) {
+                creation.join();
+            } else if (parties.size() + creations.size() >= getMaxParties()) {
+                return null;
+            } else {
+                partie = creerSiAbsente(id, true);
+                if (partie != null) {
+                    return partie;
+                }
+            }
+        }
+    }
+
+    /**
+     * Crée une partie et l'enregistre sur le serveur, si aucune partie de même
+     * identifiant n'est hébergée ni en cours de création. L'identifiant est
+     * réservé avant de créer le jeu : seul le thread qui a obtenu la réservation
+     * ouvre ou rejoue le journal de la partie (voir {@link #ouvrirJeu(String)}),
+     * et la reconstruction se fait en dehors de la table des parties. Les
+     * parties en cours de création comptent dans le nombre maximum de parties.
+     *
+     * @param id       identifiant de la partie
+     * @param demarrer si true, la partie est démarrée avant d'être enregistrée
+     * @return la partie créée, ou null si l'identifiant est déjà pris ou si le
+     * serveur héberge déjà le nombre maximum de parties
+     */
+    private static Partie creerSiAbsente(String id, boolean demarrer) {
+        CompletableFuture<Void> creation = new CompletableFuture<>();
+        if (creations.putIfAbsent(id, creation) != null) {
+            return null;
+        }
         try {
-            for (Session session : clients) {
-                session.getBasicRemote().sendText(etatJeu);
+            if (parties.containsKey(id) || parties.size() + creations.size() > getMaxParties()) {
+                return null;
+            }
+            Partie partie;
+            try {
+                partie = new Partie(id, ouvrirJeu(id));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Le journal de la partie " + id + " ne peut pas être ouvert", e);
+            }
+            if (demarrer) {
+                String moteur = System.getProperty(PROPRIETE_MOTEUR);
+                if ("evenements".equals(moteur)) {
+                    partie.demarrer(getBoucle());
+                } else {
+                    partie.demarrer("virtuels".equals(moteur));
+                }
+            }
+            parties.put(id, partie);
+            return partie;
+        } finally {
+            creations.remove(id, creation);
+            creation.complete(null);
+        }
+    }
+
+    /**
+     * Crée l'instance de jeu d'une partie, en la reconstruisant à partir de son
+     * journal s'il existe (lorsque les journaux sont activés). Si la partie
+     * reconstruite était terminée, son journal est archivé et une nouvelle partie
+     * est créée ; si le journal est illisible, il est mis de côté et une
+     * nouvelle partie est créée.
+     *
+     * @param id identifiant de la partie
+     * @throws IOException si le journal illisible ne peut pas être déplacé ou si
+     *                     le journal de la nouvelle partie ne peut pas être créé
+     */
+    private static Jeu ouvrirJeu(String id) throws IOException {
+        String dossier = System.getProperty(PROPRIETE_JOURNAUX);
+        if (dossier == null) {
+            return new Jeu(NOMS_JOUEURS);
+        }
+        // l'identifiant est choisi par les clients : il est encodé pour rester dans le dossier
+        Path fichier = Path.of(dossier, URLEncoder.encode(id, StandardCharsets.UTF_8) + ".journal");
+        if (Files.exists(fichier)) {
+            try {
+                Jeu jeu = Journal.reprendre(fichier);
+                if (!jeu.estTerminee()) {
+                    return jeu;
+                }
+            } catch (IOException e) {
+                // le journal est gardé pour être examiné, mais la partie ne peut plus être reprise
+                Path illisible = Journal.mettreDeCote(fichier, "illisible");
+                System.err.println("Journal de la partie " + id + " illisible (" + e.getMessage()
+                        + "), déplacé vers " + illisible + " : la partie recommence");
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setJournal(Journal.creer(fichier, jeu));
+        return jeu;
+    }
+
+    private static int getMaxParties() {
+        return Integer.getInteger(PROPRIETE_MAX_PARTIES, MAX_PARTIES);
     }
 
     /**
-     * Ajoute un nouveau client à la liste, et lui transmet l'état actuel de la partie
+     * Retire la partie du serveur après le délai d'inactivité si aucun client
+     * ne l'a rejointe entre-temps (voir {@link #PROPRIETE_DELAI_INACTIVITE})
+     */
+    private static void planifierEviction(Partie partie) {
+        long delai = Long.getLong(PROPRIETE_DELAI_INACTIVITE, DELAI_INACTIVITE);
+        evictions.schedule(() -> {
+            if (parties.get(partie.getId()) == partie && partie.fermerSiSansClient()) {
+                retirerPartie(partie);
+            }
+        }, delai, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return les boucles d'événements du serveur (créées au premier appel)
+     */
+    public static BoucleEvenements getBoucle() {
+        if (boucle == null) {
+            synchronized (GameServer.class) {
+                if (boucle == null) {
+                    boucle = new BoucleEvenements();
+                }
+            }
+        }
+        return boucle;
+    }
+
+    /**
+     * @return la partie d'identifiant donné, ou null si elle n'existe pas
+     */
+    public static Partie getPartie(String id) {
+        return parties.get(id);
+    }
+
+    /**
+     * Retire une partie du serveur
+     */
+    public static void retirerPartie(String id) {
+        parties.remove(id);
+    }
+
+    /**
+     * Retire une partie du serveur, si elle n'a pas déjà été remplacée par une
+     * nouvelle partie de même identifiant
+     */
+    public static void retirerPartie(Partie partie) {
+        parties.remove(partie.getId(), partie);
+    }
+
+    /**
+     * @return le nombre de parties hébergées par le serveur
+     */
+    public static int getNbParties() {
+        return parties.size();
+    }
+
+    /**
+     * Ajoute une nouvelle instruction à la file d'instructions d'une partie
+     *
+     * @param id      identifiant de la partie
+     * @param message l'instruction à ajouter
+     */
+    public static void addInput(String id, String message) {
+        Partie partie = parties.get(id);
+        if (partie != null) {
+            partie.addInput(message);
+        }
+    }
+
+    /**
+     * Ajoute une nouvelle instruction à la file d'instructions de la partie suivie
+     * par un client
+     * (cette méthode est appelée lorsqu'un message est reçue sur la websocket)
+     *
+     * @param session la session du client qui a envoyé l'instruction
+     * @param message l'instruction à ajouter
+     */
+    public static void addInput(Session session, String message) {
+        Client client = (Client) session.getUserProperties().get(PROPRIETE_CLIENT);
+        if (client != null && !client.traiterControle(message)) {
+            client.getPartie().addInput(message);
+        }
+    }
+
+    /**
+     * Transmet une commande binaire d'un client BINAIRE à la partie qu'il suit
+     * (cette méthode est appelée lorsqu'un message binaire est reçu sur la
+     * websocket)
+     *
+     * @param session la session du client qui a envoyé la commande
+     * @param message la commande (voir {@link fr.umontpellier.iut.rails.ProtocoleBinaire})
+     */
+    public static void addInput(Session session, byte[] message) {
+        Client client = (Client) session.getUserProperties().get(PROPRIETE_CLIENT);
+        if (client != null) {
+            client.traiterBinaire(message);
+        }
+    }
+
+    /**
+     * Ajoute un nouveau client à la partie demandée dans ses paramètres de
+     * connexion (la partie est créée si nécessaire), et lui transmet l'état actuel
+     * de la partie dans le protocole demandé. Si le serveur héberge déjà le
+     * nombre maximum de parties ou si la partie ne peut pas être créée (voir
+     * {@link #PROPRIETE_JOURNAUX}), la connexion est fermée.
      * (cette méthode est appelée lorsqu'une nouvelle connexion est établie)
-     * 
+     *
      * @param session la session du nouveau client
      */
     public static void addClient(Session session) {
-        GameServer.clients.add(session);
+        String id = parametre(session, PARAMETRE_PARTIE, PARTIE_DEFAUT);
+        Client.Protocole protocole = Client.Protocole.JSON;
+        String nomProtocole = parametre(session, Client.PARAMETRE_PROTOCOLE, "");
+        for (Client.Protocole p : Client.Protocole.values()) {
+            if (p.name().equalsIgnoreCase(nomProtocole)) {
+                protocole = p;
+            }
+        }
+        while (true) {
+            Partie partie;
+            try {
+                partie = getOuCreerPartie(id);
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                fermer(session, CloseReason.CloseCodes.UNEXPECTED_CONDITION, "La partie ne peut pas être hébergée");
+                return;
+            }
+            if (partie == null) {
+                fermer(session, CloseReason.CloseCodes.TRY_AGAIN_LATER,
+                        "Le serveur héberge déjà le nombre maximum de parties");
+                return;
+            }
+            Client client = new Client(session, partie, protocole);
+            session.getUserProperties().put(PROPRIETE_CLIENT, client);
+            if (partie.addClient(client)) {
+                return;
+            }
+            // la partie vient d'être fermée pour inactivité : elle est recréée
+            retirerPartie(partie);
+        }
+    }
+
+    /**
+     * Ferme la connexion d'un client refusé
+     */
+    private static void fermer(Session session, CloseReason.CloseCode code, String raison) {
         try {
-            session.getBasicRemote().sendText(etatJeu);
+            session.close(new CloseReason(code, raison));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Retire un client de la liste
+     * Retire un client de sa partie. Une partie terminée est retirée du serveur
+     * lorsque son dernier client se déconnecte ; une partie inachevée est
+     * retirée si aucun client ne la rejoint avant le délai d'inactivité (voir
+     * {@link #PROPRIETE_DELAI_INACTIVITE}).
      * (cette méthode est appelée lorsqu'une connexion est fermée)
-     * 
+     *
      * @param session la session du client à retirer
      */
     public static void removeClient(Session session) {
-        GameServer.clients.remove(session);
+        Client client = (Client) session.getUserProperties().remove(PROPRIETE_CLIENT);
+        if (client == null || !client.getPartie().removeClient(client)) {
+            return;
+        }
+        Partie partie = client.getPartie();
+        if (partie.estTerminee()) {
+            retirerPartie(partie);
+        } else if (!partie.getId().equals(PARTIE_DEFAUT)) {
+            planifierEviction(partie);
+        }
+    }
+
+    /**
+     * @return la valeur d'un paramètre de l'URL de connexion d'un client, ou
+     * {@code defaut} si le paramètre est absent
+     */
+    private static String parametre(Session session, String nom, String defaut) {
+        Map<String, List<String>> parametres = session.getRequestParameterMap();
+        List<String> valeurs = parametres == null ? null : parametres.get(nom);
+        if (valeurs == null || valeurs.isEmpty() || valeurs.get(0).isBlank()) {
+            return defaut;
+        }
+        return valeurs.get(0);
     }
 }
@@ -0,0 +1,332 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.SuiviEtat;
+
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Une partie hébergée par le serveur : l'instance de jeu, les clients qui la
+ * suivent et le dernier état envoyé
+ */
+public class Partie {
+    /**
+     * Identifiant de la partie (choisi par les clients à la connexion)
+     */
+    private final String id;
+    /**
+     * Instance de jeu exécutée pour cette partie
+     */
+    private final Jeu jeu;
+    /**
+     * Clients connectés à cette partie
+     */
+    private final RegistreClients clients = new RegistreClients();
+    /**
+     * Indique si la partie a été fermée faute de clients (voir
+     * {@link #fermerSiSansClient()}) : elle n'accepte plus de nouveaux clients
+     */
+    private boolean fermee;
+    /**
+     * Verrou qui protège {@code fermee} : un client ne peut pas rejoindre la
+     * partie pendant qu'elle est fermée (voir {@link FabriqueThreads} pour le
+     * choix du verrou)
+     */
+    private final ReentrantLock verrouClients = new ReentrantLock();
+    /**
+     * Description complète de l'état du jeu, envoyée aux clients JSON pour la mise à jour de l'interface graphique
+     */
+    private String etatJeu = "";
+    /**
+     * Version de l'état décrite par {@code etatJeu}
+     */
+    private int versionEtatJeu;
+    /**
+     * Le même état au format binaire, envoyé aux clients BINAIRE, et sa version
+     */
+    private byte[] etatBinaire = new byte[0];
+    private int versionEtatBinaire;
+    /**
+     * Verrou qui protège {@code etatJeu}, {@code etatBinaire} et leurs versions
+     * (voir {@link FabriqueThreads} pour le choix du verrou)
+     */
+    private final ReentrantLock verrouEtat = new ReentrantLock();
+    /**
+     * Indique si la méthode run() du jeu est terminée
+     */
+    private volatile boolean terminee;
+    /**
+     * Boucle d'événements qui fait avancer la partie (null si la partie a son
+     * propre thread)
+     */
+    private volatile BoucleEvenements boucle;
+    /**
+     * Thread du jeu (null en mode événementiel ou si la partie n'est pas démarrée)
+     */
+    private volatile Thread thread;
+
+    public Partie(String id, Jeu jeu) {
+        this.id = id;
+        this.jeu = jeu;
+        jeu.setPartie(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Jeu getJeu() {
+        return jeu;
+    }
+
+    /**
+     * @return la description complète de l'état du jeu au format JSON (chaîne vide
+     * si le jeu n'a encore rien envoyé)
+     */
+    public String getEtatJeu() {
+        verrouEtat.lock();
+        try {
+            SuiviEtat suivi = jeu.getSuiviEtat();
+            int version = suivi.getVersion();
+            if (version != versionEtatJeu) {
+                etatJeu = suivi.etatJson();
+                versionEtatJeu = version;
+            }
+            return etatJeu;
+        } finally {
+            verrouEtat.unlock();
+        }
+    }
+
+    /**
+     * @return la description complète de l'état du jeu au format binaire (voir
+     * {@link fr.umontpellier.iut.rails.ProtocoleBinaire}), vide si le jeu n'a
+     * encore rien envoyé ou si l'état n'a pas été enregistré au format binaire
+     * (voir {@link SuiviEtat#etatBinaire()})
+     */
+    public byte[] getEtatBinaire() {
+        verrouEtat.lock();
+        try {
+            SuiviEtat suivi = jeu.getSuiviEtat();
+            int version = suivi.getVersion();
+            if (version != versionEtatBinaire) {
+                etatBinaire = suivi.etatBinaire();
+                versionEtatBinaire = version;
+            }
+            return etatBinaire;
+        } finally {
+            verrouEtat.unlock();
+        }
+    }
+
+    /**
+     * @return la trame textuelle à envoyer à un client JSON ou DELTA, selon son
+     * protocole
+     */
+    public String trame(Client client) {
+        if (client.getProtocole() == Client.Protocole.DELTA) {
+            return jeu.getSuiviEtat().trameJson(client.getVersionAcquittee());
+        }
+        return getEtatJeu();
+    }
+
+    public boolean estTerminee() {
+        return terminee;
+    }
+
+    public int getNbClients() {
+        return clients.taille();
+    }
+
+    /**
+     * Démarre le jeu dans un nouveau thread (thread système). Lorsque la partie est
+     * finie, elle est retirée du serveur dès que son dernier client se déconnecte.
+     */
+    public void demarrer() {
+        demarrer(false);
+    }
+
+    /**
+     * Démarre le jeu dans un nouveau thread
+     *
+     * @param threadVirtuel si true, le jeu tourne sur un thread virtuel (Java 21
+     *                      ou plus, voir {@link FabriqueThreads}) : une partie qui
+     *                      attend une instruction n'occupe alors aucun thread
+     *                      système
+     */
+    public void demarrer(boolean threadVirtuel) {
+        thread = FabriqueThreads.nouveauThread(() -> {
+            try {
+                jeu.run();
+            } finally {
+                jeu.fermerJournal();
+                terminee = true;
+                if (clients.estVide()) {
+                    GameServer.retirerPartie(this);
+                }
+            }
+        }, "partie-" + id, threadVirtuel);
+        thread.start();
+    }
+
+    /**
+     * Arrête le thread du jeu (la lecture de l'instruction suivante est
+     * interrompue et la méthode run() du jeu se termine)
+     */
+    public void arreter() {
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * @return le thread du jeu (null en mode événementiel)
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * Démarre le jeu en mode événementiel : la partie n'a pas de thread à elle et
+     * avance sur la boucle d'événements à chaque instruction reçue. L'état du
+     * jeu n'est pas écrit sur la console (toutes les boucles attendraient la
+     * sortie standard), il est seulement envoyé aux clients.
+     */
+    public void demarrer(BoucleEvenements boucle) {
+        this.boucle = boucle;
+        jeu.setAffichageConsole(false);
+        boucle.executer(id, () -> {
+            jeu.demarrer();
+            verifierFin();
+        });
+    }
+
+    private void verifierFin() {
+        if ((jeu.estTerminee() || jeu.estArretee()) && !terminee) {
+            terminee = true;
+            if (clients.estVide()) {
+                GameServer.retirerPartie(this);
+            }
+        }
+    }
+
+    /**
+     * Ajoute une nouvelle instruction à la file d'instructions du jeu (en mode
+     * événementiel, l'instruction est traitée sur la boucle de la partie)
+     *
+     * @param message l'instruction à ajouter
+     */
+    public void addInput(String message) {
+        BoucleEvenements b = boucle;
+        if (b == null) {
+            jeu.addInput(message);
+        } else {
+            b.executer(id, () -> {
+                jeu.traiterEntree(message);
+                verifierFin();
+            });
+        }
+    }
+
+    /**
+     * Envoie le nouvel état de la partie à tous les clients connectés (les trames
+     * sont placées dans la file d'envoi de chaque client, cette méthode ne bloque
+     * pas le thread du jeu).
+     * Les clients JSON reçoivent tous la même description complète, les clients
+     * DELTA reçoivent une trame différentielle calculée une seule fois par version
+     * acquittée, et les clients BINAIRE la description complète au format
+     * binaire.
+     */
+    public void diffuser() {
+        HashMap<Integer, String> tramesDelta = new HashMap<>();
+        for (Client client : clients.instantane()) {
+            if (client.getProtocole() == Client.Protocole.BINAIRE) {
+                envoyerEtatBinaire(client);
+            } else if (client.getProtocole() == Client.Protocole.DELTA) {
+                client.envoyer(tramesDelta.computeIfAbsent(client.getVersionAcquittee(),
+                        version -> jeu.getSuiviEtat().trameJson(version)));
+            } else {
+                client.envoyer(getEtatJeu());
+            }
+        }
+    }
+
+    /**
+     * Ajoute un nouveau client à la liste, et lui transmet l'état actuel de la partie
+     *
+     * @param client le nouveau client
+     * @return false si la partie a été fermée (le client n'est pas ajouté)
+     */
+    public boolean addClient(Client client) {
+        verrouClients.lock();
+        try {
+            if (fermee) {
+                return false;
+            }
+            clients.ajouter(client);
+        } finally {
+            verrouClients.unlock();
+        }
+        if (client.getProtocole() == Client.Protocole.BINAIRE) {
+            envoyerEtatBinaire(client);
+        } else {
+            client.envoyer(trame(client));
+        }
+        return true;
+    }
+
+    /**
+     * Ferme une partie inachevée qu'aucun client ne suit plus : elle n'accepte
+     * plus de clients, son thread est arrêté et son journal est fermé sans être
+     * archivé (la partie pourra être reprise à partir du journal)
+     *
+     * @return true si la partie a été fermée, false si un client la suit ou si
+     * elle est terminée
+     */
+    public boolean fermerSiSansClient() {
+        verrouClients.lock();
+        try {
+            if (fermee || terminee || !clients.estVide()) {
+                return false;
+            }
+            fermee = true;
+        } finally {
+            verrouClients.unlock();
+        }
+        BoucleEvenements b = boucle;
+        if (b != null) {
+            // les entrées déjà soumises sont traitées avant la fermeture du journal
+            b.executer(id, jeu::fermerJournal);
+        } else if (thread != null) {
+            // le thread ferme le journal en sortant de run()
+            arreter();
+        } else {
+            jeu.fermerJournal();
+        }
+        return true;
+    }
+
+    /**
+     * Envoie l'état binaire à un client BINAIRE (rien n'est envoyé si la version
+     * courante n'a pas de forme binaire : le client recevra la suivante)
+     */
+    private void envoyerEtatBinaire(Client client) {
+        byte[] etat = getEtatBinaire();
+        if (etat.length > 0) {
+            client.envoyer(etat);
+        }
+    }
+
+    /**
+     * Retire un client de la liste
+     *
+     * @param client le client à retirer
+     * @return true s'il ne reste plus aucun client connecté à la partie
+     */
+    public boolean removeClient(Client client) {
+        clients.retirer(client);
+        return clients.estVide();
+    }
+}
@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.gui;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ensemble des clients connectés à une partie, modifiable par les threads du
+ * serveur pendant que le thread du jeu diffuse l'état.
+ * <p>
+ * Le registre est un tableau immuable remplacé à chaque connexion ou
+ * déconnexion (copie puis compare-and-set, sans verrou). Une diffusion parcourt
+ * l'instantané obtenu par {@link #instantane()} : elle voit un ensemble de
+ * clients cohérent et n'est jamais bloquée ni interrompue par les connexions
+ * simultanées.
+ */
+public class RegistreClients {
+    private static final Client[] VIDE = new Client[0];
+
+    private final AtomicReference<Client[]> clients = new AtomicReference<>(VIDE);
+
+    /**
+     * Ajoute un client au registre (sans effet s'il y est déjà)
+     */
+    public void ajouter(Client client) {
+        Client[] actuels;
+        Client[] nouveaux;
+        do {
+            actuels = clients.get();
+            if (indexOf(actuels, client) >= 0) {
+                return;
+            }
+            nouveaux = Arrays.copyOf(actuels, actuels.length + 1);
+            nouveaux[actuels.length] = client;
+        } while (!clients.compareAndSet(actuels, nouveaux));
+    }
+
+    /**
+     * Retire un client du registre
+     *
+     * @return true si le client était dans le registre
+     */
+    public boolean retirer(Client client) {
+        Client[] actuels;
+        Client[] nouveaux;
+        do {
+            actuels = clients.get();
+            int index = indexOf(actuels, client);
+            if (index < 0) {
+                return false;
+            }
+            if (actuels.length == 1) {
+                nouveaux = VIDE;
+            } else {
+                nouveaux = new Client[actuels.length - 1];
+                System.arraycopy(actuels, 0, nouveaux, 0, index);
+                System.arraycopy(actuels, index + 1, nouveaux, index, actuels.length - index - 1);
+            }
+        } while (!clients.compareAndSet(actuels, nouveaux));
+        return true;
+    }
+
+    /**
+     * @return les clients connectés au moment de l'appel (le tableau renvoyé ne
+     * doit pas être modifié)
+     */
+    public Client[] instantane() {
+        return clients.get();
+    }
+
+    public int taille() {
+        return clients.get().length;
+    }
+
+    public boolean estVide() {
+        return clients.get().length == 0;
+    }
+
+    private static int indexOf(Client[] tableau, Client client) {
+        for (int i = 0; i < tableau.length; i++) {
+            if (tableau[i] == client) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
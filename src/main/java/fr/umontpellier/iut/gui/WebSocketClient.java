@@ -12,7 +12,12 @@ public class WebSocketClient {
 
     @OnMessage
     public void onMessage(String message, Session session) {
-        GameServer.addInput(message);
+        GameServer.addInput(session, message);
+    }
+
+    @OnMessage
+    public void onMessage(byte[] message, Session session) {
+        GameServer.addInput(session, message);
     }
 
     @OnClose
@@ -0,0 +1,110 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Actions qu'un joueur peut effectivement jouer au début de son tour.
+ * <p>
+ * Les routes libres et les villes sans gare sont tenues à jour par le plateau
+ * (voir {@link Plateau#getRoutesLibres()}) ; il ne reste qu'à filtrer les
+ * routes que le joueur peut payer avec sa main (test en temps constant grâce à
+ * {@link MainCartesWagon}). Seules les actions réellement jouables sont
+ * proposées au joueur : une route trop chère ou une gare impossible à
+ * construire ne peut plus être choisie.
+ * <p>
+ * Chaque joueur garde une instance qu'il recalcule à chaque tour (les
+ * ensembles et la liste d'options sont réutilisés).
+ */
+public class ActionsPossibles {
+    /**
+     * Option pour piocher une carte wagon face cachée
+     */
+    public static final String PIOCHE_WAGON = "GRIS";
+    /**
+     * Option pour piocher des cartes destination
+     */
+    public static final String DESTINATIONS = "destinations";
+
+    /**
+     * Routes que le joueur peut capturer (indices = identifiants des routes)
+     */
+    private final BitSet routes = new BitSet();
+    /**
+     * Villes sur lesquelles le joueur peut construire une gare
+     */
+    private final BitSet villes = new BitSet();
+    private boolean piocheWagon;
+    private boolean destinations;
+    /**
+     * Noms de toutes les actions possibles (à proposer au joueur)
+     */
+    private final List<String> options = new ArrayList<>();
+
+    /**
+     * Recalcule les actions possibles du joueur
+     */
+    public void calculer(Joueur joueur) {
+        Jeu jeu = joueur.getJeu();
+        Plateau plateau = jeu.getPlateau();
+        options.clear();
+
+        routes.clear();
+        BitSet routesLibres = plateau.getRoutesLibres();
+        List<Route> listeRoutes = plateau.getRoutes();
+        for (int r = routesLibres.nextSetBit(0); r >= 0; r = routesLibres.nextSetBit(r + 1)) {
+            Route route = listeRoutes.get(r);
+            if (joueur.peutCapturer(route)) {
+                routes.set(r);
+                options.add(route.getNom());
+            }
+        }
+
+        villes.clear();
+        if (joueur.peutConstruireGare()) {
+            villes.or(plateau.getVillesLibres());
+            List<Ville> listeVilles = plateau.getVilles();
+            for (int v = villes.nextSetBit(0); v >= 0; v = villes.nextSetBit(v + 1)) {
+                options.add(listeVilles.get(v).getNom());
+            }
+        }
+
+        piocheWagon = !jeu.getPileCartesWagon().isEmpty() || !jeu.getDefausseCartesWagon().isEmpty();
+        if (piocheWagon) {
+            options.add(PIOCHE_WAGON);
+        }
+        for (CouleurWagon wagon : jeu.getCartesWagonVisibles()) {
+            options.add(wagon.name());
+        }
+
+        destinations = !jeu.getPileDestinations().isEmpty();
+        if (destinations) {
+            options.add(DESTINATIONS);
+        }
+    }
+
+    /**
+     * @return les noms des actions possibles (route, ville, carte wagon visible,
+     * "GRIS" ou "destinations")
+     */
+    public List<String> getOptions() {
+        return options;
+    }
+
+    public boolean peutCapturer(Route route) {
+        return route != null && routes.get(route.getId());
+    }
+
+    public boolean peutConstruireGare(Ville ville) {
+        return ville != null && villes.get(ville.getId());
+    }
+
+    public boolean peutPiocherWagon() {
+        return piocheWagon;
+    }
+
+    public boolean peutPiocherDestinations() {
+        return destinations;
+    }
+}
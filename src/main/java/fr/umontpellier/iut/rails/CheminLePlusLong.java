@@ -0,0 +1,507 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Calcul du plus long chemin continu (bonus "European Express") formé par les
+ * routes d'un joueur.
+ * <p>
+ * Un chemin continu peut passer plusieurs fois par la même ville mais pas deux
+ * fois par la même route : on cherche donc la plus longue piste (au sens des
+ * longueurs des routes) dans le sous-graphe des routes du joueur. Chaque
+ * composante connexe est traitée séparément, et ses routes sont renumérotées
+ * pour que tout ensemble de routes tienne dans un {@code long}.
+ * <p>
+ * Les routes laissées inutilisées par un chemin ont un nombre impair
+ * d'extrémités en chaque ville impaire (ayant un nombre impair de routes), sauf
+ * aux deux extrémités du chemin. Leur longueur est donc au moins celle du
+ * meilleur couplage des villes impaires par plus courts chemins, ce qui donne un
+ * majorant de la longueur du chemin. Le plus souvent, les routes restantes une
+ * fois ce couplage retiré sont connexes : elles forment un chemin eulérien qui
+ * atteint le majorant et le calcul s'arrête là.
+ * <p>
+ * Sinon, on recherche le chemin en profondeur, avec élagage :
+ * <ul>
+ * <li>seules les routes restantes accessibles depuis la ville courante peuvent
+ * encore être utilisées ; si elles admettent un chemin eulérien partant de cette
+ * ville, elles le sont toutes et la branche est terminée ;</li>
+ * <li>la suite du chemin ne dépend que de la ville courante et des routes
+ * accessibles : un état déjà atteint avec un chemin au moins aussi long n'est
+ * pas réexploré, même à partir d'une autre ville de départ ;</li>
+ * <li>une branche est abandonnée si elle ne peut pas dépasser le meilleur chemin
+ * connu (le chemin laisse au moins une route inutilisée en chaque ville impaire
+ * autre que ses extrémités).</li>
+ * </ul>
+ * Une instance ne dépend que du graphe du plateau et peut être partagée entre
+ * threads.
+ */
+public class CheminLePlusLong {
+    /**
+     * Nombre maximum de routes dans une composante connexe (les ensembles de
+     * routes sont représentés par les bits d'un {@code long})
+     */
+    public static final int MAX_ROUTES_COMPOSANTE = 63;
+    /**
+     * Nombre maximum de villes impaires pour le calcul du couplage (au-delà, la
+     * programmation dynamique sur les sous-ensembles serait trop coûteuse)
+     */
+    private static final int MAX_IMPAIRES_COUPLAGE = 16;
+    private static final int INFINI = Integer.MAX_VALUE / 4;
+
+    private final GraphePlateau graphe;
+
+    public CheminLePlusLong(GraphePlateau graphe) {
+        this.graphe = graphe;
+    }
+
+    /**
+     * @param routes identifiants des routes d'un joueur
+     * @return la longueur du plus long chemin continu formé par ces routes
+     */
+    public int calculer(BitSet routes) {
+        int nbVilles = graphe.getNbVilles();
+        // composantes connexes des routes du joueur
+        ComposantesConnexes composantes = new ComposantesConnexes(nbVilles);
+        for (int r = routes.nextSetBit(0); r >= 0; r = routes.nextSetBit(r + 1)) {
+            composantes.reunir(graphe.ville1(r), graphe.ville2(r));
+        }
+        // regroupement des routes par composante (indices des racines)
+        int[] nbRoutesComposante = new int[nbVilles];
+        for (int r = routes.nextSetBit(0); r >= 0; r = routes.nextSetBit(r + 1)) {
+            nbRoutesComposante[composantes.trouver(graphe.ville1(r))]++;
+        }
+        int meilleur = 0;
+        for (int racine = 0; racine < nbVilles; racine++) {
+            int nb = nbRoutesComposante[racine];
+            if (nb == 0) {
+                continue;
+            }
+            int[] routesComposante = new int[nb];
+            int k = 0;
+            for (int r = routes.nextSetBit(0); r >= 0; r = routes.nextSetBit(r + 1)) {
+                if (composantes.trouver(graphe.ville1(r)) == racine) {
+                    routesComposante[k++] = r;
+                }
+            }
+            meilleur = Math.max(meilleur, new Recherche(routesComposante).resoudre());
+        }
+        return meilleur;
+    }
+
+    /**
+     * Calcule en parallèle le plus long chemin de plusieurs joueurs
+     *
+     * @param routesParJoueur routes de chaque joueur
+     * @return la longueur du plus long chemin de chaque joueur (dans le même ordre)
+     */
+    public int[] calculer(List<BitSet> routesParJoueur) {
+        return IntStream.range(0, routesParJoueur.size())
+                .parallel()
+                .map(i -> calculer(routesParJoueur.get(i)))
+                .toArray();
+    }
+
+    /**
+     * Recherche du plus long chemin dans une composante connexe. Les villes et
+     * les routes de la composante sont renumérotées à partir de 0.
+     */
+    private class Recherche {
+        private final int nbRoutes;
+        private final int nbVilles;
+        private final int[] longueurs;
+        private final int[] extremites1;
+        private final int[] extremites2;
+        /**
+         * Routes incidentes à chaque ville (numéros locaux)
+         */
+        private final int[][] incidentes;
+        /**
+         * Toutes les routes de la composante (bits 0 à nbRoutes - 1)
+         */
+        private final long toutes;
+        /**
+         * Longueur totale des routes de la composante
+         */
+        private final int total;
+        /**
+         * Plus courte route accessible depuis chaque ville (recalculé pour chaque
+         * état exploré)
+         */
+        private final int[] minimums;
+        /**
+         * Plus longs chemins avec lesquels chaque état (ville courante, routes
+         * accessibles) a été atteint
+         */
+        private TableLongueurs[] explores;
+        /**
+         * Majorant de la longueur du plus long chemin (la recherche s'arrête dès
+         * qu'un chemin l'atteint)
+         */
+        private int majorant;
+        private int meilleur;
+
+        Recherche(int[] routes) {
+            nbRoutes = routes.length;
+            if (nbRoutes > MAX_ROUTES_COMPOSANTE) {
+                throw new IllegalArgumentException("Trop de routes dans une composante : " + nbRoutes);
+            }
+            longueurs = new int[nbRoutes];
+            extremites1 = new int[nbRoutes];
+            extremites2 = new int[nbRoutes];
+            int[] villesLocales = new int[graphe.getNbVilles()];
+            Arrays.fill(villesLocales, -1);
+            int n = 0;
+            int somme = 0;
+            for (int e = 0; e < nbRoutes; e++) {
+                int r = routes[e];
+                longueurs[e] = graphe.longueur(r);
+                somme += longueurs[e];
+                int v1 = graphe.ville1(r);
+                int v2 = graphe.ville2(r);
+                if (villesLocales[v1] < 0) {
+                    villesLocales[v1] = n++;
+                }
+                if (villesLocales[v2] < 0) {
+                    villesLocales[v2] = n++;
+                }
+                extremites1[e] = villesLocales[v1];
+                extremites2[e] = villesLocales[v2];
+            }
+            nbVilles = n;
+            total = somme;
+            toutes = (1L << nbRoutes) - 1;
+
+            int[] degres = new int[nbVilles];
+            for (int e = 0; e < nbRoutes; e++) {
+                degres[extremites1[e]]++;
+                degres[extremites2[e]]++;
+            }
+            incidentes = new int[nbVilles][];
+            for (int v = 0; v < nbVilles; v++) {
+                incidentes[v] = new int[degres[v]];
+                degres[v] = 0;
+            }
+            for (int e = 0; e < nbRoutes; e++) {
+                incidentes[extremites1[e]][degres[extremites1[e]]++] = e;
+                incidentes[extremites2[e]][degres[extremites2[e]]++] = e;
+            }
+            minimums = new int[nbVilles];
+        }
+
+        int resoudre() {
+            // villes de degré impair (bit v à 1)
+            long impaires = 0;
+            for (int v = 0; v < nbVilles; v++) {
+                if (incidentes[v].length % 2 == 1) {
+                    impaires |= 1L << v;
+                }
+            }
+            majorant = total;
+            int nbImpaires = Long.bitCount(impaires);
+            if (nbImpaires <= 2) {
+                // chemin eulérien
+                return total;
+            }
+            if (nbImpaires <= MAX_IMPAIRES_COUPLAGE && couplerVillesImpaires(impaires)) {
+                return majorant;
+            }
+
+            explores = new TableLongueurs[nbVilles];
+            for (int v = 0; v < nbVilles; v++) {
+                explores[v] = new TableLongueurs();
+            }
+            // les plus longs chemins partent souvent des villes impaires : on commence
+            // par elles pour trouver vite un bon chemin (et élaguer davantage ensuite)
+            for (int v = 0; v < nbVilles && meilleur < majorant; v++) {
+                if ((impaires & (1L << v)) != 0) {
+                    explorer(v, 0L, 0, impaires);
+                }
+            }
+            for (int v = 0; v < nbVilles && meilleur < majorant; v++) {
+                if ((impaires & (1L << v)) == 0) {
+                    explorer(v, 0L, 0, impaires);
+                }
+            }
+            return meilleur;
+        }
+
+        /**
+         * Calcule le meilleur couplage des villes impaires (privées des deux
+         * extrémités du chemin) par plus courts chemins, par programmation
+         * dynamique sur les sous-ensembles de villes impaires, et met à jour le
+         * majorant.
+         *
+         * @return true si le retrait des routes d'un couplage optimal laisse un
+         * réseau connexe (le majorant est alors la longueur cherchée)
+         */
+        private boolean couplerVillesImpaires(long impaires) {
+            // plus courtes distances entre toutes les villes (Floyd-Warshall)
+            int[][] distances = new int[nbVilles][nbVilles];
+            for (int[] ligne : distances) {
+                Arrays.fill(ligne, INFINI);
+            }
+            for (int v = 0; v < nbVilles; v++) {
+                distances[v][v] = 0;
+            }
+            for (int e = 0; e < nbRoutes; e++) {
+                int a = extremites1[e];
+                int b = extremites2[e];
+                distances[a][b] = Math.min(distances[a][b], longueurs[e]);
+                distances[b][a] = distances[a][b];
+            }
+            for (int m = 0; m < nbVilles; m++) {
+                for (int a = 0; a < nbVilles; a++) {
+                    for (int b = 0; b < nbVilles; b++) {
+                        if (distances[a][m] + distances[m][b] < distances[a][b]) {
+                            distances[a][b] = distances[a][m] + distances[m][b];
+                        }
+                    }
+                }
+            }
+            int k = Long.bitCount(impaires);
+            int[] villesImpaires = new int[k];
+            int i = 0;
+            for (long m = impaires; m != 0; m &= m - 1) {
+                villesImpaires[i++] = Long.numberOfTrailingZeros(m);
+            }
+            // couplages[s] : coût minimum d'un couplage parfait du sous-ensemble s
+            int[] couplages = new int[1 << k];
+            for (int s = 1; s < couplages.length; s++) {
+                if (Integer.bitCount(s) % 2 == 1) {
+                    continue;
+                }
+                int a = Integer.numberOfTrailingZeros(s);
+                int meilleurCout = INFINI;
+                for (int reste = s & (s - 1); reste != 0; reste &= reste - 1) {
+                    int b = Integer.numberOfTrailingZeros(reste);
+                    int cout = distances[villesImpaires[a]][villesImpaires[b]] + couplages[s ^ (1 << a) ^ (1 << b)];
+                    meilleurCout = Math.min(meilleurCout, cout);
+                }
+                couplages[s] = meilleurCout;
+            }
+            // les deux extrémités du chemin sont dispensées
+            int tous = couplages.length - 1;
+            int minimum = INFINI;
+            for (int a = 0; a < k; a++) {
+                for (int b = a + 1; b < k; b++) {
+                    minimum = Math.min(minimum, couplages[tous ^ (1 << a) ^ (1 << b)]);
+                }
+            }
+            majorant = total - minimum;
+
+            for (int a = 0; a < k; a++) {
+                for (int b = a + 1; b < k; b++) {
+                    int s = tous ^ (1 << a) ^ (1 << b);
+                    if (couplages[s] == minimum) {
+                        long restantes = toutes & ~routesCouplage(s, couplages, distances, villesImpaires);
+                        int v = extremites1[Long.numberOfTrailingZeros(restantes)];
+                        if (composante(v, restantes) == restantes) {
+                            meilleur = majorant;
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return les routes des plus courts chemins d'un couplage optimal du
+         * sous-ensemble s de villes impaires (les routes communes à deux chemins
+         * s'annulent)
+         */
+        private long routesCouplage(int s, int[] couplages, int[][] distances, int[] villesImpaires) {
+            long routes = 0;
+            while (s != 0) {
+                int a = Integer.numberOfTrailingZeros(s);
+                for (int reste = s & (s - 1); reste != 0; reste &= reste - 1) {
+                    int b = Integer.numberOfTrailingZeros(reste);
+                    int suivant = s ^ (1 << a) ^ (1 << b);
+                    if (distances[villesImpaires[a]][villesImpaires[b]] + couplages[suivant] == couplages[s]) {
+                        routes ^= plusCourtChemin(villesImpaires[a], villesImpaires[b], distances);
+                        s = suivant;
+                        break;
+                    }
+                }
+            }
+            return routes;
+        }
+
+        private long plusCourtChemin(int depart, int arrivee, int[][] distances) {
+            long routes = 0;
+            int v = depart;
+            while (v != arrivee) {
+                for (int e : incidentes[v]) {
+                    int w = extremites1[e] == v ? extremites2[e] : extremites1[e];
+                    if (longueurs[e] + distances[w][arrivee] == distances[v][arrivee]) {
+                        routes |= 1L << e;
+                        v = w;
+                        break;
+                    }
+                }
+            }
+            return routes;
+        }
+
+        /**
+         * @return les routes parmi {@code libres} accessibles depuis la ville v
+         */
+        private long composante(int v, long libres) {
+            long atteintes = 1L << v;
+            long accessibles = 0;
+            boolean change = true;
+            while (change) {
+                change = false;
+                for (long m = libres & ~accessibles; m != 0; m &= m - 1) {
+                    int e = Long.numberOfTrailingZeros(m);
+                    long extremites = (1L << extremites1[e]) | (1L << extremites2[e]);
+                    if ((atteintes & extremites) != 0) {
+                        atteintes |= extremites;
+                        accessibles |= 1L << e;
+                        change = true;
+                    }
+                }
+            }
+            return accessibles;
+        }
+
+        /**
+         * @param v         ville courante
+         * @param utilisees routes déjà utilisées
+         * @param longueur  longueur du chemin parcouru
+         * @param impaires  villes ayant un nombre impair de routes non utilisées
+         */
+        private void explorer(int v, long utilisees, int longueur, long impaires) {
+            if (longueur > meilleur) {
+                meilleur = longueur;
+            }
+            if (meilleur >= majorant) {
+                return;
+            }
+            long accessibles = composante(v, toutes & ~utilisees);
+            if (accessibles == 0) {
+                return;
+            }
+            long atteintes = 0;
+            int restant = 0;
+            for (long m = accessibles; m != 0; m &= m - 1) {
+                int e = Long.numberOfTrailingZeros(m);
+                atteintes |= (1L << extremites1[e]) | (1L << extremites2[e]);
+                restant += longueurs[e];
+            }
+            long villesImpaires = impaires & atteintes;
+            int nbImpaires = Long.bitCount(villesImpaires);
+            boolean vImpaire = (impaires & (1L << v)) != 0;
+            if (nbImpaires == 0 || nbImpaires == 2 && vImpaire) {
+                // il existe un chemin eulérien partant de v : toutes les routes accessibles sont utilisées
+                meilleur = Math.max(meilleur, longueur + restant);
+                return;
+            }
+            // sinon, le chemin laisse au moins une route inutilisée en chaque ville impaire
+            // (en dehors de ses extrémités), et une route compte pour au plus deux villes
+            for (long m = atteintes; m != 0; m &= m - 1) {
+                minimums[Long.numberOfTrailingZeros(m)] = INFINI;
+            }
+            for (long m = accessibles; m != 0; m &= m - 1) {
+                int e = Long.numberOfTrailingZeros(m);
+                minimums[extremites1[e]] = Math.min(minimums[extremites1[e]], longueurs[e]);
+                minimums[extremites2[e]] = Math.min(minimums[extremites2[e]], longueurs[e]);
+            }
+            int somme = 0;
+            int plusGrand = 0;
+            for (long m = villesImpaires & ~(1L << v); m != 0; m &= m - 1) {
+                int minimum = minimums[Long.numberOfTrailingZeros(m)];
+                somme += minimum;
+                plusGrand = Math.max(plusGrand, minimum);
+            }
+            int inutilise;
+            if (vImpaire) {
+                // v est une extrémité, la ville d'arrivée est l'une des autres villes impaires
+                inutilise = (somme - plusGrand + 1) / 2;
+            } else {
+                // soit le chemin revient en v, soit v devient impaire pour les routes inutilisées
+                inutilise = Math.min(somme + 1, somme + minimums[v] - plusGrand + 1) / 2;
+            }
+            if (longueur + restant - inutilise <= meilleur) {
+                return;
+            }
+            if (!explores[v].augmenter(accessibles, longueur)) {
+                return;
+            }
+            for (int e : incidentes[v]) {
+                long bit = 1L << e;
+                if ((accessibles & bit) != 0) {
+                    int w = extremites1[e] == v ? extremites2[e] : extremites1[e];
+                    long parites = impaires ^ (1L << v) ^ (1L << w);
+                    explorer(w, utilisees | bit, longueur + longueurs[e], parites);
+                }
+            }
+        }
+    }
+
+    /**
+     * Table associant une longueur à des ensembles de routes (adressage ouvert,
+     * sans objets intermédiaires)
+     */
+    private static class TableLongueurs {
+        private static final long VIDE = -1L;
+        private long[] cles = nouvellesCles(16);
+        private int[] valeurs = new int[16];
+        private int taille;
+
+        private static long[] nouvellesCles(int capacite) {
+            long[] tableau = new long[capacite];
+            Arrays.fill(tableau, VIDE);
+            return tableau;
+        }
+
+        /**
+         * Associe la longueur à la clé si elle est plus grande que la longueur
+         * déjà associée (ou si la clé est absente)
+         *
+         * @return true si la table a été modifiée
+         */
+        boolean augmenter(long cle, int longueur) {
+            if (2 * (taille + 1) > cles.length) {
+                long[] anciennesCles = cles;
+                int[] anciennesValeurs = valeurs;
+                cles = nouvellesCles(2 * anciennesCles.length);
+                valeurs = new int[2 * anciennesCles.length];
+                for (int i = 0; i < anciennesCles.length; i++) {
+                    if (anciennesCles[i] != VIDE) {
+                        int j = indice(anciennesCles[i]);
+                        cles[j] = anciennesCles[i];
+                        valeurs[j] = anciennesValeurs[i];
+                    }
+                }
+            }
+            int i = indice(cle);
+            if (cles[i] == VIDE) {
+                cles[i] = cle;
+                valeurs[i] = longueur;
+                taille++;
+                return true;
+            }
+            if (valeurs[i] >= longueur) {
+                return false;
+            }
+            valeurs[i] = longueur;
+            return true;
+        }
+
+        /**
+         * @return l'emplacement de la clé, ou l'emplacement libre où l'insérer
+         */
+        private int indice(long cle) {
+            int masque = cles.length - 1;
+            int i = (int) (cle * 0x9E3779B97F4A7C15L >>> 40) & masque;
+            while (cles[i] != VIDE && cles[i] != cle) {
+                i = (i + 1) & masque;
+            }
+            return i;
+        }
+    }
+}
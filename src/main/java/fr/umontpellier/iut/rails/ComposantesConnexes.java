@@ -0,0 +1,66 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Composantes connexes d'un ensemble de villes (identifiées par leur
+ * {@code getId()}), maintenues de façon incrémentale par union-find.
+ * <p>
+ * Chaque joueur possède une instance mise à jour à chaque route capturée : on
+ * sait alors si deux villes sont reliées par ses routes sans parcourir le
+ * graphe (union par taille et compression de chemins, coût quasi constant).
+ */
+public class ComposantesConnexes {
+    /**
+     * Parent de chaque ville dans la forêt (une racine est son propre parent)
+     */
+    private final int[] parents;
+    /**
+     * Nombre de villes de la composante (n'a de sens que pour les racines)
+     */
+    private final int[] tailles;
+
+    public ComposantesConnexes(int nbVilles) {
+        parents = new int[nbVilles];
+        tailles = new int[nbVilles];
+        for (int i = 0; i < nbVilles; i++) {
+            parents[i] = i;
+            tailles[i] = 1;
+        }
+    }
+
+    /**
+     * @return le représentant de la composante qui contient la ville
+     */
+    public int trouver(int ville) {
+        while (parents[ville] != ville) {
+            // compression par moitié : chaque nœud parcouru pointe vers son grand-parent
+            parents[ville] = parents[parents[ville]];
+            ville = parents[ville];
+        }
+        return ville;
+    }
+
+    /**
+     * Réunit les composantes des deux villes
+     *
+     * @return true si les villes n'étaient pas encore reliées
+     */
+    public boolean reunir(int ville1, int ville2) {
+        int r1 = trouver(ville1);
+        int r2 = trouver(ville2);
+        if (r1 == r2) {
+            return false;
+        }
+        if (tailles[r1] < tailles[r2]) {
+            int r = r1;
+            r1 = r2;
+            r2 = r;
+        }
+        parents[r2] = r1;
+        tailles[r1] += tailles[r2];
+        return true;
+    }
+
+    public boolean sontReliees(int ville1, int ville2) {
+        return trouver(ville1) == trouver(ville2);
+    }
+}
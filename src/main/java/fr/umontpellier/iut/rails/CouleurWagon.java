@@ -5,7 +5,7 @@ import java.util.*;
 /**
  * Représentation des couleurs du jeu utilisées pour les cartes wagon et les joueurs
  */
-public enum CouleurWagon {
+public enum CouleurWagon implements ElementLog {
     NOIR, BLANC, JAUNE, ROUGE, ORANGE, BLEU, VERT, ROSE, GRIS, LOCOMOTIVE;
 
     @Override
@@ -24,8 +24,35 @@ public enum CouleurWagon {
         };
     }
 
+    /**
+     * Couleurs indexées par nom (pour lire les réponses des joueurs)
+     */
+    private static final Map<String, CouleurWagon> PAR_NOM = new HashMap<>();
+
+    /**
+     * Fragments HTML du log, indexés par ordinal (voir {@link #toLog()})
+     */
+    private static final String[] LOGS = new String[values().length];
+
+    static {
+        for (CouleurWagon c : values()) {
+            PAR_NOM.put(c.name(), c);
+            LOGS[c.ordinal()] = "<img class=\"couleur\" src=\"images/symbole-" + c.name() + ".png\"><span class=\"couleur "
+                    + c.name().toLowerCase() + "\">" + c + "</span>";
+        }
+    }
+
+    /**
+     * @return la couleur dont le nom est passé en argument (ou null si aucune
+     * couleur ne correspond)
+     */
+    public static CouleurWagon depuisNom(String nom) {
+        return PAR_NOM.get(nom);
+    }
+
+    @Override
     public String toLog() {
-        return String.format("<img class=\"couleur\" src=\"images/symbole-%s.png\"><span class=\"couleur %s\">%s</span>", name(), name().toLowerCase(), this);
+        return LOGS[ordinal()];
     }
 
     /**
@@ -81,6 +108,7 @@ public enum CouleurWagon {
         return wagonString;
     }
     public int compteNbCouleur(List<CouleurWagon> liste){
+        if (liste instanceof MainCartesWagon) return ((MainCartesWagon) liste).nb(this);
         int nb=0;
         for(CouleurWagon c : liste){
             if(c.equals(this)) nb++;
@@ -2,6 +2,7 @@ package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class Destination {
     /**
@@ -16,11 +17,37 @@ public class Destination {
      * Nombre de points que vaut la destination
      */
     private int valeur;
+    /**
+     * Nom de la destination (calculé une seule fois, il sert à identifier les
+     * choix des joueurs)
+     */
+    private final String nom;
+    /**
+     * Ordre des clés de {@link #asPOJO(boolean)}
+     */
+    private static final String[] CLES_JSON = EcrivainJson.ordreHashMap("ville1", "ville2", "valeur", "realisee");
+    /**
+     * Toutes les destinations du jeu (courtes puis longues) : une destination
+     * est identifiée par son indice dans cette liste dans les formats binaires
+     * ({@link Instantane}, {@link ProtocoleBinaire}). Les destinations ne sont
+     * pas modifiables, les parties restaurées partagent ces instances.
+     */
+    private static final List<Destination> CATALOGUE = new ArrayList<>();
+    private static final HashMap<String, Integer> INDICES_CATALOGUE = new HashMap<>();
+
+    static {
+        CATALOGUE.addAll(makeDestinationsEurope());
+        CATALOGUE.addAll(makeDestinationsLonguesEurope());
+        for (int i = 0; i < CATALOGUE.size(); i++) {
+            INDICES_CATALOGUE.put(CATALOGUE.get(i).getNom(), i);
+        }
+    }
 
     public Destination(String ville1, String ville2, int valeur) {
         this.ville1 = ville1;
         this.ville2 = ville2;
         this.valeur = valeur;
+        nom = String.format("%s - %s (%d)", ville1, ville2, valeur);
     }
 
     @Override
@@ -29,7 +56,34 @@ public class Destination {
     }
 
     public String getNom() {
-        return String.format("%s - %s (%d)", ville1, ville2, valeur);
+        return nom;
+    }
+
+    public String getVille1() {
+        return ville1;
+    }
+
+    public String getVille2() {
+        return ville2;
+    }
+
+    public int getValeur() {
+        return valeur;
+    }
+
+    /**
+     * @return l'indice d'une destination dans le catalogue du jeu (-1 si aucune
+     * destination n'a ce nom)
+     */
+    static int indice(String nom) {
+        return INDICES_CATALOGUE.getOrDefault(nom, -1);
+    }
+
+    /**
+     * @return la destination d'indice donné dans le catalogue du jeu
+     */
+    static Destination getDestination(int indice) {
+        return CATALOGUE.get(indice);
     }
 
     public Object asPOJO() {
@@ -40,6 +94,36 @@ public class Destination {
         return data;
     }
 
+    /**
+     * @param realisee indique si le joueur qui possède la destination l'a réalisée
+     */
+    public Object asPOJO(boolean realisee) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("ville1", ville1);
+        data.put("ville2", ville2);
+        data.put("valeur", valeur);
+        data.put("realisee", realisee);
+        return data;
+    }
+
+    /**
+     * Écrit la représentation JSON de la destination (la même que celle de
+     * {@link #asPOJO(boolean)})
+     */
+    public void ecrireJson(EcrivainJson json, boolean realisee) {
+        json.debutObjet();
+        for (String cle : CLES_JSON) {
+            json.nom(cle);
+            switch (cle) {
+                case "ville1" -> json.valeur(ville1);
+                case "ville2" -> json.valeur(ville2);
+                case "valeur" -> json.valeur(valeur);
+                default -> json.valeur(realisee);
+            }
+        }
+        json.finObjet();
+    }
+
     /**
      * @return une liste contenant toutes les destinations "normales" du jeu
      */
@@ -55,7 +139,7 @@ public class Destination {
         destinations.add(new Destination("Zurich", "Budapest", 6));
         destinations.add(new Destination("Warszawa", "Smolensk", 6));
         destinations.add(new Destination("Zagrab", "Brindisi", 6));
-        destinations.add(new Destination("Paris", "Zagreb", 7));
+        destinations.add(new Destination("Paris", "Zagrab", 7));
         destinations.add(new Destination("Brest", "Marseille", 7));
         destinations.add(new Destination("London", "Berlin", 7));
         destinations.add(new Destination("Edinburgh", "Paris", 7));
@@ -73,12 +157,12 @@ public class Destination {
         destinations.add(new Destination("Kyiv", "Sochi", 8));
         destinations.add(new Destination("Madrid", "Zurich", 8));
         destinations.add(new Destination("Berlin", "Bucuresti", 8));
-        destinations.add(new Destination("Bruxelles", "Danzic", 9));
+        destinations.add(new Destination("Bruxelles", "Danzig", 9));
         destinations.add(new Destination("Berlin", "Roma", 9));
         destinations.add(new Destination("Angora", "Kharkov", 10));
         destinations.add(new Destination("Riga", "Bucuresti", 10));
         destinations.add(new Destination("Essen", "Kyiv", 10));
-        destinations.add(new Destination("Venizia", "Constantinople", 10));
+        destinations.add(new Destination("Venezia", "Constantinople", 10));
         destinations.add(new Destination("London", "Wien", 10));
         destinations.add(new Destination("Athina", "Wilno", 11));
         destinations.add(new Destination("Stockholm", "Wien", 11));
@@ -93,7 +177,7 @@ public class Destination {
      */
     public static ArrayList<Destination> makeDestinationsLonguesEurope() {
         ArrayList<Destination> destinations = new ArrayList<>();
-        destinations.add(new Destination("Lisboa", "Danzic", 20));
+        destinations.add(new Destination("Lisboa", "Danzig", 20));
         destinations.add(new Destination("Brest", "Petrograd", 20));
         destinations.add(new Destination("Palermo", "Moskva", 20));
         destinations.add(new Destination("Kobenhavn", "Erzurum", 21));
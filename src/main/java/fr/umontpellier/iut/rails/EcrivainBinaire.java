@@ -0,0 +1,111 @@
+package fr.umontpellier.iut.rails;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Écriture de données binaires compactes dans un tampon réutilisable qui
+ * grandit au besoin (voir {@link Instantane} et {@link ProtocoleBinaire}).
+ * <p>
+ * Les entiers positifs sont écrits sur un nombre variable d'octets (7 bits par
+ * octet), les entiers signés en zigzag pour que les petites valeurs négatives
+ * restent courtes, et les textes en UTF-8 précédés de leur longueur. Les
+ * données sont relues par un {@link LecteurBinaire}.
+ * <p>
+ * Un écrivain n'est pas protégé contre les accès simultanés.
+ */
+public final class EcrivainBinaire {
+    private byte[] octets;
+    private int taille;
+
+    public EcrivainBinaire() {
+        this(512);
+    }
+
+    public EcrivainBinaire(int capacite) {
+        octets = new byte[capacite];
+    }
+
+    /**
+     * Vide le tampon pour écrire de nouvelles données
+     */
+    public EcrivainBinaire vider() {
+        taille = 0;
+        return this;
+    }
+
+    public EcrivainBinaire octet(int octet) {
+        if (taille == octets.length) {
+            octets = Arrays.copyOf(octets, 2 * taille);
+        }
+        octets[taille++] = (byte) octet;
+        return this;
+    }
+
+    /**
+     * Entier positif, 7 bits par octet (le bit de poids fort indique qu'un
+     * autre octet suit)
+     */
+    public EcrivainBinaire entier(int n) {
+        while ((n & ~0x7F) != 0) {
+            octet((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        return octet(n);
+    }
+
+    /**
+     * Entier signé (les petites valeurs négatives restent courtes)
+     */
+    public EcrivainBinaire signe(int n) {
+        return entier((n << 1) ^ (n >> 31));
+    }
+
+    public EcrivainBinaire booleen(boolean b) {
+        return octet(b ? 1 : 0);
+    }
+
+    public EcrivainBinaire long64(long n) {
+        for (int i = 56; i >= 0; i -= 8) {
+            octet((int) (n >>> i));
+        }
+        return this;
+    }
+
+    public EcrivainBinaire texte(String texte) {
+        byte[] utf8 = texte.getBytes(StandardCharsets.UTF_8);
+        entier(utf8.length);
+        return brut(utf8);
+    }
+
+    /**
+     * Écrit des données déjà encodées (fragment produit par un autre écrivain)
+     */
+    public EcrivainBinaire brut(byte[] fragment) {
+        if (taille + fragment.length > octets.length) {
+            octets = Arrays.copyOf(octets, Math.max(2 * octets.length, taille + fragment.length));
+        }
+        System.arraycopy(fragment, 0, octets, taille, fragment.length);
+        taille += fragment.length;
+        return this;
+    }
+
+    public int longueur() {
+        return taille;
+    }
+
+    /**
+     * @return true si les données écrites sont exactement {@code fragment}
+     */
+    public boolean contenuEgal(byte[] fragment) {
+        return fragment != null && Arrays.equals(octets, 0, taille, fragment, 0, fragment.length);
+    }
+
+    /**
+     * @return une copie des données écrites depuis le dernier appel à
+     * {@link #vider()}
+     */
+    public byte[] octets() {
+        return Arrays.copyOf(octets, taille);
+    }
+}
@@ -0,0 +1,232 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Écriture de JSON au fil de l'eau dans un tampon réutilisable, sans passer
+ * par des objets intermédiaires (voir {@link SuiviEtat}).
+ * <p>
+ * Le texte produit est identique à celui de {@code new Gson().toJson(...)} sur
+ * les représentations {@code asPOJO} des éléments du jeu : pas d'espaces, et
+ * mêmes échappements que Gson (guillemets, barres obliques inverses,
+ * caractères de contrôle, séparateurs de ligne Unicode et caractères HTML
+ * {@code < > & = '}). Les clés sont écrites dans l'ordre où Gson parcourt les
+ * tables des POJO (voir {@link #ordreHashMap(String...)}).
+ * <p>
+ * Un écrivain n'est pas protégé contre les accès simultanés.
+ */
+public final class EcrivainJson {
+    private static final char[] HEXA = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder tampon = new StringBuilder(1024);
+    /**
+     * Pour chaque niveau d'imbrication, indique si aucun élément n'a encore
+     * été écrit (pas de virgule avant le prochain)
+     */
+    private boolean[] premier = new boolean[16];
+    private int profondeur;
+    /**
+     * Indique qu'une clé vient d'être écrite (la valeur suit sans virgule)
+     */
+    private boolean apresNom;
+
+    /**
+     * Vide le tampon pour écrire un nouveau document
+     */
+    public EcrivainJson vider() {
+        tampon.setLength(0);
+        profondeur = 0;
+        apresNom = false;
+        return this;
+    }
+
+    public EcrivainJson debutObjet() {
+        ouvrir('{');
+        return this;
+    }
+
+    public EcrivainJson finObjet() {
+        profondeur--;
+        tampon.append('}');
+        return this;
+    }
+
+    public EcrivainJson debutTableau() {
+        ouvrir('[');
+        return this;
+    }
+
+    public EcrivainJson finTableau() {
+        profondeur--;
+        tampon.append(']');
+        return this;
+    }
+
+    /**
+     * Écrit une clé de l'objet en cours (suivie de sa valeur)
+     */
+    public EcrivainJson nom(String nom) {
+        separer();
+        echapper(tampon, nom);
+        tampon.append(':');
+        apresNom = true;
+        return this;
+    }
+
+    public EcrivainJson valeur(String valeur) {
+        separer();
+        if (valeur == null) {
+            tampon.append("null");
+        } else {
+            echapper(tampon, valeur);
+        }
+        return this;
+    }
+
+    public EcrivainJson valeur(long valeur) {
+        separer();
+        tampon.append(valeur);
+        return this;
+    }
+
+    public EcrivainJson valeur(boolean valeur) {
+        separer();
+        tampon.append(valeur);
+        return this;
+    }
+
+    /**
+     * Écrit une valeur déjà au format JSON (fragment produit par un autre
+     * écrivain)
+     */
+    public EcrivainJson brut(CharSequence json) {
+        separer();
+        tampon.append(json);
+        return this;
+    }
+
+    public int longueur() {
+        return tampon.length();
+    }
+
+    /**
+     * @return true si le texte écrit est exactement {@code json} (sans créer
+     * de chaîne)
+     */
+    public boolean contenuEgal(String json) {
+        return json != null && json.length() == tampon.length() && json.contentEquals(tampon);
+    }
+
+    /**
+     * @return le texte écrit depuis le dernier appel à {@link #vider()}
+     */
+    @Override
+    public String toString() {
+        return tampon.toString();
+    }
+
+    private void ouvrir(char debut) {
+        separer();
+        tampon.append(debut);
+        if (++profondeur == premier.length) {
+            premier = Arrays.copyOf(premier, 2 * profondeur);
+        }
+        premier[profondeur] = true;
+    }
+
+    /**
+     * Écrit la virgule qui sépare un élément du précédent au même niveau
+     */
+    private void separer() {
+        if (apresNom) {
+            apresNom = false;
+            return;
+        }
+        if (profondeur > 0) {
+            if (!premier[profondeur]) {
+                tampon.append(',');
+            }
+            premier[profondeur] = false;
+        }
+    }
+
+    /**
+     * Ajoute une chaîne JSON (entre guillemets, avec les échappements de Gson)
+     */
+    public static void echapper(StringBuilder sortie, String texte) {
+        sortie.append('"');
+        int debut = 0;
+        int longueur = texte.length();
+        for (int i = 0; i < longueur; i++) {
+            char c = texte.charAt(i);
+            String remplacement;
+            if (c == '"') {
+                remplacement = "\\\"";
+            } else if (c == '\\') {
+                remplacement = "\\\\";
+            } else if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '=' || c == '\''
+                    || c == '\u2028' || c == '\u2029') {
+                // null : échappement Unicode (4 chiffres hexadécimaux)
+                remplacement = switch (c) {
+                    case '\t' -> "\\t";
+                    case '\b' -> "\\b";
+                    case '\n' -> "\\n";
+                    case '\r' -> "\\r";
+                    case '\f' -> "\\f";
+                    default -> null;
+                };
+            } else {
+                continue;
+            }
+            sortie.append(texte, debut, i);
+            if (remplacement != null) {
+                sortie.append(remplacement);
+            } else {
+                sortie.append("\\u").append(HEXA[c >> 12 & 0xF]).append(HEXA[c >> 8 & 0xF])
+                        .append(HEXA[c >> 4 & 0xF]).append(HEXA[c & 0xF]);
+            }
+            debut = i + 1;
+        }
+        sortie.append(texte, debut, longueur).append('"');
+    }
+
+    /**
+     * @return une chaîne JSON (entre guillemets, avec les échappements de Gson)
+     */
+    public static String echapper(String texte) {
+        StringBuilder sortie = new StringBuilder(texte.length() + 16);
+        echapper(sortie, texte);
+        return sortie.toString();
+    }
+
+    /**
+     * Ordre dans lequel une {@link HashMap} (celles des méthodes
+     * {@code asPOJO}) parcourt ses clés lorsqu'elles sont ajoutées dans l'ordre
+     * donné. Si certaines clés sont absentes, les autres restent dans le même
+     * ordre.
+     */
+    public static String[] ordreHashMap(String... cles) {
+        HashMap<String, Object> modele = new HashMap<>();
+        for (String cle : cles) {
+            modele.put(cle, Boolean.TRUE);
+        }
+        return modele.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Ordre dans lequel une table créée par {@link Map#ofEntries} avec les clés
+     * données (dans cet ordre) parcourt ses clés. Cet ordre change d'une
+     * exécution de la JVM à l'autre, mais il est le même pour toutes les tables
+     * de mêmes clés pendant une exécution.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static String[] ordreMapImmuable(String... cles) {
+        Map.Entry<String, Object>[] entrees = new Map.Entry[cles.length];
+        for (int i = 0; i < cles.length; i++) {
+            entrees[i] = Map.entry(cles[i], Boolean.TRUE);
+        }
+        return Map.ofEntries(entrees).keySet().toArray(new String[0]);
+    }
+}
@@ -0,0 +1,13 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Élément du jeu qui peut apparaître dans une ligne du log (voir
+ * {@link EntreeLog})
+ */
+public interface ElementLog {
+    /**
+     * @return le fragment HTML qui représente l'élément dans le log (calculé une
+     * seule fois)
+     */
+    String toLog();
+}
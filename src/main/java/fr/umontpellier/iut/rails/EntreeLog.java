@@ -0,0 +1,83 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Ligne du log décrite par un événement et l'élément du jeu qu'il concerne,
+ * mise en forme seulement lorsqu'elle est lue (voir {@link Historique}).
+ * <p>
+ * Le jeu enregistre ainsi ses messages sans construire de texte : une partie
+ * dont le log n'est jamais lu (simulation sans affichage, reprise d'un
+ * {@link Journal}) ne met aucune ligne en forme. Le texte obtenu est le
+ * fragment HTML de l'élément (voir {@link ElementLog#toLog()}) entouré du texte
+ * de l'événement.
+ */
+public final class EntreeLog {
+    /**
+     * Événements du jeu enregistrés dans le log
+     */
+    public enum Evenement {
+        DEBUT_TOUR("========== ", " =========="),
+        ROUTE_CHOISIE("Route choisie : ", ""),
+        CARTE_PIOCHEE("Vous avez pioché ", ""),
+        CARTE_POSEE("Vous avez posé ", ""),
+        CARTE_DEFAUSSEE_GARE("vous avez posé ", ""),
+        CARTE_INVALIDE("", " n'est pas valide"),
+        CONSTRUCTION_ABANDONNEE("Vous abandonnez la construction de ", ""),
+        CARTE_TUNNEL("", ""),
+        TUNNEL_IMPOSSIBLE("Vous ne pouvez pas construire ", ""),
+        ROUTE_CAPTUREE("Vous êtes propiétaire de ", ""),
+        GARE_CONSTRUITE("Gare construite sur la ville de ", ""),
+        DESTINATION_ABANDONNEE("Vous avez abandonné la destination ", ""),
+        DESTINATION_GARDEE("Vous avez gardé la destination ", "");
+
+        /**
+         * Texte écrit avant et après l'élément concerné
+         */
+        private final String avant;
+        private final String apres;
+
+        Evenement(String avant, String apres) {
+            this.avant = avant;
+            this.apres = apres;
+        }
+    }
+
+    private final Evenement evenement;
+    /**
+     * Élément concerné : un {@link ElementLog}, ou un texte écrit tel quel
+     */
+    private final Object element;
+
+    public EntreeLog(Evenement evenement, ElementLog element) {
+        this(evenement, (Object) element);
+    }
+
+    public EntreeLog(Evenement evenement, String texte) {
+        this(evenement, (Object) texte);
+    }
+
+    private EntreeLog(Evenement evenement, Object element) {
+        this.evenement = evenement;
+        this.element = element;
+    }
+
+    public Evenement getEvenement() {
+        return evenement;
+    }
+
+    public Object getElement() {
+        return element;
+    }
+
+    /**
+     * @return le texte de la ligne (HTML affiché par l'interface graphique)
+     */
+    public String texte() {
+        String fragment = element instanceof ElementLog e ? e.toLog() : String.valueOf(element);
+        return evenement.avant + fragment + evenement.apres;
+    }
+
+    @Override
+    public String toString() {
+        return texte();
+    }
+}
@@ -1,6 +1,4 @@
 package fr.umontpellier.iut.rails;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Ferry extends Route {
     /**
@@ -24,18 +22,14 @@ public class Ferry extends Route {
     }
 
     @Override
-    public boolean testFaisabiliteGris(List<CouleurWagon> list){
-        int nbLoco=0;
-        for(CouleurWagon c: list) {
-            if(c.equals(CouleurWagon.LOCOMOTIVE)) nbLoco++;
-        }
-        return super.testFaisabiliteGris(list)&&(nbLoco>=nbLocomotives);
+    public boolean testFaisabiliteGris(MainCartesWagon main){
+        return super.testFaisabiliteGris(main)&&(main.nb(CouleurWagon.LOCOMOTIVE)>=nbLocomotives);
     }
 
     @Override
-    public boolean verifierCouleurWagonChoisie(CouleurWagon wagonChoisi, List<CouleurWagon> cartesWagon,
-                                               List<CouleurWagon> cartesWagonPosees){
-            int nbLocomotivePose=CouleurWagon.LOCOMOTIVE.compteNbCouleur(cartesWagonPosees);
+    public boolean verifierCouleurWagonChoisie(CouleurWagon wagonChoisi, MainCartesWagon cartesWagon,
+                                               MainCartesWagon cartesWagonPosees){
+            int nbLocomotivePose=cartesWagonPosees.nb(CouleurWagon.LOCOMOTIVE);
             boolean bool=true;
             if(!wagonChoisi.equals(CouleurWagon.LOCOMOTIVE)&&
                     nbLocomotivePose+getLongueur()-cartesWagonPosees.size()-1<getNbLocomotives())
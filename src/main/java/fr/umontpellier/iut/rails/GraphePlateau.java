@@ -0,0 +1,166 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.List;
+
+/**
+ * Représentation compacte (en lecture seule) du réseau d'un plateau, pour les
+ * calculs de connexité, de chemins, de score, etc.
+ * <p>
+ * Les villes et les routes sont identifiées par des entiers consécutifs (leur
+ * indice dans les listes du plateau, voir {@code Ville.getId()} et
+ * {@code Route.getId()}). Les adjacences sont stockées au format CSR : les
+ * voisins de la ville v sont {@code voisin(k)} pour k allant de
+ * {@code debutVoisins(v)} (inclus) à {@code finVoisins(v)} (exclu), et
+ * {@code routeVoisin(k)} est la route qui mène à ce voisin. Les caractéristiques
+ * des routes sont rangées dans des tableaux de types primitifs.
+ * <p>
+ * Le graphe ne dépend que de la carte (et pas des propriétaires des villes et
+ * des routes) : il est construit une seule fois par carte et partagé par toutes
+ * les parties.
+ */
+public final class GraphePlateau {
+    /**
+     * Types de routes
+     */
+    public static final byte ROUTE = 0;
+    public static final byte TUNNEL = 1;
+    public static final byte FERRY = 2;
+
+    private final int nbVilles;
+    private final int nbRoutes;
+    /**
+     * Indice du premier voisin de chaque ville dans {@code voisins} (taille nbVilles + 1)
+     */
+    private final int[] debutVoisins;
+    /**
+     * Villes voisines et routes correspondantes (taille 2 * nbRoutes)
+     */
+    private final int[] voisins;
+    private final int[] routesVoisins;
+    /**
+     * Extrémités de chaque route
+     */
+    private final int[] villes1;
+    private final int[] villes2;
+    /**
+     * Caractéristiques de chaque route
+     */
+    private final byte[] longueurs;
+    private final byte[] couleurs;
+    private final byte[] nbLocomotives;
+    private final byte[] types;
+
+    /**
+     * Construit le graphe d'un plateau. Les identifiants des villes et des routes
+     * doivent correspondre à leurs indices dans les listes.
+     */
+    public GraphePlateau(List<Ville> villes, List<Route> routes) {
+        nbVilles = villes.size();
+        nbRoutes = routes.size();
+        villes1 = new int[nbRoutes];
+        villes2 = new int[nbRoutes];
+        longueurs = new byte[nbRoutes];
+        couleurs = new byte[nbRoutes];
+        nbLocomotives = new byte[nbRoutes];
+        types = new byte[nbRoutes];
+
+        debutVoisins = new int[nbVilles + 1];
+        for (int r = 0; r < nbRoutes; r++) {
+            Route route = routes.get(r);
+            villes1[r] = route.getVille1().getId();
+            villes2[r] = route.getVille2().getId();
+            longueurs[r] = (byte) route.getLongueur();
+            couleurs[r] = (byte) route.getCouleur().ordinal();
+            nbLocomotives[r] = (byte) route.getNbLocomotives();
+            types[r] = route instanceof Tunnel ? TUNNEL : route instanceof Ferry ? FERRY : ROUTE;
+            debutVoisins[villes1[r] + 1]++;
+            debutVoisins[villes2[r] + 1]++;
+        }
+        for (int v = 0; v < nbVilles; v++) {
+            debutVoisins[v + 1] += debutVoisins[v];
+        }
+
+        voisins = new int[2 * nbRoutes];
+        routesVoisins = new int[2 * nbRoutes];
+        int[] prochain = new int[nbVilles];
+        System.arraycopy(debutVoisins, 0, prochain, 0, nbVilles);
+        for (int r = 0; r < nbRoutes; r++) {
+            int k1 = prochain[villes1[r]]++;
+            voisins[k1] = villes2[r];
+            routesVoisins[k1] = r;
+            int k2 = prochain[villes2[r]]++;
+            voisins[k2] = villes1[r];
+            routesVoisins[k2] = r;
+        }
+    }
+
+    public int getNbVilles() {
+        return nbVilles;
+    }
+
+    public int getNbRoutes() {
+        return nbRoutes;
+    }
+
+    public int debutVoisins(int ville) {
+        return debutVoisins[ville];
+    }
+
+    public int finVoisins(int ville) {
+        return debutVoisins[ville + 1];
+    }
+
+    public int degre(int ville) {
+        return debutVoisins[ville + 1] - debutVoisins[ville];
+    }
+
+    /**
+     * @param k indice dans les adjacences (entre debutVoisins et finVoisins d'une ville)
+     * @return la ville voisine
+     */
+    public int voisin(int k) {
+        return voisins[k];
+    }
+
+    /**
+     * @param k indice dans les adjacences (entre debutVoisins et finVoisins d'une ville)
+     * @return la route qui mène à la ville voisine
+     */
+    public int routeVoisin(int k) {
+        return routesVoisins[k];
+    }
+
+    public int ville1(int route) {
+        return villes1[route];
+    }
+
+    public int ville2(int route) {
+        return villes2[route];
+    }
+
+    /**
+     * @return l'autre extrémité de la route
+     */
+    public int autreVille(int route, int ville) {
+        return villes1[route] == ville ? villes2[route] : villes1[route];
+    }
+
+    public int longueur(int route) {
+        return longueurs[route];
+    }
+
+    public CouleurWagon couleur(int route) {
+        return CouleurWagon.values()[couleurs[route]];
+    }
+
+    public int nbLocomotives(int route) {
+        return nbLocomotives[route];
+    }
+
+    /**
+     * @return le type de la route ({@link #ROUTE}, {@link #TUNNEL} ou {@link #FERRY})
+     */
+    public byte type(int route) {
+        return types[route];
+    }
+}
@@ -0,0 +1,153 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Tampon circulaire des dernières lignes d'un log, numérotées dans l'ordre où
+ * elles ont été ajoutées.
+ * <p>
+ * Une ligne est un texte, ou une {@link EntreeLog} qui n'est mise en forme que
+ * lorsqu'elle est lue.
+ * <p>
+ * Chaque ligne reçoit un numéro de séquence (0 pour la première ligne de la
+ * partie, puis 1, 2, etc.) qui ne change plus. Seules les {@code capacite}
+ * dernières lignes sont conservées : lorsque le tampon est plein, la ligne la
+ * plus ancienne est remplacée par la nouvelle. La mémoire occupée ne dépend
+ * donc pas de la durée de la partie.
+ * <p>
+ * Vu comme une liste, l'historique contient les lignes conservées, de la plus
+ * ancienne ({@link #getPremiereSequence()}) à la plus récente. Un historique
+ * n'est pas protégé contre les accès simultanés.
+ */
+public final class Historique extends AbstractList<String> {
+    /**
+     * Lignes conservées : textes ou {@link EntreeLog}
+     */
+    private final Object[] lignes;
+    /**
+     * Numéro de séquence de la prochaine ligne ajoutée (nombre total de lignes
+     * ajoutées)
+     */
+    private int sequenceSuivante;
+    /**
+     * Nombre de lignes conservées
+     */
+    private int taille;
+
+    public Historique(int capacite) {
+        if (capacite <= 0) {
+            throw new IllegalArgumentException("Capacité invalide : " + capacite);
+        }
+        lignes = new Object[capacite];
+    }
+
+    public int getCapacite() {
+        return lignes.length;
+    }
+
+    /**
+     * @return le numéro de séquence de la plus ancienne ligne conservée (égal à
+     * {@link #getSequenceSuivante()} si aucune ligne n'est conservée)
+     */
+    public int getPremiereSequence() {
+        return sequenceSuivante - taille;
+    }
+
+    /**
+     * @return le numéro de séquence que recevra la prochaine ligne ajoutée
+     */
+    public int getSequenceSuivante() {
+        return sequenceSuivante;
+    }
+
+    /**
+     * @return la ligne de numéro de séquence donné
+     * @throws IndexOutOfBoundsException si la ligne n'est pas (ou plus) conservée
+     */
+    public String getSequence(int sequence) {
+        return texte(getLigne(sequence));
+    }
+
+    /**
+     * @return la ligne de numéro de séquence donné telle qu'elle a été ajoutée
+     * (texte ou {@link EntreeLog}, sans mise en forme)
+     * @throws IndexOutOfBoundsException si la ligne n'est pas (ou plus) conservée
+     */
+    public Object getLigne(int sequence) {
+        if (sequence < getPremiereSequence() || sequence >= sequenceSuivante) {
+            throw new IndexOutOfBoundsException("Ligne " + sequence + " absente de l'historique");
+        }
+        return lignes[sequence % lignes.length];
+    }
+
+    @Override
+    public boolean add(String ligne) {
+        ajouterLigne(ligne);
+        return true;
+    }
+
+    /**
+     * Ajoute une ligne sans la mettre en forme
+     */
+    public void ajouter(EntreeLog entree) {
+        ajouterLigne(entree);
+    }
+
+    /**
+     * Ajoute une ligne lue dans un autre historique (voir {@link #getLigne(int)})
+     */
+    void ajouterLigne(Object ligne) {
+        lignes[sequenceSuivante % lignes.length] = ligne;
+        sequenceSuivante++;
+        if (taille < lignes.length) {
+            taille++;
+        }
+        modCount++;
+    }
+
+    /**
+     * @param index position parmi les lignes conservées (0 pour la plus ancienne)
+     */
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= taille) {
+            throw new IndexOutOfBoundsException("Index " + index + " hors de l'historique (taille " + taille + ")");
+        }
+        return texte(lignes[(getPremiereSequence() + index) % lignes.length]);
+    }
+
+    private static String texte(Object ligne) {
+        return ligne instanceof EntreeLog entree ? entree.texte() : (String) ligne;
+    }
+
+    @Override
+    public int size() {
+        return taille;
+    }
+
+    /**
+     * Oublie les lignes conservées et reprend la numérotation à
+     * {@code sequence} (les lignes qui précèdent sont considérées comme
+     * ajoutées puis oubliées). Ne fait rien si {@code sequence} a déjà été
+     * attribué.
+     */
+    public void reprendreA(int sequence) {
+        if (sequence > sequenceSuivante) {
+            clear();
+            sequenceSuivante = sequence;
+        }
+    }
+
+    /**
+     * Oublie toutes les lignes conservées. Les numéros de séquence continuent
+     * à partir du dernier (une ligne ajoutée ensuite ne réutilise pas le
+     * numéro d'une ligne oubliée).
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(lignes, null);
+        taille = 0;
+        modCount++;
+    }
+}
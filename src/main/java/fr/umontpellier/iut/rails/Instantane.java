@@ -0,0 +1,258 @@
+package fr.umontpellier.iut.rails;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instantané binaire compact de l'état complet d'une partie, pour la
+ * sauvegarder après chaque tour (reprise rapide combinée aux dernières entrées
+ * du {@link Journal}) ou la dupliquer (exploration par un robot).
+ * <p>
+ * Le format n'utilise ni réflexion ni sérialisation Java : les énumérations
+ * sont écrites par leur ordinal, les destinations par leur indice dans le
+ * catalogue du jeu (voir {@link Destination#indice(String)}) et les
+ * propriétaires par l'indice du joueur, en entiers de taille variable (7 bits
+ * par octet) :
+ * <pre>
+ * VERSION, graine (8 octets), nbMelanges, tailles des mélanges,
+ * phase, indice du joueur courant, nbDerniersTours, nombre d'entrées traitées,
+ * nbJoueurs x (nom, couleur, nbGares, nbWagons, score, main, cartes posées, destinations),
+ * tour du joueur courant, pioche, cartes visibles, défausse, pioche de destinations,
+ * propriétaire de chaque ville, propriétaire de chaque route
+ * </pre>
+ * L'état du générateur de la partie n'est pas accessible : l'instantané
+ * contient la graine et la taille de chaque pile mélangée depuis le début de
+ * la partie, et la restauration refait les mêmes tirages (voir
+ * {@link Jeu#rejouerMelange(int)}). Le log et les versions de l'état envoyé
+ * aux clients ne font pas partie de l'instantané. Le nombre d'entrées traitées
+ * indique où reprendre le journal de la partie (voir
+ * {@link Journal#rejouer(byte[], InputStream)}).
+ * <p>
+ * Un instantané ne peut être pris qu'entre deux tours ou pendant un choix de
+ * destinations (les états où le jeu attend une réponse au début d'une
+ * action) : c'est le cas chaque fois que le tour du joueur courant vient de
+ * commencer.
+ */
+public final class Instantane {
+    public static final byte VERSION = 2;
+
+    private static final CouleurWagon[] COULEURS_WAGON = CouleurWagon.values();
+    private static final Joueur.Couleur[] COULEURS_JOUEUR = Joueur.Couleur.values();
+
+    private Instantane() {
+    }
+
+    /**
+     * Enregistre l'état de la partie
+     *
+     * @throws IllegalStateException si le joueur courant est au milieu d'une
+     *                               action (voir la description de la classe)
+     */
+    public static byte[] capturer(Jeu jeu) {
+        EcrivainBinaire sortie = new EcrivainBinaire();
+        sortie.octet(VERSION);
+        sortie.long64(jeu.getGraine());
+        sortie.entier(jeu.getNbMelanges());
+        for (int i = 0; i < jeu.getNbMelanges(); i++) {
+            sortie.entier(jeu.getTailleMelange(i));
+        }
+        sortie.entier(jeu.getPhase());
+        sortie.signe(jeu.getIndiceJoueurCourant());
+        sortie.entier(jeu.getNbDerniersTours());
+        sortie.entier(jeu.getNbEntrees());
+
+        List<Joueur> joueurs = jeu.getJoueurs();
+        sortie.entier(joueurs.size());
+        for (Joueur joueur : joueurs) {
+            sortie.texte(joueur.getNom());
+            sortie.entier(joueur.getCouleur().ordinal());
+            sortie.entier(joueur.getNbGares());
+            sortie.entier(joueur.getNbWagons());
+            sortie.signe(joueur.getScore());
+            ecrireMain(sortie, joueur.getCartesWagon());
+            ecrireMain(sortie, joueur.getCartesWagonPosees());
+            ecrireDestinations(sortie, joueur.getDestinations());
+        }
+
+        Tour tour = jeu.getJoueurCourant().getTour();
+        Tour.Etat etat = tour.getEtat();
+        if (etat != Tour.Etat.CHOIX_ACTION && etat != Tour.Etat.CHOIX_DESTINATIONS && etat != Tour.Etat.TERMINE) {
+            throw new IllegalStateException("Instantané impossible pendant l'action en cours : " + etat);
+        }
+        sortie.entier(etat.ordinal());
+        if (etat == Tour.Etat.CHOIX_DESTINATIONS) {
+            sortie.octet(tour.estChoixDestinationsInitiales() ? 1 : 0);
+            sortie.entier(tour.getNbDestinationsMin());
+            ecrireDestinations(sortie, tour.getDestinationsProposees());
+            ecrireDestinations(sortie, tour.getDestinationsDefaussees());
+        }
+
+        ecrirePile(sortie, jeu.getPileCartesWagon());
+        ecrirePile(sortie, jeu.getCartesWagonVisibles());
+        ecrirePile(sortie, jeu.getDefausseCartesWagon());
+        ecrireDestinations(sortie, jeu.getPileDestinations());
+
+        for (Ville ville : jeu.getVilles()) {
+            sortie.entier(joueurs.indexOf(ville.getProprietaire()) + 1);
+        }
+        for (Route route : jeu.getRoutes()) {
+            sortie.entier(joueurs.indexOf(route.getProprietaire()) + 1);
+        }
+        return sortie.octets();
+    }
+
+    /**
+     * Reconstruit une partie à partir d'un instantané. La partie obtenue est en
+     * mode normal (voir {@link Jeu#setModeAffichage()}), son log est vide, et
+     * elle attend la réponse à la question en cours (voir {@link Jeu#demarrer()}).
+     *
+     * @throws IllegalArgumentException si l'instantané n'est pas valide
+     */
+    public static Jeu restaurer(byte[] instantane) {
+        LecteurBinaire entree = new LecteurBinaire(instantane);
+        try {
+            return restaurer(entree);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Instantané incomplet", e);
+        }
+    }
+
+    private static Jeu restaurer(LecteurBinaire entree) {
+        byte version = entree.octet();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Version d'instantané inconnue : " + version);
+        }
+        long graine = entree.long64();
+        int[] taillesMelanges = new int[entree.entier()];
+        for (int i = 0; i < taillesMelanges.length; i++) {
+            taillesMelanges[i] = entree.entier();
+        }
+        int phase = entree.entier();
+        int indiceJoueurCourant = entree.signe();
+        int nbDerniersTours = entree.entier();
+        int nbEntrees = entree.entier();
+
+        // état des joueurs, lu avant la création de la partie qui a besoin de leurs noms
+        int nbJoueurs = entree.entier();
+        String[] noms = new String[nbJoueurs];
+        int[][] caracteristiques = new int[nbJoueurs][];
+        MainCartesWagon[] mains = new MainCartesWagon[nbJoueurs];
+        MainCartesWagon[] posees = new MainCartesWagon[nbJoueurs];
+        List<List<Destination>> destinations = new ArrayList<>();
+        for (int i = 0; i < nbJoueurs; i++) {
+            noms[i] = entree.texte();
+            caracteristiques[i] = new int[]{entree.entier(), entree.entier(), entree.entier(), entree.signe()};
+            mains[i] = lireMain(entree);
+            posees[i] = lireMain(entree);
+            destinations.add(lireDestinations(entree));
+        }
+
+        Jeu jeu = new Jeu(noms, graine);
+        // le constructeur a déjà fait les premiers mélanges
+        for (int i = jeu.getNbMelanges(); i < taillesMelanges.length; i++) {
+            jeu.rejouerMelange(taillesMelanges[i]);
+        }
+
+        Tour.Etat etat = Tour.Etat.values()[entree.entier()];
+        boolean initiales = false;
+        int nbMin = 0;
+        List<Destination> proposees = null;
+        List<Destination> defaussees = null;
+        if (etat == Tour.Etat.CHOIX_DESTINATIONS) {
+            initiales = entree.octet() != 0;
+            nbMin = entree.entier();
+            proposees = lireDestinations(entree);
+            defaussees = lireDestinations(entree);
+        }
+
+        lirePile(entree, jeu.getPileCartesWagon());
+        lirePile(entree, jeu.getCartesWagonVisibles());
+        lirePile(entree, jeu.getDefausseCartesWagon());
+        List<Destination> pileDestinations = jeu.getPileDestinations();
+        pileDestinations.clear();
+        pileDestinations.addAll(lireDestinations(entree));
+
+        List<Joueur> joueurs = jeu.getJoueurs();
+        for (Ville ville : jeu.getVilles()) {
+            int proprietaire = entree.entier();
+            ville.setProprietaire(proprietaire == 0 ? null : joueurs.get(proprietaire - 1));
+        }
+        for (Route route : jeu.getRoutes()) {
+            int proprietaire = entree.entier();
+            route.setProprietaire(proprietaire == 0 ? null : joueurs.get(proprietaire - 1));
+        }
+
+        for (int i = 0; i < nbJoueurs; i++) {
+            Joueur joueur = joueurs.get(i);
+            int[] c = caracteristiques[i];
+            joueur.restaurer(COULEURS_JOUEUR[c[0]], c[1], c[2], c[3]);
+            joueur.getCartesWagon().clear();
+            joueur.getCartesWagon().addAll(mains[i]);
+            joueur.getCartesWagonPosees().clear();
+            joueur.getCartesWagonPosees().addAll(posees[i]);
+            joueur.getDestinations().clear();
+            joueur.getDestinations().addAll(destinations.get(i));
+        }
+
+        jeu.restaurerPhase(phase, indiceJoueurCourant, nbDerniersTours, nbEntrees);
+        Tour tour = jeu.getJoueurCourant().getTour();
+        if (etat == Tour.Etat.CHOIX_ACTION) {
+            tour.commencer();
+        } else if (etat == Tour.Etat.CHOIX_DESTINATIONS) {
+            tour.restaurerChoixDestinations(proposees, defaussees, nbMin, initiales);
+        }
+        return jeu;
+    }
+
+    /**
+     * Main écrite comme le nombre de cartes de chaque couleur
+     */
+    private static void ecrireMain(EcrivainBinaire sortie, MainCartesWagon main) {
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            sortie.entier(main.nb(couleur));
+        }
+    }
+
+    private static MainCartesWagon lireMain(LecteurBinaire entree) {
+        MainCartesWagon main = new MainCartesWagon();
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            main.ajouter(couleur, entree.entier());
+        }
+        return main;
+    }
+
+    /**
+     * Pile écrite carte par carte (l'ordre des cartes fait partie de l'état)
+     */
+    private static void ecrirePile(EcrivainBinaire sortie, PileCartesWagon pile) {
+        sortie.entier(pile.size());
+        for (CouleurWagon carte : pile) {
+            sortie.octet(carte.ordinal());
+        }
+    }
+
+    private static void lirePile(LecteurBinaire entree, PileCartesWagon pile) {
+        pile.clear();
+        int taille = entree.entier();
+        for (int i = 0; i < taille; i++) {
+            pile.add(COULEURS_WAGON[entree.octet()]);
+        }
+    }
+
+    private static void ecrireDestinations(EcrivainBinaire sortie, List<Destination> destinations) {
+        sortie.entier(destinations.size());
+        for (Destination destination : destinations) {
+            sortie.entier(Destination.indice(destination.getNom()));
+        }
+    }
+
+    private static List<Destination> lireDestinations(LecteurBinaire entree) {
+        int nb = entree.entier();
+        List<Destination> destinations = new ArrayList<>(nb);
+        for (int i = 0; i < nb; i++) {
+            destinations.add(Destination.getDestination(entree.entier()));
+        }
+        return destinations;
+    }
+}
@@ -1,12 +1,11 @@
 package fr.umontpellier.iut.rails;
 
-import com.google.gson.Gson;
-import fr.umontpellier.iut.gui.GameServer;
+import fr.umontpellier.iut.gui.Partie;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Jeu implements Runnable {
     /**
@@ -18,6 +17,10 @@ public class Jeu implements Runnable {
      * Le joueur dont c'est le tour
      */
     private Joueur joueurCourant;
+    /**
+     * Plateau de jeu (villes et routes, indexées par nom)
+     */
+    private Plateau plateau;
     /**
      * Liste des villes représentées sur le plateau de jeu
      */
@@ -29,31 +32,128 @@ public class Jeu implements Runnable {
     /**
      * Pile de pioche (face cachée)
      */
-    private List<CouleurWagon> pileCartesWagon;
+    private PileCartesWagon pileCartesWagon;
     /**
      * Cartes de la pioche face visible (normalement il y a 5 cartes face visible)
      */
-    private List<CouleurWagon> cartesWagonVisibles;
+    private PileCartesWagon cartesWagonVisibles;
     /**
      * Pile de cartes qui ont été défaussée au cours de la partie
      */
-    private List<CouleurWagon> defausseCartesWagon;
+    private PileCartesWagon defausseCartesWagon;
     /**
      * Pile des cartes "Destination" (uniquement les destinations "courtes", les
      * destinations "longues" sont distribuées au début de la partie et ne peuvent
      * plus être piochées après)
      */
-    private List<Destination> pileDestinations;
+    private Pioche<Destination> pileDestinations;
     /**
      * File d'attente des instructions recues par le serveur
      */
     private BlockingQueue<String> inputQueue;
     /**
-     * Messages d'information du jeu
+     * Nombre de messages d'information conservés dans le log (les plus anciens
+     * sont oubliés, voir {@link Historique})
+     */
+    public static final int CAPACITE_LOG = 256;
+    /**
+     * Derniers messages d'information du jeu
+     */
+    private Historique log;
+    /**
+     * Partie du serveur à laquelle l'état du jeu est envoyé (`null` si le jeu
+     * n'est pas hébergé par le serveur)
+     */
+    private Partie partie;
+    /**
+     * Versions successives de l'état envoyé aux clients (pour les trames différentielles)
+     */
+    private final SuiviEtat suiviEtat = new SuiviEtat();
+    /**
+     * Tampons dans lesquels le prompt et les piles sont écrits en JSON et en
+     * binaire (voir {@link ProtocoleBinaire})
+     */
+    private final EcrivainJson ecrivainJson = new EcrivainJson();
+    private final EcrivainBinaire ecrivainBinaire = new EcrivainBinaire(256);
+    private static final String[] CLES_PROMPT = EcrivainJson.ordreMapImmuable("instruction", "boutons",
+            "nomJoueurCourant", "peutPasser", "graine");
+    private static final String[] CLES_PILES = EcrivainJson.ordreMapImmuable("pileCartesWagon", "pileDestinations",
+            "defausseCartesWagon", "cartesWagonVisibles");
+    /**
+     * Source des décisions des joueurs en mode sans affichage (null si les
+     * réponses des joueurs sont lues dans la file d'entrées)
+     */
+    private SourceDecisions sourceDecisions;
+    /**
+     * Indique si les messages d'information sont conservés dans le log
+     */
+    private boolean logActif = true;
+    /**
+     * Indique si l'état du jeu est affiché et envoyé aux clients à chaque question
+     */
+    private boolean affichage = true;
+    /**
+     * Indique si l'état du jeu est aussi écrit sur la sortie standard à chaque
+     * question (désactivé pour les parties hébergées sur une boucle
+     * d'événements : les boucles partagées ne doivent pas attendre la console)
+     */
+    private boolean affichageConsole = true;
+    /**
+     * Journal des entrées de la partie (null si les entrées ne sont pas enregistrées)
      */
-    private List<String> log;
+    private Journal journal;
+    /**
+     * Étapes de la partie
+     */
+    private enum Phase {
+        PAS_COMMENCEE, DESTINATIONS_INITIALES, TOURS, DERNIER_TOUR, TERMINEE
+    }
 
+    private Phase phase = Phase.PAS_COMMENCEE;
+    /**
+     * Indice du joueur courant dans la liste des joueurs
+     */
+    private int indiceJoueurCourant;
+    /**
+     * Nombre de joueurs qui doivent encore jouer leur dernier tour
+     */
+    private int nbDerniersTours;
+    /**
+     * Nombre d'entrées traitées depuis le début de la partie (c'est aussi le
+     * nombre d'enregistrements de son journal, voir {@link Journal})
+     */
+    private int nbEntrees;
+    /**
+     * Graine du générateur de la partie : tous les mélanges (cartes wagon,
+     * couleurs des joueurs, destinations, défausse) en dépendent, et une partie
+     * peut être rejouée à l'identique à partir de sa graine et des réponses des
+     * joueurs
+     */
+    private final long graine;
+    /**
+     * Générateur propre à la partie (jamais partagé entre deux parties)
+     */
+    private final SplittableRandom alea;
+    /**
+     * Taille de chaque pile mélangée depuis le début de la partie : l'état du
+     * générateur ne dépend que de la graine et de ces tailles (voir {@link Instantane})
+     */
+    private int[] taillesMelanges = new int[8];
+    private int nbMelanges;
+
+    /**
+     * Crée une partie avec une graine choisie au hasard
+     */
     public Jeu(String[] nomJoueurs) {
+        this(nomJoueurs, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Crée une partie dont tous les mélanges sont déterminés par la graine
+     */
+    public Jeu(String[] nomJoueurs, long graine) {
+        this.graine = graine;
+        alea = new SplittableRandom(graine);
         /*
          * ATTENTION : Cette méthode est à réécrire.
          * 
@@ -67,20 +167,20 @@ public class Jeu implements Runnable {
 
         // initialisation des entrées/sorties
         inputQueue = new LinkedBlockingQueue<>();
-        log = new ArrayList<>();
+        log = new Historique(CAPACITE_LOG);
 
         // création des cartes
-        pileCartesWagon = new ArrayList<>();
+        pileCartesWagon = new PileCartesWagon();
         for (int i=0; i<12; i++)pileCartesWagon.addAll(CouleurWagon.getCouleursSimples());
         for(int i=0; i<14; i++)pileCartesWagon.add(CouleurWagon.LOCOMOTIVE);
-        Collections.shuffle(pileCartesWagon);
+        melanger(pileCartesWagon);
 
         // création des joueurs //presque correct
-        ArrayList<Joueur.Couleur> couleurs = new ArrayList<>(Arrays.asList(Joueur.Couleur.values()));
-        Collections.shuffle(couleurs);
+        Pioche<Joueur.Couleur> couleurs = new Pioche<>(Arrays.asList(Joueur.Couleur.values()));
+        melanger(couleurs);
         joueurs = new ArrayList<>();
         for (String nom : nomJoueurs) {
-            Joueur joueur = new Joueur(nom, this, couleurs.remove(0));
+            Joueur joueur = new Joueur(nom, this, couleurs.piocher());
             joueurs.add(joueur);
         }
         joueurCourant = joueurs.get(0);
@@ -88,33 +188,31 @@ public class Jeu implements Runnable {
         // Distribution des 4 cartes wagon par joueur
         for(int i=0; i<4; i++){
             for(Joueur joueur: joueurs){
-                CouleurWagon carteTiree = pileCartesWagon.get(0);
-                pileCartesWagon.remove(0);
-                joueur.getCartesWagon().add(carteTiree);
+                joueur.getCartesWagon().add(pileCartesWagon.piocher());
             }
         }
 
-        defausseCartesWagon = new ArrayList<>();
+        defausseCartesWagon = new PileCartesWagon();
 
         // remplissage cartesWagonVisibles
-        cartesWagonVisibles = new ArrayList<>();
+        cartesWagonVisibles = new PileCartesWagon();
         do{
             changerAllCarteWagonVisible();
         }while(!locomotiveVisibleInferieurTrois(cartesWagonVisibles));
 
-        pileDestinations = new ArrayList<>(Destination.makeDestinationsEurope());
+        pileDestinations = new Pioche<>(Destination.makeDestinationsEurope());
 
         // création des villes et des routes
-        Plateau plateau = Plateau.makePlateauEurope();
+        plateau = Plateau.makePlateauEurope();
         villes = plateau.getVilles();
         routes = plateau.getRoutes();
     }
 
-    public List<CouleurWagon> getPileCartesWagon() {
+    public PileCartesWagon getPileCartesWagon() {
         return pileCartesWagon;
     }
 
-    public List<CouleurWagon> getCartesWagonVisibles() {
+    public PileCartesWagon getCartesWagonVisibles() {
         return cartesWagonVisibles;
     }
 
@@ -130,74 +228,341 @@ public class Jeu implements Runnable {
         return joueurCourant;
     }
 
+    public SuiviEtat getSuiviEtat() {
+        return suiviEtat;
+    }
+
+    /**
+     * @return la graine du générateur de la partie
+     */
+    public long getGraine() {
+        return graine;
+    }
+
+    /**
+     * Mélange une pile avec le générateur de la partie
+     */
+    private void melanger(Pioche<?> pile) {
+        noterMelange(pile.size());
+        pile.melanger(alea);
+    }
+
+    private void noterMelange(int taille) {
+        if (nbMelanges == taillesMelanges.length) {
+            taillesMelanges = Arrays.copyOf(taillesMelanges, 2 * nbMelanges);
+        }
+        taillesMelanges[nbMelanges++] = taille;
+    }
+
+    int getNbMelanges() {
+        return nbMelanges;
+    }
+
+    int getTailleMelange(int i) {
+        return taillesMelanges[i];
+    }
+
+    /**
+     * Fait avancer le générateur comme le mélange d'une pile de cette taille
+     * (mêmes tirages que {@link Pioche#melanger}), sans rien mélanger
+     */
+    void rejouerMelange(int taille) {
+        noterMelange(taille);
+        for (int i = taille - 1; i > 0; i--) {
+            alea.nextInt(i + 1);
+        }
+    }
+
+    int getPhase() {
+        return phase.ordinal();
+    }
+
+    int getIndiceJoueurCourant() {
+        return indiceJoueurCourant;
+    }
+
+    int getNbDerniersTours() {
+        return nbDerniersTours;
+    }
+
     /**
-     * Exécute la partie
+     * @return le nombre d'entrées traitées depuis le début de la partie (voir
+     * {@link #traiterEntree(String)})
+     */
+    public int getNbEntrees() {
+        return nbEntrees;
+    }
+
+    /**
+     * Replace la partie à une étape donnée (voir {@link Instantane})
+     */
+    void restaurerPhase(int phase, int indiceJoueurCourant, int nbDerniersTours, int nbEntrees) {
+        this.phase = Phase.values()[phase];
+        this.indiceJoueurCourant = indiceJoueurCourant;
+        this.nbDerniersTours = nbDerniersTours;
+        this.nbEntrees = nbEntrees;
+        joueurCourant = joueurs.get(Math.max(0, indiceJoueurCourant));
+    }
+
+    public void setPartie(Partie partie) {
+        this.partie = partie;
+    }
+
+    /**
+     * Passe le jeu en mode sans affichage, pour simuler un grand nombre de
+     * parties (équilibrage, entraînement de robots) : {@link #prompt} n'affiche
+     * et n'envoie plus rien, et les réponses des joueurs sont demandées à la
+     * source de décisions au lieu d'être lues dans la file d'entrées.
+     *
+     * @param source       la source des décisions des joueurs (si null, les
+     *                     réponses sont passées à {@link #traiterEntree(String)},
+     *                     par exemple pour rejouer un {@link Journal})
+     * @param conserverLog si false, les messages d'information sont ignorés
+     */
+    public void setModeSansAffichage(SourceDecisions source, boolean conserverLog) {
+        sourceDecisions = source;
+        logActif = conserverLog;
+        affichage = false;
+    }
+
+    /**
+     * Rétablit le mode normal : l'état est affiché et envoyé aux clients, les
+     * réponses sont lues dans la file d'entrées et le log est conservé
+     */
+    public void setModeAffichage() {
+        sourceDecisions = null;
+        logActif = true;
+        affichage = true;
+    }
+
+    /**
+     * Active ou désactive l'écriture de l'état du jeu sur la sortie standard à
+     * chaque question (l'état est toujours envoyé aux clients de la partie)
+     */
+    public void setAffichageConsole(boolean affichageConsole) {
+        this.affichageConsole = affichageConsole;
+    }
+
+    /**
+     * Enregistre désormais les entrées de la partie dans le journal (voir
+     * {@link Journal})
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Ferme le journal de la partie sans l'archiver : la partie abandonnée en
+     * cours de route pourra être reprise à partir du journal (voir
+     * {@link Journal#reprendre(java.nio.file.Path)})
+     */
+    public void fermerJournal() {
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * @return la source des décisions des joueurs en mode sans affichage (null
+     * sinon)
+     */
+    public SourceDecisions getSourceDecisions() {
+        return sourceDecisions;
+    }
+
+    /**
+     * @return les {@link #CAPACITE_LOG} derniers messages du log, numérotés
+     * depuis le début de la partie
+     */
+    public Historique getLog() {
+        return log;
+    }
+
+    /**
+     * Exécute la partie : lit les entrées une à une (en bloquant le thread qui
+     * exécute la partie) et les traite jusqu'à la fin de la partie.
+     * <p>
+     * La partie se déroule ainsi :
+     * - chaque joueur choisit les destinations initiales qu'il souhaite garder : on
+     * pioche 3 destinations "courtes" et 1 destination "longue", puis le joueur
+     * peut choisir des destinations à défausser ou passer s'il ne veut plus en
+     * défausser. Il doit en garder au moins 2.
+     * - la boucle principale fait jouer le tour de chaque joueur à tour de rôle
+     * jusqu'à ce qu'un des joueurs n'ait plus que 2 wagons ou moins
+     * - chaque joueur joue encore un dernier tour
+     * <p>
+     * Voir {@link #demarrer()} et {@link #traiterEntree(String)} pour exécuter la
+     * partie sans lui réserver de thread.
      */
     public void run() {
-        /*
-         * ATTENTION : Cette méthode est à réécrire.
-         * 
-         * Cette méthode doit :
-         * - faire choisir à chaque joueur les destinations initiales qu'il souhaite
-         * garder : on pioche 3 destinations "courtes" et 1 destination "longue", puis
-         * le joueur peut choisir des destinations à défausser ou passer s'il ne veut plus
-         * en défausser. Il doit en garder au moins 2.
-         *
-         * - exécuter la boucle principale du jeu qui fait jouer le tour de chaque
-         * joueur à tour de rôle jusqu'à ce qu'un des joueurs n'ait plus que 2 wagons ou
-         * moins
-         * - exécuter encore un dernier tour de jeu pour chaque joueur après
-         */
+        if (!affichage && sourceDecisions != null) {
+            simuler(Integer.MAX_VALUE);
+            return;
+        }
+        demarrer();
+        while (!estTerminee() && !estArretee()) {
+            String entree = lireLigne();
+            if (entree == null) return;
+            traiterEntree(entree);
+        }
+    }
+
+    /**
+     * Joue la partie en mode sans affichage (voir
+     * {@link #setModeSansAffichage(SourceDecisions, boolean)}) : chaque question
+     * est posée directement à la source de décisions, sans passer par la file
+     * d'entrées ni par un autre thread.
+     *
+     * @param nbMaxDecisions nombre maximum de réponses demandées (pour arrêter
+     *                       une partie où les joueurs ne progressent pas)
+     * @return true si la partie est allée jusqu'au bout
+     */
+    public boolean simuler(int nbMaxDecisions) {
+        demarrer();
+        for (int i = 0; i < nbMaxDecisions && !estTerminee() && !estArretee(); i++) {
+            Tour tour = joueurCourant.getTour();
+            traiterEntree(sourceDecisions.decider(joueurCourant, tour.getInstruction(), tour.getChoix(),
+                    tour.getBoutons(), tour.peutPasser()));
+        }
+        return estTerminee();
+    }
 
+    /**
+     * Commence la partie et avance jusqu'à la première question posée à un
+     * joueur (sans attendre de réponse). Si la partie est déjà commencée (par
+     * exemple reconstruite à partir d'un {@link Journal}), la question en cours
+     * est seulement posée à nouveau.
+     * <p>
+     * La partie avance ensuite à chaque appel de {@link #traiterEntree(String)} :
+     * elle n'occupe aucun thread entre deux entrées, ce qui permet à un même
+     * thread de faire avancer de nombreuses parties. Les appels à ces deux
+     * méthodes pour une même partie ne doivent pas être simultanés.
+     */
+    public void demarrer() {
+        if (phase != Phase.PAS_COMMENCEE) {
+            avancer();
+            return;
+        }
         //Début du jeu : on mélange les piledestionation courte et longue puis
         //distribuer à chaque joueur 3 destinations courtes et 1 longue
-        Collections.shuffle(pileDestinations);
-        ArrayList<Destination> destinationLongue
-                =new ArrayList<>(Destination.makeDestinationsLonguesEurope());
-        Collections.shuffle(destinationLongue);
+        melanger(pileDestinations);
+        log("Graine de la partie : " + graine);
         log("Avant de commencer la partie, veuillez défausser des destinations");
-        for(Joueur j : joueurs){
-            joueurCourant=j;
-            j.log("========== "+j.toLog()+" ==========");
-            ArrayList<Destination> destinationsPossibles=new ArrayList<>();
-            destinationsPossibles.add(piocherDestination());
-            destinationsPossibles.add(piocherDestination());
-            destinationsPossibles.add(piocherDestination());
-            destinationsPossibles.add(Destination.makeDestinationsLonguesEurope()
-                               .get(joueurs.indexOf(j)));
-            j.choisirDestinations(destinationsPossibles,2);
-            //joueur choisir les destions à défausser, il doit en garder minimum deux
+        phase = Phase.DESTINATIONS_INITIALES;
+        indiceJoueurCourant = 0;
+        commencerChoixDestinationsInitiales();
+        avancer();
+    }
+
+    /**
+     * Traite une entrée du joueur courant (une entrée invalide est ignorée) puis
+     * avance jusqu'à la question suivante. Si l'entrée ne peut pas être
+     * enregistrée dans le journal, elle n'est pas jouée et la partie est
+     * arrêtée (voir {@link #estArretee()}).
+     */
+    public void traiterEntree(String entree) {
+        if (estArretee()) return;
+        if (journal != null && !journal.enregistrer(entree)) {
+            // jouer l'entrée écarterait la partie de celle reconstruite à partir du journal
+            log("La partie est arrêtée : son journal ne peut plus être écrit");
+            prompt("***** Partie arrêtée *****", new ArrayList<>(), false);
+            return;
         }
-        log(" ");
-        log("********** La partie commence ! **********");
-
-        while(true) {
-            for (Joueur j : joueurs) {
-                //fait jouer le tour de chaque joueur à tour de rôle
-                joueurCourant = j;
-                j.log("========== "+j.toLog()+" ==========");
-                j.jouerTour();
-                //si après le tour du joueur courant il n'a que 2 wagons(ou moins), on passe un dernier tours()
-                //on créer une liste de joueur qui doit passer son dernier tour
-                if(j.getNbWagons()<=2){
-                    ArrayList<Joueur> joueursDernierTour = new ArrayList<>();
-                    for (int i = joueurs.indexOf(j) + 1; i < joueurs.size(); i++) {
-                        joueursDernierTour.add(joueurs.get(i));
-                    }
-                    for (int i = 0; i <= joueurs.indexOf(j); i++) {
-                        joueursDernierTour.add(joueurs.get(i));
-                    }
-                    //joueurs figurent sur cette liste dernier tour passe son tour
-                    for (Joueur joueur : joueursDernierTour) {
-                        joueurCourant=joueur;
-                        joueur.jouerTour();
-                    }
-                    prompt("***** Fin de partie *****", new ArrayList<>(), false);
+        nbEntrees++;
+        if (phase == Phase.PAS_COMMENCEE || phase == Phase.TERMINEE) return;
+        joueurCourant.getTour().traiter(entree);
+        avancer();
+    }
+
+    /**
+     * @return true lorsque la partie est finie
+     */
+    public boolean estTerminee() {
+        return phase == Phase.TERMINEE;
+    }
+
+    /**
+     * @return true si la partie a été arrêtée avant la fin parce que son journal
+     * ne peut plus être écrit (elle peut être reprise à partir du journal)
+     */
+    public boolean estArretee() {
+        return journal != null && journal.estEnEchec();
+    }
+
+    /**
+     * Fait avancer la partie jusqu'à la prochaine question qui attend une réponse
+     * du joueur courant (les questions dont la réponse est imposée sont traitées
+     * directement, comme dans {@link Joueur#choisir})
+     */
+    private void avancer() {
+        while (phase != Phase.TERMINEE) {
+            Tour tour = joueurCourant.getTour();
+            if (tour.estTermine()) {
+                passerAuJoueurSuivant();
+                continue;
+            }
+            String reponse = Joueur.reponseAutomatique(tour.getChoix(), tour.getBoutons(), tour.peutPasser());
+            if (reponse == null) {
+                prompt(tour.getInstruction(), tour.getBoutons(), tour.peutPasser());
+                return;
+            }
+            tour.traiter(reponse);
+        }
+        if (journal != null) journal.terminer();
+        prompt("***** Fin de partie *****", new ArrayList<>(), false);
+    }
+
+    private void commencerChoixDestinationsInitiales() {
+        joueurCourant = joueurs.get(indiceJoueurCourant);
+        log(EntreeLog.Evenement.DEBUT_TOUR, joueurCourant);
+        ArrayList<Destination> destinationsPossibles=new ArrayList<>();
+        destinationsPossibles.add(piocherDestination());
+        destinationsPossibles.add(piocherDestination());
+        destinationsPossibles.add(piocherDestination());
+        destinationsPossibles.add(Destination.makeDestinationsLonguesEurope().get(indiceJoueurCourant));
+        //joueur choisir les destions à défausser, il doit en garder minimum deux
+        joueurCourant.getTour().commencerChoixDestinations(destinationsPossibles, 2);
+    }
+
+    /**
+     * Appelée quand le joueur courant a fini de jouer
+     */
+    private void passerAuJoueurSuivant() {
+        switch (phase) {
+            case DESTINATIONS_INITIALES:
+                indiceJoueurCourant++;
+                if (indiceJoueurCourant < joueurs.size()) {
+                    commencerChoixDestinationsInitiales();
                     return;
                 }
+                log(" ");
+                log("********** La partie commence ! **********");
+                phase = Phase.TOURS;
+                indiceJoueurCourant = -1;
+                break;
+            case TOURS:
+                //si après le tour du joueur courant il n'a que 2 wagons(ou moins), chaque
+                //joueur (lui compris) joue un dernier tour
+                if (joueurCourant.getNbWagons() <= 2) {
+                    phase = Phase.DERNIER_TOUR;
+                    nbDerniersTours = joueurs.size();
+                }
+                break;
+            default:
+                break;
+        }
+        if (phase == Phase.DERNIER_TOUR) {
+            if (nbDerniersTours == 0) {
+                phase = Phase.TERMINEE;
+                return;
             }
+            nbDerniersTours--;
         }
+        //fait jouer le tour de chaque joueur à tour de rôle
+        indiceJoueurCourant = (indiceJoueurCourant + 1) % joueurs.size();
+        joueurCourant = joueurs.get(indiceJoueurCourant);
+        log(EntreeLog.Evenement.DEBUT_TOUR, joueurCourant);
+        joueurCourant.getTour().commencer();
     }
+
         /**
          * Le code proposé ici n'est qu'un exemple d'utilisation des méthodes pour
          * interagir avec l'utilisateur, il n'a rien à voir avec le code de la partie et
@@ -284,14 +649,11 @@ public class Jeu implements Runnable {
     public CouleurWagon piocherCarteWagon() {
         CouleurWagon cartePiocher=null;
         if(pileCartesWagon.isEmpty() && !defausseCartesWagon.isEmpty()) {
-            Collections.shuffle(defausseCartesWagon);
-            pileCartesWagon.addAll(defausseCartesWagon);
-            defausseCartesWagon.removeAll(defausseCartesWagon);
-        }
-        if(!pileCartesWagon.isEmpty()){
-            cartePiocher=pileCartesWagon.get(0);
-            pileCartesWagon.remove(0);
+            // la défausse devient la pioche (échange des deux piles, sans copie)
+            pileCartesWagon.echanger(defausseCartesWagon);
+            melanger(pileCartesWagon);
         }
+        cartePiocher=pileCartesWagon.piocher();
         /*if(pileCartesWagon.isEmpty() && !defausseCartesWagon.isEmpty()) {
             Collections.shuffle(defausseCartesWagon);
             pileCartesWagon.addAll(defausseCartesWagon);
@@ -312,16 +674,10 @@ public class Jeu implements Runnable {
 
         /*tant que nb joker>=3, on défausse les 5 cartes visibles et repioche 5 cartes visibles,*/
         //int nbChangement=0;
-        int nbNonLoco=0;
-        for(CouleurWagon cwVisible :cartesWagonVisibles){
-            if(!cwVisible.equals(CouleurWagon.LOCOMOTIVE)) nbNonLoco++;
-        }
-        for (CouleurWagon cwGris : pileCartesWagon){
-            if(!cwGris.equals(CouleurWagon.LOCOMOTIVE)) nbNonLoco++;
-        }
-        for(CouleurWagon cwDefausse : defausseCartesWagon){
-            if(!cwDefausse.equals(CouleurWagon.LOCOMOTIVE)) nbNonLoco++;
-        }
+        // s'il ne reste pas assez de cartes autres que des locomotives, remélanger ne sert à rien
+        // (les piles comptent leurs cartes par couleur : pas besoin de les parcourir)
+        int nbNonLoco=cartesWagonVisibles.nbNonLocomotives()+pileCartesWagon.nbNonLocomotives()
+                +defausseCartesWagon.nbNonLocomotives();
         if(nbNonLoco<3) return;
         while (!locomotiveVisibleInferieurTrois(cartesWagonVisibles)){
             //changerAllCarteWagonVisible();
@@ -336,6 +692,7 @@ public class Jeu implements Runnable {
      * @return : true si nb joker inférieur à trois
      */
     public boolean locomotiveVisibleInferieurTrois(List<CouleurWagon> liste){
+        if(liste instanceof PileCartesWagon) return ((PileCartesWagon) liste).nb(CouleurWagon.LOCOMOTIVE)<3;
         int nbLocomotive=0;
         for(CouleurWagon carte : liste) {
             if (carte.equals(CouleurWagon.LOCOMOTIVE)) {
@@ -366,29 +723,47 @@ public class Jeu implements Runnable {
      *         disponible)
      */
     public Destination piocherDestination() {
-        Destination destinationPioche=null;
-        //s'il reste des carte dans pileDestination, on pioche sinon on pioche NOTHING
-        if(!pileDestinations.isEmpty()){
-            destinationPioche=pileDestinations.get(0);
-            pileDestinations.remove(destinationPioche);
-        }
-        return destinationPioche;
+        //s'il reste des carte dans pileDestination, on pioche sinon on pioche NOTHING (null)
+        return pileDestinations.piocher();
     }
 
     public Route getRouteByNom(String nom){
-        for(Route r : routes){
-            if (r.getNom().equals(nom)){
-                return r;
+        return plateau.getRoute(nom);
+    }
+
+    public Ville getVilleByNom(String nom){
+        return plateau.getVille(nom);
+    }
+
+    public Plateau getPlateau() {
+        return plateau;
+    }
+
+    /**
+     * Calcule (en parallèle) la longueur du plus long chemin continu de chaque
+     * joueur, pour l'attribution du bonus "European Express"
+     *
+     * @return les longueurs, dans l'ordre de la liste des joueurs
+     */
+    public int[] calculerCheminsLesPlusLongs() {
+        List<BitSet> routesParJoueur = new ArrayList<>();
+        for (int i = 0; i < joueurs.size(); i++) {
+            routesParJoueur.add(new BitSet(routes.size()));
+        }
+        for (Route route : routes) {
+            int i = joueurs.indexOf(route.getProprietaire());
+            if (i >= 0) {
+                routesParJoueur.get(i).set(route.getId());
             }
         }
-        return null;
+        return new CheminLePlusLong(plateau.getGraphe()).calculer(routesParJoueur);
     }
 
     public List<Joueur> getJoueurs() {
         return joueurs;
     }
 
-    public List<CouleurWagon> getDefausseCartesWagon() {
+    public PileCartesWagon getDefausseCartesWagon() {
         return defausseCartesWagon;
     }
 
@@ -405,7 +780,22 @@ public class Jeu implements Runnable {
      * Ajoute un message au log du jeu
      */
     public void log(String message) {
-        log.add(message);
+        if (logActif) log.add(message);
+    }
+
+    /**
+     * Ajoute au log du jeu un événement concernant un élément du jeu (le texte
+     * n'est construit que si la ligne est lue)
+     */
+    public void log(EntreeLog.Evenement evenement, ElementLog element) {
+        if (logActif) log.ajouter(new EntreeLog(evenement, element));
+    }
+
+    /**
+     * Ajoute au log du jeu un événement suivi d'un texte
+     */
+    public void log(EntreeLog.Evenement evenement, String texte) {
+        if (logActif) log.ajouter(new EntreeLog(evenement, texte));
     }
 
     /**
@@ -427,7 +817,8 @@ public class Jeu implements Runnable {
         try {
             return inputQueue.take();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            // la partie est arrêtée (voir {@code Partie.arreter})
+            Thread.currentThread().interrupt();
             return null;
         }
     }
@@ -443,42 +834,105 @@ public class Jeu implements Runnable {
 
     /**
      * Envoie l'état de la partie pour affichage aux joueurs avant de faire un choix
+     * (ne fait rien en mode sans affichage)
      *
      * @param instruction l'instruction qui est donnée au joueur
      * @param boutons     labels des choix proposés s'il y en a
      * @param peutPasser  indique si le joueur peut passer sans faire de choix
      */
     public void prompt(String instruction, Collection<String> boutons, boolean peutPasser) {
-        System.out.println();
-        System.out.println(this);
-        if (boutons.isEmpty()) {
-            System.out.printf(">>> %s: %s <<<%n", joueurCourant.getNom(), instruction);
-        } else {
-            StringJoiner joiner = new StringJoiner(" / ");
-            for (String bouton : boutons) {
-                joiner.add(bouton);
+        if (!affichage) return;
+        if (affichageConsole) {
+            System.out.println();
+            System.out.println(this);
+            if (boutons.isEmpty()) {
+                System.out.printf(">>> %s: %s <<<%n", joueurCourant.getNom(), instruction);
+            } else {
+                StringJoiner joiner = new StringJoiner(" / ");
+                for (String bouton : boutons) {
+                    joiner.add(bouton);
+                }
+                System.out.printf(">>> %s: %s [%s] <<<%n", joueurCourant.getNom(), instruction, joiner);
             }
-            System.out.printf(">>> %s: %s [%s] <<<%n", joueurCourant.getNom(), instruction, joiner);
         }
 
-        Map<String, Object> data = Map.ofEntries(
-                new AbstractMap.SimpleEntry<String, Object>("prompt", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("instruction", instruction),
-                        new AbstractMap.SimpleEntry<String, Object>("boutons", boutons),
-                        new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", getJoueurCourant().getNom()),
-                        new AbstractMap.SimpleEntry<String, Object>("peutPasser", peutPasser))),
-                new AbstractMap.SimpleEntry<>("villes",
-                        villes.stream().map(Ville::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<>("routes",
-                        routes.stream().map(Route::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("joueurs",
-                        joueurs.stream().map(Joueur::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("piles", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", pileCartesWagon.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("pileDestinations", pileDestinations.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", defausseCartesWagon),
-                        new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", cartesWagonVisibles))),
-                new AbstractMap.SimpleEntry<String, Object>("log", log));
-        GameServer.setEtatJeu(new Gson().toJson(data));
+        if (partie != null) {
+            enregistrerEtat(instruction, boutons, peutPasser);
+            partie.diffuser();
+        }
+    }
+
+    /**
+     * Enregistre une nouvelle version de l'état envoyé aux clients (voir
+     * {@link SuiviEtat}). Le prompt et les piles sont écrits directement en
+     * JSON, dans le même ordre que Gson sur des tables {@code Map.ofEntries}
+     * (voir {@link EcrivainJson#ordreMapImmuable(String...)}), et au format de
+     * {@link ProtocoleBinaire}.
+     */
+    void enregistrerEtat(String instruction, Collection<String> boutons, boolean peutPasser) {
+        EcrivainJson json = ecrivainJson.vider().debutObjet();
+        for (String cle : CLES_PROMPT) {
+            json.nom(cle);
+            switch (cle) {
+                case "instruction" -> json.valeur(instruction);
+                case "boutons" -> {
+                    json.debutTableau();
+                    for (String bouton : boutons) {
+                        json.valeur(bouton);
+                    }
+                    json.finTableau();
+                }
+                case "nomJoueurCourant" -> json.valeur(joueurCourant.getNom());
+                case "peutPasser" -> json.valeur(peutPasser);
+                // en texte : un entier sur 64 bits n'est pas représentable exactement en JavaScript
+                default -> json.valeur(Long.toString(graine));
+            }
+        }
+        String prompt = json.finObjet().toString();
+
+        json.vider().debutObjet();
+        for (String cle : CLES_PILES) {
+            json.nom(cle);
+            switch (cle) {
+                case "pileCartesWagon" -> json.valeur(pileCartesWagon.size());
+                case "pileDestinations" -> json.valeur(pileDestinations.size());
+                case "defausseCartesWagon" -> ecrireCartesJson(json, defausseCartesWagon);
+                default -> ecrireCartesJson(json, cartesWagonVisibles);
+            }
+        }
+        String piles = json.finObjet().toString();
+
+        EcrivainBinaire sortie = ecrivainBinaire.vider();
+        sortie.texte(instruction);
+        sortie.entier(boutons.size());
+        for (String bouton : boutons) {
+            ProtocoleBinaire.ecrireBouton(sortie, bouton);
+        }
+        sortie.entier(joueurs.indexOf(joueurCourant));
+        sortie.booleen(peutPasser);
+        sortie.long64(graine);
+        byte[] promptBinaire = sortie.octets();
+
+        sortie.vider();
+        sortie.entier(pileCartesWagon.size());
+        sortie.entier(pileDestinations.size());
+        ecrireCartesBinaire(sortie, defausseCartesWagon);
+        ecrireCartesBinaire(sortie, cartesWagonVisibles);
+        suiviEtat.enregistrer(prompt, promptBinaire, villes, routes, joueurs, piles, sortie.octets(), log);
+    }
+
+    private static void ecrireCartesBinaire(EcrivainBinaire sortie, PileCartesWagon cartes) {
+        sortie.entier(cartes.size());
+        for (int i = 0; i < cartes.size(); i++) {
+            sortie.octet(cartes.get(i).ordinal());
+        }
+    }
+
+    private static void ecrireCartesJson(EcrivainJson json, PileCartesWagon cartes) {
+        json.debutTableau();
+        for (int i = 0; i < cartes.size(); i++) {
+            json.valeur(cartes.get(i).name());
+        }
+        json.finTableau();
     }
 }
@@ -3,7 +3,7 @@ package fr.umontpellier.iut.rails;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class Joueur {
+public class Joueur implements ElementLog {
 
     /**
      * Les couleurs possibles pour les joueurs (pour l'interface graphique)
@@ -39,25 +39,45 @@ public class Joueur {
     /**
      * Liste des cartes que le joueur a en main
      */
-    private List<CouleurWagon> cartesWagon;
+    private MainCartesWagon cartesWagon;
     /**
      * Liste temporaire de cartes wagon que le joueur est en train de jouer pour
      * payer la capture d'une route ou la construction d'une gare
      */
-    private List<CouleurWagon> cartesWagonPosees;
+    private MainCartesWagon cartesWagonPosees;
     /**
      * Score courant du joueur (somme des valeurs des routes capturées)
      */
     private int score;
+    /**
+     * Villes reliées entre elles par les routes du joueur (construit à la première
+     * route capturée)
+     */
+    private ComposantesConnexes reseau;
+    /**
+     * Tour de jeu en cours (réutilisé d'un tour à l'autre)
+     */
+    private final Tour tour = new Tour(this);
+    /**
+     * Ordre des clés de {@link #asPOJO()}
+     */
+    private static final String[] CLES_JSON = EcrivainJson.ordreHashMap("nom", "couleur", "score", "nbGares",
+            "nbWagons", "estJoueurCourant", "destinations", "cartesWagon", "cartesWagonPosees");
+    private static final CouleurWagon[] COULEURS_WAGON = CouleurWagon.values();
+    /**
+     * Nom du joueur mis en forme pour le log (voir {@link #toLog()})
+     */
+    private final String fragmentLog;
 
     public Joueur(String nom, Jeu jeu, Joueur.Couleur couleur) {
         this.nom = nom;
+        fragmentLog = "<span class=\"joueur\">" + nom + "</span>";
         this.jeu = jeu;
         this.couleur = couleur;
         nbGares = 3;
         nbWagons = 45;
-        cartesWagon = new ArrayList<>();
-        cartesWagonPosees = new ArrayList<>();
+        cartesWagon = new MainCartesWagon();
+        cartesWagonPosees = new MainCartesWagon();
         destinations = new ArrayList<>();
         score = 12; // chaque gare non utilisée vaut 4 points
     }
@@ -78,11 +98,11 @@ public class Joueur {
         return jeu;
     }
 
-    public List<CouleurWagon> getCartesWagonPosees() {
+    public MainCartesWagon getCartesWagonPosees() {
         return cartesWagonPosees;
     }
 
-    public List<CouleurWagon> getCartesWagon() {
+    public MainCartesWagon getCartesWagon() {
         return cartesWagon;
     }
 
@@ -143,34 +163,63 @@ public class Joueur {
      *                    chaîne de caractères vide ("") qui signifie qu'il désire
      *                    passer.
      * @return le choix de l'utilisateur (un élément de {@code choix}, ou de
-     * {@code boutons} ou la chaîne vide)
+     * {@code boutons} ou la chaîne vide), ou null si la lecture de l'entrée a
+     * été interrompue (voir {@link Jeu#lireLigne()})
      */
     public String choisir(String instruction, Collection<String> choix, Collection<String> boutons,
                           boolean peutPasser) {
+        // Aucun choix disponible, ou un seul choix possible
+        String reponse = reponseAutomatique(choix, boutons, peutPasser);
+        if (reponse != null) {
+            return reponse;
+        }
         // on retire les doublons de la liste des choix
         HashSet<String> choixDistincts = new HashSet<>();
         choixDistincts.addAll(choix);
         choixDistincts.addAll(boutons);
+        String entree;
+        // Lit l'entrée de l'utilisateur jusqu'à obtenir un choix valide
+        while (true) {
+            SourceDecisions source = jeu.getSourceDecisions();
+            if (source != null) {
+                entree = source.decider(this, instruction, choix, boutons, peutPasser);
+            } else {
+                jeu.prompt(instruction, boutons, peutPasser);
+                entree = jeu.lireLigne();
+                if (entree == null) return null;
+            }
+            // si une réponse valide est obtenue, elle est renvoyée
+            if (choixDistincts.contains(entree) || (peutPasser && entree.equals("")))
+                return entree;
+        }
+    }
 
-        // Aucun choix disponible
-        if (choixDistincts.isEmpty()) {
-            return "";
-        } else {
-            // Un seul choix possible (renvoyer cet unique élément)
-            if (choixDistincts.size() == 1 && !peutPasser)
-                return choixDistincts.iterator().next();
-            else {
-                String entree;
-                // Lit l'entrée de l'utilisateur jusqu'à obtenir un choix valide
-                while (true) {
-                    jeu.prompt(instruction, boutons, peutPasser);
-                    entree = jeu.lireLigne();
-                    // si une réponse valide est obtenue, elle est renvoyée
-                    if (choixDistincts.contains(entree) || (peutPasser && entree.equals("")))
-                        return entree;
-                }
+    /**
+     * Réponse à une question qui n'a pas besoin d'être posée au joueur (voir
+     * {@link #choisir}) : la chaîne vide s'il n'y a aucun choix, l'unique choix
+     * possible si le joueur ne peut pas passer
+     *
+     * @return la réponse, ou null s'il faut attendre la réponse du joueur
+     */
+    static String reponseAutomatique(Collection<String> choix, Collection<String> boutons, boolean peutPasser) {
+        String premier = null;
+        for (String c : choix) {
+            if (premier == null) {
+                premier = c;
+            } else if (!premier.equals(c)) {
+                // au moins deux choix distincts
+                return null;
+            }
+        }
+        for (String c : boutons) {
+            if (premier == null) {
+                premier = c;
+            } else if (!premier.equals(c)) {
+                return null;
             }
         }
+        if (premier == null) return "";
+        return peutPasser ? null : premier;
     }
 
     /**
@@ -183,6 +232,14 @@ public class Joueur {
         jeu.log(message);
     }
 
+    public void log(EntreeLog.Evenement evenement, ElementLog element) {
+        jeu.log(evenement, element);
+    }
+
+    public void log(EntreeLog.Evenement evenement, String texte) {
+        jeu.log(evenement, texte);
+    }
+
     @Override
     public String toString() {
         StringJoiner joiner = new StringJoiner("\n");
@@ -198,8 +255,9 @@ public class Joueur {
      * @return une chaîne de caractères contenant le nom du joueur, avec des balises
      * HTML pour être mis en forme dans le log
      */
+    @Override
     public String toLog() {
-        return String.format("<span class=\"joueur\">%s</span>", nom);
+        return fragmentLog;
     }
 
     /**
@@ -214,13 +272,127 @@ public class Joueur {
         data.put("nbGares", nbGares);
         data.put("nbWagons", nbWagons);
         data.put("estJoueurCourant", this == jeu.getJoueurCourant());
-        data.put("destinations", destinations.stream().map(Destination::asPOJO).collect(Collectors.toList()));
-        data.put("cartesWagon", cartesWagon.stream().sorted().map(CouleurWagon::name).collect(Collectors.toList()));
-        data.put("cartesWagonPosees",
-                cartesWagonPosees.stream().sorted().map(CouleurWagon::name).collect(Collectors.toList()));
+        data.put("destinations", destinations.stream().map(d -> d.asPOJO(estRealisee(d))).collect(Collectors.toList()));
+        // les mains sont déjà triées par couleur
+        data.put("cartesWagon", CouleurWagon.listeWagonToString(cartesWagon));
+        data.put("cartesWagonPosees", CouleurWagon.listeWagonToString(cartesWagonPosees));
         return data;
     }
 
+    /**
+     * Écrit la représentation JSON du joueur (la même que celle de
+     * {@link #asPOJO()}), sans construire de table ni de liste
+     */
+    public void ecrireJson(EcrivainJson json) {
+        json.debutObjet();
+        for (String cle : CLES_JSON) {
+            json.nom(cle);
+            switch (cle) {
+                case "nom" -> json.valeur(nom);
+                case "couleur" -> json.valeur(couleur.name());
+                case "score" -> json.valeur(score);
+                case "nbGares" -> json.valeur(nbGares);
+                case "nbWagons" -> json.valeur(nbWagons);
+                case "estJoueurCourant" -> json.valeur(this == jeu.getJoueurCourant());
+                case "destinations" -> {
+                    json.debutTableau();
+                    for (Destination destination : destinations) {
+                        destination.ecrireJson(json, estRealisee(destination));
+                    }
+                    json.finTableau();
+                }
+                case "cartesWagon" -> ecrireCartesJson(json, cartesWagon);
+                default -> ecrireCartesJson(json, cartesWagonPosees);
+            }
+        }
+        json.finObjet();
+    }
+
+    /**
+     * Écrit la représentation binaire du joueur (voir {@link ProtocoleBinaire}) :
+     * nom, couleur, score, nbGares, nbWagons, destinations (indice dans le
+     * catalogue et réalisation), nombre de cartes de chaque couleur en main
+     * puis posées
+     */
+    public void ecrireBinaire(EcrivainBinaire sortie) {
+        sortie.texte(nom);
+        sortie.octet(couleur.ordinal());
+        sortie.signe(score);
+        sortie.entier(nbGares);
+        sortie.entier(nbWagons);
+        sortie.entier(destinations.size());
+        for (Destination destination : destinations) {
+            sortie.entier(Destination.indice(destination.getNom()) << 1 | (estRealisee(destination) ? 1 : 0));
+        }
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            sortie.entier(cartesWagon.nb(couleur));
+        }
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            sortie.entier(cartesWagonPosees.nb(couleur));
+        }
+    }
+
+    /**
+     * Écrit une main comme la liste des noms de ses cartes (triées par couleur)
+     */
+    private static void ecrireCartesJson(EcrivainJson json, MainCartesWagon main) {
+        json.debutTableau();
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            for (int i = main.nb(couleur); i > 0; i--) {
+                json.valeur(couleur.name());
+            }
+        }
+        json.finTableau();
+    }
+
+    /**
+     * Indique si les deux villes de la destination sont reliées par des routes du
+     * joueur (les gares ne sont pas prises en compte)
+     *
+     * @throws IllegalArgumentException si une ville de la destination n'est pas
+     *                                  sur le plateau
+     */
+    public boolean estRealisee(Destination destination) {
+        Ville ville1 = getVilleDestination(destination.getVille1());
+        Ville ville2 = getVilleDestination(destination.getVille2());
+        return reseau != null && reseau.sontReliees(ville1.getId(), ville2.getId());
+    }
+
+    private Ville getVilleDestination(String nom) {
+        Ville ville = jeu.getVilleByNom(nom);
+        if (ville == null) {
+            throw new IllegalArgumentException("Ville de destination inconnue : " + nom);
+        }
+        return ville;
+    }
+
+    /**
+     * Replace le joueur dans un état sauvegardé (voir {@link Instantane}) ; le
+     * réseau est reconstruit à partir des routes dont il est propriétaire
+     */
+    void restaurer(Couleur couleur, int nbGares, int nbWagons, int score) {
+        this.couleur = couleur;
+        this.nbGares = nbGares;
+        this.nbWagons = nbWagons;
+        this.score = score;
+        reseau = null;
+        for (Route route : jeu.getRoutes()) {
+            if (route.getProprietaire() == this) {
+                ajouterAuReseau(route);
+            }
+        }
+    }
+
+    /**
+     * Ajoute une route capturée au réseau du joueur
+     */
+    private void ajouterAuReseau(Route route) {
+        if (reseau == null) {
+            reseau = new ComposantesConnexes(jeu.getVilles().size());
+        }
+        reseau.reunir(route.getVille1().getId(), route.getVille2().getId());
+    }
+
     public int getNbGares() {
         return nbGares;
     }
@@ -248,51 +420,9 @@ public class Joueur {
      * @return liste des destinations qui n'ont pas été gardées par le joueur
      */
     public List<Destination> choisirDestinations(List<Destination> destinationsPossibles, int n) {
-        ArrayList<Destination> destinationsJete = new ArrayList<>();
-        ArrayList<Destination> destinationsJoueur = new ArrayList<>();
-        ArrayList<String> choix = new ArrayList<>();
-        ArrayList<String> boutons = new ArrayList<>();
-
-        for (Destination d : destinationsPossibles  ){
-            choix.add(d.getNom());
-            boutons.add(d.getNom());
-        }
-
-        for(Destination d : destinationsPossibles){
-            destinationsJoueur.add(d);
-        }
-
-        //Dans choisir soit on utilise des boutons ou des choix
-        //cc
-
-        while(destinationsJoueur.size() > n) {
-            String laCarteADefausser = choisir("Choisir les destinations à defausser (max 2)", choix,boutons, true);
-
-            if (laCarteADefausser.equals("")) { //si le string est vide alors on passe donc return liste vide
-                for (Destination d: destinationsJoueur){
-                    destinations.add(d);
-                    log("Vous avez gardé la destination "+d.getNom());
-                }
-                return destinationsJete;
-            }
-
-            for (Destination d : destinationsPossibles) {
-                if (laCarteADefausser.equals(d.getNom())) {
-                    destinationsJete.add(d);
-                    destinationsJoueur.remove(d);
-                    //netoyer les boutons
-                    boutons.remove(d.getNom());
-                    choix.remove(d.getNom());
-                    log("Vous avez abandonné la destination "+d.getNom());
-                }
-            }
-        }
-        for (Destination d: destinationsJoueur){
-            destinations.add(d);
-            log("Vous avez gardé la destination "+d.getNom());
-        }
-
-        return destinationsJete;
+        tour.commencerChoixDestinations(destinationsPossibles, n);
+        executerTour();
+        return new ArrayList<>(tour.getDestinationsDefaussees());
     }
 
     /**
@@ -321,251 +451,113 @@ public class Joueur {
      * "construire une gare", "choisir les destinations à défausser", etc.)
      */
     public void jouerTour() {
-        // liste d'éléments cliquables sur ce tour
-        ArrayList<String> optionTourDeJeu = new ArrayList<>();
-
-        // On remplit la liste avec :
-        // les routes disponibles
-        List<String> nomRoutesDisponibles = new ArrayList<>();
-        for (Route route : jeu.getRoutes()){
-            if(route.getProprietaire()==null) {
-                nomRoutesDisponibles.add(route.getNom());
-                optionTourDeJeu.add(route.getNom());
-            }
-        }
-        // les villes disponibles
-        ArrayList<String> listeVillesDispos = new ArrayList<>();
-        // on remplit une liste de villes qui n'ont pas de propriétaire
-        for (Ville ville : jeu.getVilles()){
-            if (ville.getProprietaire() == null) {
-                listeVillesDispos.add(ville.toString());
-                optionTourDeJeu.add(ville.toString());
-            }
-        }
-        // les cartes Wagon visibles + la pioche
-        ArrayList<String> cartesWagonDisponibles=new ArrayList<>();
-        if(!jeu.getPileCartesWagon().isEmpty()||!jeu.getDefausseCartesWagon().isEmpty()){
-            cartesWagonDisponibles.add("GRIS");
-            optionTourDeJeu.add("GRIS");
-        }
-        for(CouleurWagon wagon : jeu.getCartesWagonVisibles()){
-            cartesWagonDisponibles.add(wagon.name());
-            optionTourDeJeu.add(wagon.name());
-        }
-        // la pioche destination
-        if(!jeu.getPileDestinations().isEmpty())
-        optionTourDeJeu.add("destinations");
-
-        // choix parmi la liste d'éléments cliquables sur ce tour
-        String optionChoisie = this.choisir("Que voulez-vous faire ?", optionTourDeJeu, new ArrayList<>(), true);
-        // On teste l'option choisie :
-        // Capturer route ?
-        if (nomRoutesDisponibles.contains(optionChoisie)) {
-            choixRoute(optionChoisie);
-        }
-        // Ville cliquée ?
-        if (listeVillesDispos.contains(optionChoisie)) {
-            choixGare(optionChoisie);
-        }
-        // carte Wagon ?
-        if (cartesWagonDisponibles.contains(optionChoisie))  {
-            choixCartesWagon(optionChoisie);
-        }
-        // nouvelle Destination ?
-        if (optionChoisie.equals("destinations"))  {
-            choixDestinationSuplementaire();
-        }
+        tour.commencer();
+        executerTour();
     }
 
-    public void choixRoute(String routeChoisie) {
-        Route route = jeu.getRouteByNom(routeChoisie);
-        CouleurWagon couleurRoute = route.getCouleur();
-        log("Route choisie : "+route.toLog());
-        //on test si la route choisie par joueur est faisable
-        if (cartesWagon.size()<route.getLongueur()||nbWagons< route.getLongueur()){
-            log("Carte wagon ou wagon insuffisant");
-            jouerTour();
-            return;
-        }
-        if (couleurRoute.equals(CouleurWagon.GRIS)) {
-            if (!route.testFaisabiliteGris(cartesWagon)) {
-                log("Vous ne pouvez pas construire cette route");
-                jouerTour();
-                return;
-            }
-        } else {
-            if (!route.testFaisabiliteCouleur(cartesWagon, couleurRoute)) {
-                log("Vous ne pouvez pas construire cette route");
-                jouerTour();
-                return;
-            }
-        }
-        //On sait que cette route est faisable donc on peut construire
-        while (true){
-            String wagon = choisir("Choisir une carte wagon à poser", CouleurWagon.listeWagonToString(cartesWagon), new ArrayList<>(), false);
-            CouleurWagon wagonChoisi=CouleurWagon.valueOf(wagon);
-            if (route.verifierCouleurWagonChoisie(wagonChoisi,cartesWagon,getCartesWagonPosees())) {
-                if(route.seConstruire(wagonChoisi,this)) {
-                    for(CouleurWagon c : cartesWagonPosees) jeu.defausserCarteWagon(c);
-                    cartesWagonPosees.clear();
-                    route.setProprietaire(this);
-                    nbWagons-= route.getLongueur();
-                    setScore(score + route.calculerPoints());
-                    log("Vous êtes propiétaire de "+route.toLog());
-                }
-                return;
-            }else log(wagonChoisi.toLog()+" n'est pas valide");
-        }
+    Tour getTour() {
+        return tour;
     }
 
-    public void choixGare(String optionChoisie){
-        // le joueur a-t-il le droit de faire ce choix ?
-        if(nbGares==0){
-            log("Choix impossible ! Vous n'avez plus de gares...");
-            jouerTour();
-        }
-        // nombre de cartes à défausser pour la gare
-        int nbCartesADefausser = 4 - nbGares;
-        // liste de couleurs défaussées
-        List<CouleurWagon> listeCartesWagonPosees = new ArrayList<>();
-        cartesWagonPosees = new ArrayList<>();
-
-        // Défausser le nombre de cartes
-        for(int i=0; i<nbCartesADefausser; i++){
-            ArrayList<String> cartesWagonJoueur = new ArrayList<>();
-            for(CouleurWagon couleurWagon : cartesWagon) cartesWagonJoueur.add(couleurWagon.name());
-            String carteADefausser = choisir("Choisir carte à défausser.", cartesWagonJoueur, new ArrayList<>(), true);
-
-            // carte ajoutée à la liste à défausser
-            cartesWagonPosees.add(CouleurWagon.valueOf(carteADefausser));
-            // carte supprimée (temporairement si erreur de choix) de la main du joueur
-            cartesWagon.remove(CouleurWagon.valueOf(carteADefausser));
-//            log(carteADefausser);
-            log("vous avez posé "+CouleurWagon.valueOf(carteADefausser).toLog());
-        }
-
-        // si les cartes défaussées sont de la même couleur (+ locos)
-        if(jeu.verifierCouleursDefausseesGare(cartesWagonPosees)){
-            // on defausse les cartes
-            for (CouleurWagon couleur : cartesWagonPosees) jeu.defausserCarteWagon(couleur);
-
-            String choixVille = optionChoisie;
-            // on attribue la ville choisie au joueur, qui devient son propriétaire
-            for (Ville ville : jeu.getVilles()){
-                if(ville.toString().equals(choixVille) && nbGares>0) {
-                    ville.setProprietaire(this);
-                    // on soustrait 4 points au score
-                    score-=4;
-                    // on décrémente le nombre de gares disponibles
-                    nbGares--;
-                    // clean cartes posées
-                    cartesWagonPosees.clear();
-                    log("Gare construite sur la ville de "+ville.toLog());
-                }
-            }
-        } else {
-            log("Couleurs défaussées non équivalentes");
-            // on remet les cartes dans la main du joueur
-            for (CouleurWagon couleur : cartesWagonPosees) {
-                cartesWagon.add(couleur);
-            }
-            cartesWagonPosees.clear();
-            jouerTour();
+    /**
+     * Pose les questions du tour en cours jusqu'à ce qu'il soit terminé (voir
+     * {@link Tour}), ou jusqu'à ce que la lecture des réponses soit interrompue
+     */
+    private void executerTour() {
+        while (!tour.estTermine()) {
+            String reponse = choisir(tour.getInstruction(), tour.getChoix(), tour.getBoutons(), tour.peutPasser());
+            if (reponse == null) return;
+            tour.traiter(reponse);
         }
     }
 
-    public void choixCartesWagon(String optionChoisie){
-        String choixUtilisateur = optionChoisie;
-        //si joueur a pioché une locomotive, on l'ajoute dans sa main et il passe son tour
-        if (choixUtilisateur.equals(CouleurWagon.LOCOMOTIVE.name())) {
-            jeu.retirerCarteWagonVisible(CouleurWagon.valueOf(choixUtilisateur));
-            cartesWagon.add(CouleurWagon.valueOf(choixUtilisateur));
-            log("Vous avez pioché "+CouleurWagon.LOCOMOTIVE.toLog());
-            return;
-        }
-        else {
-            // sinon on ajoute la premiere carte au joueur
-            if (choixUtilisateur.equals("GRIS")) {
-                cartesWagon.add(jeu.piocherCarteWagon());
-                log("Vous avez pioché "+CouleurWagon.GRIS.toLog());
-            }
-            else {
-                jeu.retirerCarteWagonVisible(CouleurWagon.valueOf(choixUtilisateur));
-                cartesWagon.add(CouleurWagon.valueOf(choixUtilisateur));
-                log("Vous avez pioché "+CouleurWagon.valueOf(choixUtilisateur).toLog());
-            }
-
-            //créer une liste de choix avec toutes les wagons visibles + wagon caché
-            ArrayList<String> choix=new ArrayList<>();
-            if(!jeu.getPileCartesWagon().isEmpty()||!jeu.getDefausseCartesWagon().isEmpty())
-                choix.add("GRIS");
-            for(CouleurWagon wagon : jeu.getCartesWagonVisibles() ){
-                choix.add(wagon.name());
-            }
+    /**
+     * Joue un tour dont la première réponse (le choix de l'action) est déjà connue
+     *
+     * @return false si l'action n'est pas possible (rien n'est joué)
+     */
+    private boolean jouerAction(String optionChoisie) {
+        tour.commencer();
+        if (!tour.traiter(optionChoisie)) return false;
+        executerTour();
+        return true;
+    }
 
-            while (true){
-                //on récupère le choix de l'utilisateur
-                choixUtilisateur = choisir("Quelle carte Wagon voulez-vous piocher ?",choix, new ArrayList<>(), true);
+    /**
+     * @return true si le joueur a assez de wagons et de cartes wagon pour capturer
+     * la route
+     */
+    public boolean peutCapturer(Route route) {
+        if (cartesWagon.size() < route.getLongueur() || nbWagons < route.getLongueur()) return false;
+        if (route.getCouleur().equals(CouleurWagon.GRIS)) return route.testFaisabiliteGris(cartesWagon);
+        return route.testFaisabiliteCouleur(cartesWagon, route.getCouleur());
+    }
 
-                //s'il a cliqué sur la pile wagon caché on lui pioche une carte wagon cachée
-                if(choixUtilisateur.equals("GRIS")){
-                    cartesWagon.add(jeu.piocherCarteWagon());
-                    log("Vous avez pioché "+CouleurWagon.GRIS.toLog());
-                    return;
-                }
+    /**
+     * @return true si le joueur a encore une gare et assez de cartes d'une même
+     * couleur (locomotives comprises) pour la construire
+     */
+    public boolean peutConstruireGare() {
+        return nbGares > 0
+                && cartesWagon.nbMaxCouleurSimple() + cartesWagon.nb(CouleurWagon.LOCOMOTIVE) >= 4 - nbGares;
+    }
 
-                //Si il veut rien piocher il passe son tour
-                if(choixUtilisateur.equals("")) return;
+    /**
+     * Capture une route (le joueur choisit les cartes wagon à poser)
+     *
+     * @return false si le joueur ne peut pas capturer la route (rien n'est joué)
+     */
+    public boolean choixRoute(String routeChoisie) {
+        return jouerAction(routeChoisie);
+    }
 
-                // choix loco interdit en deuxième carte
-                if (choixUtilisateur.equals(CouleurWagon.LOCOMOTIVE.name())) {
-                    log("Choix impossible en deuxième carte...");
-                    continue;
-                }
+    /**
+     * Construit une gare sur la ville (le joueur choisit les cartes wagon à
+     * défausser)
+     *
+     * @return false si le joueur ne peut pas construire de gare sur la ville (rien
+     * n'est joué)
+     */
+    public boolean choixGare(String optionChoisie) {
+        return jouerAction(optionChoisie);
+    }
 
-                else {
-                    jeu.retirerCarteWagonVisible(CouleurWagon.valueOf(choixUtilisateur));
-                    cartesWagon.add(CouleurWagon.valueOf(choixUtilisateur));
-                    log("Vous avez pioché "+CouleurWagon.valueOf(choixUtilisateur).toLog());
-                    return;
-                }
-            }
-        }
+    /**
+     * Pioche des cartes wagon, en commençant par la carte visible (ou la pioche
+     * pour "GRIS") passée en argument
+     */
+    public void choixCartesWagon(String optionChoisie) {
+        jouerAction(optionChoisie);
     }
 
     public void choixDestinationSuplementaire() {
-        ArrayList<Destination> listDestinationSuplementaires = new ArrayList();
-        ArrayList<String> listDestinationSuplementaireString = new ArrayList<>();
-
-        for (int i = 0; i < 3; i++) {
-            if(!jeu.getPileDestinations().isEmpty())
-            listDestinationSuplementaires.add(jeu.piocherDestination());
-        }
-
-        for (Destination d : listDestinationSuplementaires) {
-            listDestinationSuplementaireString.add(d.getNom());
-        }
-
-        while (listDestinationSuplementaires.size() > 1) {
-            String choix = choisir("Voulez-vous défausser certaines destinations ? (maximum 2)",
-                    listDestinationSuplementaireString, listDestinationSuplementaireString, true);
-
-            if (choix.equals("")) break;
-            if (listDestinationSuplementaireString.contains(choix)) {
-                int index = listDestinationSuplementaireString.indexOf(choix);
-                Destination cp = listDestinationSuplementaires.get(index);
-
-                jeu.getPileDestinations().add(cp);
-                listDestinationSuplementaireString.remove(cp.getNom());
-                listDestinationSuplementaires.remove(cp);
-                log("Vous avez abandonné la destination "+cp.getNom());
-            }
-        }
+        jouerAction(ActionsPossibles.DESTINATIONS);
+    }
 
-        for (Destination d : listDestinationSuplementaires) {
-            destinations.add(d);
-            log("Vous avez gardé la destination "+d.getNom());
-        }
+    /**
+     * Le joueur devient propriétaire de la route : les cartes posées sont
+     * défaussées, les wagons retirés et les points marqués
+     */
+    void capturer(Route route) {
+        for (CouleurWagon c : cartesWagonPosees) jeu.defausserCarteWagon(c);
+        cartesWagonPosees.clear();
+        route.setProprietaire(this);
+        ajouterAuReseau(route);
+        nbWagons -= route.getLongueur();
+        setScore(score + route.calculerPoints());
+        log(EntreeLog.Evenement.ROUTE_CAPTUREE, route);
     }
 
+    /**
+     * Construit une gare sur la ville avec les cartes posées (qui sont défaussées)
+     */
+    void construireGare(Ville ville) {
+        for (CouleurWagon couleur : cartesWagonPosees) jeu.defausserCarteWagon(couleur);
+        cartesWagonPosees.clear();
+        ville.setProprietaire(this);
+        // on soustrait 4 points au score
+        score -= 4;
+        nbGares--;
+        log(EntreeLog.Evenement.GARE_CONSTRUITE, ville);
+    }
 }
@@ -0,0 +1,430 @@
+package fr.umontpellier.iut.rails;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Journal des entrées d'une partie, pour la reprendre après un arrêt du
+ * serveur ou vérifier son déroulement en cas de litige.
+ * <p>
+ * Le journal est un fichier binaire auquel on ne fait qu'ajouter des
+ * enregistrements. L'en-tête contient la graine de la partie (voir
+ * {@link Jeu#getGraine()}), sa date de création et le nom des joueurs ; il est
+ * suivi d'un enregistrement par entrée traitée par le jeu (voir
+ * {@link Jeu#traiterEntree(String)}) :
+ * <pre>
+ * en-tête : int MAGIQUE, byte VERSION, long graine, long date, byte nbJoueurs, nbJoueurs x UTF nom
+ * entrée  : int longueur, long date, longueur x octet (texte de l'entrée en UTF-8)
+ * </pre>
+ * Les dates sont en millisecondes depuis le 1er janvier 1970. Comme les
+ * mélanges ne dépendent que de la graine, rejouer les entrées dans l'ordre
+ * sur une partie créée avec la même graine reconstruit exactement son état
+ * (voir {@link #rejouer(InputStream)}). Un enregistrement incomplet en fin de
+ * fichier (arrêt pendant l'écriture) est ignoré.
+ * <p>
+ * Si une entrée ne peut pas être écrite, le journal est en échec (voir
+ * {@link #estEnEchec()}) : il n'enregistre plus rien, et la partie est
+ * arrêtée (voir {@link Jeu#estArretee()}) pour ne pas s'écarter de celle que
+ * le journal permet de reconstruire.
+ */
+public class Journal implements Closeable {
+    /**
+     * Premiers octets d'un journal ("RAIL")
+     */
+    public static final int MAGIQUE = 0x5241494C;
+    public static final byte VERSION = 1;
+    /**
+     * Longueur maximale d'une entrée (au-delà, l'enregistrement est considéré
+     * comme corrompu)
+     */
+    private static final int LONGUEUR_MAX = 1 << 16;
+
+    private final DataOutputStream sortie;
+    /**
+     * Fichier du journal (null si le journal est écrit dans un autre flux)
+     */
+    private final Path fichier;
+    private boolean ferme;
+    /**
+     * Erreur qui a empêché d'écrire une entrée (null si toutes les entrées ont
+     * été enregistrées)
+     */
+    private IOException erreur;
+
+    /**
+     * Crée le journal d'une nouvelle partie (l'en-tête est écrit immédiatement)
+     *
+     * @param sortie flux dans lequel le journal est écrit
+     * @param jeu    la partie, pas encore commencée
+     */
+    public Journal(OutputStream sortie, Jeu jeu) throws IOException {
+        this(sortie, jeu, null);
+    }
+
+    private Journal(OutputStream sortie, Jeu jeu, Path fichier) throws IOException {
+        this(sortie, fichier);
+        List<Joueur> joueurs = jeu.getJoueurs();
+        this.sortie.writeInt(MAGIQUE);
+        this.sortie.writeByte(VERSION);
+        this.sortie.writeLong(jeu.getGraine());
+        this.sortie.writeLong(System.currentTimeMillis());
+        this.sortie.writeByte(joueurs.size());
+        for (Joueur joueur : joueurs) {
+            this.sortie.writeUTF(joueur.getNom());
+        }
+        this.sortie.flush();
+    }
+
+    /**
+     * Journal dont l'en-tête est déjà écrit (reprise d'une partie)
+     */
+    private Journal(OutputStream sortie, Path fichier) {
+        this.sortie = new DataOutputStream(new BufferedOutputStream(sortie));
+        this.fichier = fichier;
+    }
+
+    /**
+     * Crée le fichier journal d'une nouvelle partie (un fichier existant est
+     * remplacé). Le fichier est archivé lorsque la partie se termine (voir
+     * {@link #terminer()}).
+     */
+    public static Journal creer(Path fichier, Jeu jeu) throws IOException {
+        return new Journal(Files.newOutputStream(fichier), jeu, fichier);
+    }
+
+    /**
+     * Ajoute une entrée au journal. L'enregistrement est transmis au système dès
+     * qu'il est écrit : il survit à un arrêt brutal du serveur (mais pas
+     * forcément à une panne de la machine).
+     *
+     * @return false si l'entrée n'a pas pu être enregistrée (le journal est en
+     * échec, voir {@link #estEnEchec()})
+     */
+    public boolean enregistrer(String entree) {
+        if (erreur != null) {
+            return false;
+        }
+        if (ferme) {
+            return true;
+        }
+        byte[] octets = entree.getBytes(StandardCharsets.UTF_8);
+        try {
+            sortie.writeInt(octets.length);
+            sortie.writeLong(System.currentTimeMillis());
+            sortie.write(octets);
+            sortie.flush();
+            return true;
+        } catch (IOException e) {
+            erreur = e;
+            System.err.println("Le journal ne peut plus être écrit, la partie est arrêtée : " + e);
+            ferme = true;
+            try {
+                sortie.close();
+            } catch (IOException suivante) {
+                // le flux est déjà inutilisable
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return true si une entrée n'a pas pu être écrite (le journal n'enregistre
+     * plus rien)
+     */
+    public boolean estEnEchec() {
+        return erreur != null;
+    }
+
+    /**
+     * @return l'erreur qui a mis le journal en échec (null s'il n'est pas en échec)
+     */
+    public IOException getErreur() {
+        return erreur;
+    }
+
+    /**
+     * Ferme le journal d'une partie terminée. Un fichier journal est archivé
+     * (voir {@link #archiver(Path)}) : la partie ne sera pas reprise, et une
+     * nouvelle partie peut utiliser le même fichier.
+     */
+    public void terminer() {
+        close();
+        if (fichier != null && erreur == null) {
+            try {
+                archiver(fichier);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Renomme le fichier journal d'une partie terminée en
+     * {@code <nom>.<date>.termine}, dans le même dossier
+     *
+     * @return le fichier archivé
+     */
+    public static Path archiver(Path fichier) throws IOException {
+        return mettreDeCote(fichier, "termine");
+    }
+
+    /**
+     * Renomme un fichier journal en {@code <nom>.<date>.<suffixe>}, dans le
+     * même dossier (le journal ne sera plus repris)
+     *
+     * @return le nouveau chemin du fichier
+     */
+    public static Path mettreDeCote(Path fichier, String suffixe) throws IOException {
+        Path archive = fichier.resolveSibling(fichier.getFileName() + "." + System.currentTimeMillis() + "." + suffixe);
+        return Files.move(fichier, archive);
+    }
+
+    @Override
+    public void close() {
+        if (ferme) {
+            return;
+        }
+        ferme = true;
+        try {
+            sortie.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reconstruit une partie en rejouant toutes les entrées d'un journal, sans
+     * affichage ni envoi aux clients. La partie obtenue est en mode normal (voir
+     * {@link Jeu#setModeAffichage()}) et attend la réponse à la question en
+     * cours ; elle peut être hébergée comme une nouvelle partie (voir
+     * {@link Jeu#demarrer()}).
+     */
+    public static Jeu rejouer(InputStream entree) throws IOException {
+        return rejouer(new Lecteur(entree), null);
+    }
+
+    /**
+     * Reconstruit une partie à partir d'un instantané et de son journal : la
+     * partie est restaurée (voir {@link Instantane#restaurer(byte[])}), puis
+     * seules les entrées enregistrées après l'instantané sont rejouées (celles
+     * qui précèdent sont lues sans être jouées, l'instantané contient leur
+     * nombre). Le log de la partie ne contient que les messages de ces
+     * dernières entrées.
+     *
+     * @throws IOException si le journal n'est pas celui de la partie de
+     *                     l'instantané, ou s'il s'arrête avant l'instantané
+     */
+    public static Jeu rejouer(byte[] instantane, InputStream entree) throws IOException {
+        return rejouer(new Lecteur(entree), instantane);
+    }
+
+    /**
+     * @param instantane instantané à partir duquel la partie est reconstruite
+     *                   (null pour rejouer tout le journal)
+     */
+    private static Jeu rejouer(Lecteur lecteur, byte[] instantane) throws IOException {
+        Jeu jeu;
+        if (instantane == null) {
+            jeu = new Jeu(lecteur.getNomsJoueurs(), lecteur.getGraine());
+            jeu.setModeSansAffichage(null, true);
+            jeu.demarrer();
+        } else {
+            jeu = Instantane.restaurer(instantane);
+            if (jeu.getGraine() != lecteur.getGraine()) {
+                throw new IOException("L'instantané n'est pas celui de la partie du journal");
+            }
+            for (int i = 0; i < jeu.getNbEntrees(); i++) {
+                if (!lecteur.suivante()) {
+                    throw new IOException("Le journal s'arrête avant l'instantané");
+                }
+            }
+            jeu.setModeSansAffichage(null, true);
+        }
+        while (lecteur.suivante()) {
+            jeu.traiterEntree(lecteur.getEntree());
+        }
+        jeu.setModeAffichage();
+        return jeu;
+    }
+
+    /**
+     * Reprend une partie à partir de son fichier journal : la partie est
+     * reconstruite (voir {@link #rejouer(InputStream)}) et les entrées suivantes
+     * sont ajoutées à la fin du même fichier (un enregistrement incomplet en fin
+     * de fichier est d'abord effacé).
+     * <p>
+     * Si la partie reconstruite est terminée (arrêt du serveur avant que son
+     * journal ne soit archivé), le journal est archivé et la partie est
+     * renvoyée sans journal.
+     */
+    public static Jeu reprendre(Path fichier) throws IOException {
+        return reprendre(fichier, null);
+    }
+
+    /**
+     * Reprend une partie à partir de son dernier instantané et de son fichier
+     * journal (voir {@link #rejouer(byte[], InputStream)} et
+     * {@link #reprendre(Path)})
+     *
+     * @param instantane instantané de la partie (null pour rejouer tout le journal)
+     */
+    public static Jeu reprendre(Path fichier, byte[] instantane) throws IOException {
+        Jeu jeu;
+        long finEntrees;
+        try (InputStream entree = new BufferedInputStream(Files.newInputStream(fichier))) {
+            Lecteur lecteur = new Lecteur(entree);
+            jeu = rejouer(lecteur, instantane);
+            finEntrees = lecteur.getPosition();
+        }
+        if (jeu.estTerminee()) {
+            archiver(fichier);
+            return jeu;
+        }
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.WRITE)) {
+            canal.truncate(finEntrees);
+        }
+        jeu.setJournal(new Journal(Files.newOutputStream(fichier, StandardOpenOption.APPEND), fichier));
+        return jeu;
+    }
+
+    /**
+     * Lecture d'un journal, entrée par entrée
+     */
+    public static class Lecteur {
+        private final CompteurOctets compteur;
+        private final DataInputStream entree;
+        /**
+         * Nombre d'octets lus jusqu'à la fin de la dernière entrée complète
+         */
+        private long position;
+        private final long graine;
+        private final long date;
+        private final String[] nomsJoueurs;
+        private long dateEntree;
+        private String texteEntree;
+
+        /**
+         * Lit l'en-tête du journal
+         *
+         * @throws IOException si le flux n'est pas un journal valide
+         */
+        public Lecteur(InputStream entree) throws IOException {
+            compteur = new CompteurOctets(entree);
+            this.entree = new DataInputStream(compteur);
+            if (this.entree.readInt() != MAGIQUE) {
+                throw new IOException("Ce fichier n'est pas un journal de partie");
+            }
+            byte version = this.entree.readByte();
+            if (version != VERSION) {
+                throw new IOException("Version de journal inconnue : " + version);
+            }
+            graine = this.entree.readLong();
+            date = this.entree.readLong();
+            nomsJoueurs = new String[this.entree.readUnsignedByte()];
+            for (int i = 0; i < nomsJoueurs.length; i++) {
+                nomsJoueurs[i] = this.entree.readUTF();
+            }
+            position = compteur.nbOctets;
+        }
+
+        public long getGraine() {
+            return graine;
+        }
+
+        /**
+         * @return la date de création de la partie
+         */
+        public long getDate() {
+            return date;
+        }
+
+        public String[] getNomsJoueurs() {
+            return nomsJoueurs;
+        }
+
+        /**
+         * Lit l'entrée suivante
+         *
+         * @return false s'il n'y a plus d'entrée complète
+         */
+        public boolean suivante() throws IOException {
+            try {
+                int longueur = entree.readInt();
+                if (longueur < 0 || longueur > LONGUEUR_MAX) {
+                    return false;
+                }
+                dateEntree = entree.readLong();
+                byte[] octets = new byte[longueur];
+                entree.readFully(octets);
+                texteEntree = new String(octets, StandardCharsets.UTF_8);
+                position = compteur.nbOctets;
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @return le texte de la dernière entrée lue
+         */
+        public String getEntree() {
+            return texteEntree;
+        }
+
+        /**
+         * @return la date à laquelle la dernière entrée lue a été reçue
+         */
+        public long getDateEntree() {
+            return dateEntree;
+        }
+
+        /**
+         * @return la position dans le journal de la fin de la dernière entrée
+         * complète lue
+         */
+        public long getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * Flux qui compte les octets lus
+     */
+    private static class CompteurOctets extends FilterInputStream {
+        private long nbOctets;
+
+        CompteurOctets(InputStream entree) {
+            super(entree);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int octet = super.read();
+            if (octet >= 0) {
+                nbOctets++;
+            }
+            return octet;
+        }
+
+        @Override
+        public int read(byte[] b, int debut, int longueur) throws IOException {
+            int nb = super.read(b, debut, longueur);
+            if (nb > 0) {
+                nbOctets += nb;
+            }
+            return nb;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long nb = super.skip(n);
+            nbOctets += nb;
+            return nb;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fr.umontpellier.iut.rails;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture des données écrites par un {@link EcrivainBinaire}. Lire au-delà de
+ * la fin des données lève une {@link IndexOutOfBoundsException}.
+ */
+public final class LecteurBinaire {
+    private final byte[] octets;
+    private int position;
+
+    public LecteurBinaire(byte[] octets) {
+        this.octets = octets;
+    }
+
+    public byte octet() {
+        return octets[position++];
+    }
+
+    public int entier() {
+        int n = 0;
+        for (int decalage = 0; ; decalage += 7) {
+            byte b = octet();
+            n |= (b & 0x7F) << decalage;
+            if (b >= 0) {
+                return n;
+            }
+        }
+    }
+
+    public int signe() {
+        int n = entier();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public boolean booleen() {
+        return octet() != 0;
+    }
+
+    public long long64() {
+        long n = 0;
+        for (int i = 0; i < 8; i++) {
+            n = (n << 8) | (octet() & 0xFF);
+        }
+        return n;
+    }
+
+    public String texte() {
+        int longueur = entier();
+        if (longueur > octets.length - position) {
+            throw new IndexOutOfBoundsException("Texte de " + longueur + " octets tronqué");
+        }
+        String texte = new String(octets, position, longueur, StandardCharsets.UTF_8);
+        position += longueur;
+        return texte;
+    }
+
+    /**
+     * @return true si toutes les données ont été lues
+     */
+    public boolean estTermine() {
+        return position >= octets.length;
+    }
+}
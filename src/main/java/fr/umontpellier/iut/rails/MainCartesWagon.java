@@ -0,0 +1,177 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Main de cartes wagon d'un joueur, représentée par le nombre de cartes de
+ * chaque couleur.
+ * <p>
+ * Les tests de faisabilité et de paiement des routes n'ont besoin que du
+ * nombre de cartes de chaque couleur : ils se font en temps proportionnel au
+ * nombre de couleurs, sans parcourir la main ni allouer de liste.
+ * <p>
+ * La classe implémente aussi {@link java.util.List} (pour l'affichage, la
+ * sérialisation et les tests). Une main n'est pas ordonnée : la vue liste
+ * présente toujours les cartes triées par couleur (dans l'ordre de
+ * {@link CouleurWagon}), quel que soit l'ordre dans lequel elles ont été
+ * ajoutées. En particulier {@code add(i, carte)} ajoute la carte sans tenir
+ * compte de l'indice, et {@code set(i, carte)} remplace une carte par une autre
+ * (qui peut se retrouver à un autre indice).
+ */
+public class MainCartesWagon extends AbstractList<CouleurWagon> implements RandomAccess {
+    private static final CouleurWagon[] COULEURS = CouleurWagon.values();
+    private static final int NB_COULEURS = COULEURS.length;
+
+    /**
+     * Nombre de cartes de chaque couleur (indice = ordinal de la couleur)
+     */
+    private final int[] nbCartes = new int[NB_COULEURS];
+    private int taille;
+
+    public MainCartesWagon() {
+    }
+
+    public MainCartesWagon(Collection<CouleurWagon> cartes) {
+        addAll(cartes);
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur passée en argument
+     */
+    public int nb(CouleurWagon couleur) {
+        return nbCartes[couleur.ordinal()];
+    }
+
+    /**
+     * @return le plus grand nombre de cartes d'une même couleur simple (ni GRIS
+     * ni LOCOMOTIVE)
+     */
+    public int nbMaxCouleurSimple() {
+        int max = 0;
+        for (int i = CouleurWagon.NOIR.ordinal(); i <= CouleurWagon.ROSE.ordinal(); i++) {
+            max = Math.max(max, nbCartes[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Ajoute des cartes d'une couleur
+     */
+    public void ajouter(CouleurWagon couleur, int nb) {
+        nbCartes[couleur.ordinal()] += nb;
+        taille += nb;
+        modCount++;
+    }
+
+    /**
+     * Retire une carte de la couleur passée en argument
+     *
+     * @return true si la main contenait une carte de cette couleur
+     */
+    public boolean retirer(CouleurWagon couleur) {
+        if (nbCartes[couleur.ordinal()] == 0) {
+            return false;
+        }
+        nbCartes[couleur.ordinal()]--;
+        taille--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Ajoute toutes les cartes d'une autre main
+     */
+    public void ajouterTout(MainCartesWagon autre) {
+        for (int i = 0; i < NB_COULEURS; i++) {
+            nbCartes[i] += autre.nbCartes[i];
+        }
+        taille += autre.taille;
+        modCount++;
+    }
+
+    /**
+     * @return l'ordinal de la couleur de la carte d'indice i (dans l'ordre des
+     * couleurs)
+     */
+    private int ordinalA(int i) {
+        if (i < 0 || i >= taille) {
+            throw new IndexOutOfBoundsException("Indice " + i + ", taille " + taille);
+        }
+        int c = 0;
+        while (i >= nbCartes[c]) {
+            i -= nbCartes[c];
+            c++;
+        }
+        return c;
+    }
+
+    @Override
+    public CouleurWagon get(int i) {
+        return COULEURS[ordinalA(i)];
+    }
+
+    @Override
+    public CouleurWagon set(int i, CouleurWagon carte) {
+        int c = ordinalA(i);
+        nbCartes[c]--;
+        nbCartes[carte.ordinal()]++;
+        return COULEURS[c];
+    }
+
+    @Override
+    public int size() {
+        return taille;
+    }
+
+    @Override
+    public boolean add(CouleurWagon carte) {
+        ajouter(carte, 1);
+        return true;
+    }
+
+    @Override
+    public void add(int i, CouleurWagon carte) {
+        if (i < 0 || i > taille) {
+            throw new IndexOutOfBoundsException("Indice " + i + ", taille " + taille);
+        }
+        ajouter(carte, 1);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends CouleurWagon> cartes) {
+        if (cartes instanceof MainCartesWagon) {
+            ajouterTout((MainCartesWagon) cartes);
+            return !cartes.isEmpty();
+        }
+        return super.addAll(cartes);
+    }
+
+    @Override
+    public CouleurWagon remove(int i) {
+        int c = ordinalA(i);
+        nbCartes[c]--;
+        taille--;
+        modCount++;
+        return COULEURS[c];
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof CouleurWagon && retirer((CouleurWagon) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof CouleurWagon && nbCartes[((CouleurWagon) o).ordinal()] > 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(nbCartes, 0);
+        taille = 0;
+        modCount++;
+    }
+}
@@ -0,0 +1,71 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Collection;
+
+/**
+ * Pile de cartes wagon (pioche, défausse ou cartes visibles) qui tient à jour
+ * le nombre de cartes de chaque couleur qu'elle contient.
+ * <p>
+ * Les compteurs sont mis à jour à chaque modification de la pile (pioche,
+ * défausse, mélange, échange avec une autre pile, mais aussi modifications
+ * directes à travers l'interface {@link java.util.List}) : la règle des 3
+ * locomotives visibles peut être appliquée en temps constant, sans parcourir
+ * les piles.
+ */
+public class PileCartesWagon extends Pioche<CouleurWagon> {
+    /**
+     * Nombre de cartes de chaque couleur (indice = ordinal de la couleur)
+     */
+    private int[] nbCartes = new int[CouleurWagon.values().length];
+
+    public PileCartesWagon() {
+    }
+
+    public PileCartesWagon(Collection<CouleurWagon> cartes) {
+        super(cartes);
+        for (CouleurWagon carte : cartes) {
+            carteAjoutee(carte);
+        }
+    }
+
+    @Override
+    protected void carteAjoutee(CouleurWagon carte) {
+        nbCartes[carte.ordinal()]++;
+    }
+
+    @Override
+    protected void carteRetiree(CouleurWagon carte) {
+        nbCartes[carte.ordinal()]--;
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur passée en argument
+     */
+    public int nb(CouleurWagon couleur) {
+        return nbCartes[couleur.ordinal()];
+    }
+
+    /**
+     * @return le nombre de cartes qui ne sont pas des locomotives
+     */
+    public int nbNonLocomotives() {
+        return size() - nb(CouleurWagon.LOCOMOTIVE);
+    }
+
+    @Override
+    public void echanger(Pioche<CouleurWagon> autre) {
+        super.echanger(autre);
+        if (autre instanceof PileCartesWagon) {
+            PileCartesWagon pile = (PileCartesWagon) autre;
+            int[] n = nbCartes;
+            nbCartes = pile.nbCartes;
+            pile.nbCartes = n;
+        } else {
+            // l'autre pile ne compte pas ses cartes : on recompte les nôtres
+            nbCartes = new int[nbCartes.length];
+            for (CouleurWagon carte : this) {
+                carteAjoutee(carte);
+            }
+        }
+    }
+}
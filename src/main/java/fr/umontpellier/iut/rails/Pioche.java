@@ -0,0 +1,284 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Pile de cartes (pioche ou défausse) stockée dans un tableau circulaire.
+ * <p>
+ * L'élément d'indice 0 est le dessus de la pile. Piocher (retirer le dessus),
+ * remettre une carte sur le dessus et poser une carte sous la pile se font en
+ * temps constant, sans décaler les autres cartes comme le fait
+ * {@code ArrayList.remove(0)}. Le contenu de deux piles peut être échangé en
+ * temps constant (pour reformer la pioche à partir de la défausse).
+ * <p>
+ * La classe implémente {@link List} (accès direct par indice, {@code set},
+ * etc.) : elle peut être mélangée par {@link Collections#shuffle(List)} et
+ * manipulée comme une liste ordinaire. Le jeu la mélange avec son propre
+ * générateur (voir {@link #melanger(SplittableRandom)}).
+ *
+ * @param <T> type des cartes
+ */
+public class Pioche<T> extends AbstractList<T> implements RandomAccess {
+    private static final int CAPACITE_INITIALE = 16;
+
+    /**
+     * Cartes de la pile (la capacité est toujours une puissance de 2)
+     */
+    private Object[] cartes;
+    /**
+     * Position du dessus de la pile dans le tableau
+     */
+    private int debut;
+    private int taille;
+
+    public Pioche() {
+        cartes = new Object[CAPACITE_INITIALE];
+    }
+
+    public Pioche(Collection<? extends T> cartes) {
+        this.cartes = new Object[capacitePour(cartes.size())];
+        for (T carte : cartes) {
+            this.cartes[taille++] = carte;
+        }
+    }
+
+    private static int capacitePour(int nb) {
+        int capacite = CAPACITE_INITIALE;
+        while (capacite < nb) {
+            capacite *= 2;
+        }
+        return capacite;
+    }
+
+    /**
+     * @return la position dans le tableau de l'élément d'indice i
+     */
+    private int position(int i) {
+        return (debut + i) & (cartes.length - 1);
+    }
+
+    private void verifierIndice(int i, int max) {
+        if (i < 0 || i >= max) {
+            throw new IndexOutOfBoundsException("Indice " + i + ", taille " + taille);
+        }
+    }
+
+    private void agrandirSiPlein() {
+        if (taille == cartes.length) {
+            Object[] nouvelles = new Object[2 * cartes.length];
+            for (int i = 0; i < taille; i++) {
+                nouvelles[i] = cartes[position(i)];
+            }
+            cartes = nouvelles;
+            debut = 0;
+        }
+    }
+
+    /**
+     * Appelée à chaque fois qu'une carte entre dans la pile (à redéfinir par les
+     * sous-classes qui tiennent des statistiques sur leur contenu)
+     */
+    protected void carteAjoutee(T carte) {
+    }
+
+    /**
+     * Appelée à chaque fois qu'une carte sort de la pile
+     */
+    protected void carteRetiree(T carte) {
+    }
+
+    /**
+     * Retire et renvoie la carte du dessus de la pile
+     *
+     * @return la carte piochée (ou null si la pile est vide)
+     */
+    public T piocher() {
+        if (taille == 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        T carte = (T) cartes[debut];
+        cartes[debut] = null;
+        debut = position(1);
+        taille--;
+        modCount++;
+        carteRetiree(carte);
+        return carte;
+    }
+
+    /**
+     * Place une carte sur le dessus de la pile
+     */
+    public void ajouterDessus(T carte) {
+        agrandirSiPlein();
+        debut = position(cartes.length - 1);
+        cartes[debut] = carte;
+        taille++;
+        modCount++;
+        carteAjoutee(carte);
+    }
+
+    /**
+     * Place une carte sous la pile
+     */
+    public void ajouterDessous(T carte) {
+        agrandirSiPlein();
+        cartes[position(taille)] = carte;
+        taille++;
+        modCount++;
+        carteAjoutee(carte);
+    }
+
+    /**
+     * Mélange la pile (même algorithme que {@link Collections#shuffle(List, Random)},
+     * avec un générateur {@link SplittableRandom}). Les cartes ne font que changer
+     * de place : les compteurs des sous-classes ne sont pas modifiés.
+     */
+    public void melanger(SplittableRandom alea) {
+        for (int i = taille - 1; i > 0; i--) {
+            int j = alea.nextInt(i + 1);
+            int pi = position(i);
+            int pj = position(j);
+            Object c = cartes[pi];
+            cartes[pi] = cartes[pj];
+            cartes[pj] = c;
+        }
+        modCount++;
+    }
+
+    /**
+     * Échange le contenu des deux piles (en temps constant)
+     */
+    public void echanger(Pioche<T> autre) {
+        Object[] c = cartes;
+        cartes = autre.cartes;
+        autre.cartes = c;
+        int d = debut;
+        debut = autre.debut;
+        autre.debut = d;
+        int t = taille;
+        taille = autre.taille;
+        autre.taille = t;
+        modCount++;
+        autre.modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        verifierIndice(i, taille);
+        return (T) cartes[position(i)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int i, T carte) {
+        verifierIndice(i, taille);
+        int p = position(i);
+        T ancienne = (T) cartes[p];
+        cartes[p] = carte;
+        carteRetiree(ancienne);
+        carteAjoutee(carte);
+        return ancienne;
+    }
+
+    @Override
+    public int size() {
+        return taille;
+    }
+
+    @Override
+    public boolean add(T carte) {
+        ajouterDessous(carte);
+        return true;
+    }
+
+    @Override
+    public void add(int i, T carte) {
+        verifierIndice(i, taille + 1);
+        if (i == 0) {
+            ajouterDessus(carte);
+        } else if (i == taille) {
+            ajouterDessous(carte);
+        } else {
+            agrandirSiPlein();
+            for (int j = taille; j > i; j--) {
+                cartes[position(j)] = cartes[position(j - 1)];
+            }
+            cartes[position(i)] = carte;
+            taille++;
+            modCount++;
+            carteAjoutee(carte);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(int i) {
+        verifierIndice(i, taille);
+        if (i == 0) {
+            return piocher();
+        }
+        T carte = (T) cartes[position(i)];
+        for (int j = i; j < taille - 1; j++) {
+            cartes[position(j)] = cartes[position(j + 1)];
+        }
+        cartes[position(taille - 1)] = null;
+        taille--;
+        modCount++;
+        carteRetiree(carte);
+        return carte;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void clear() {
+        for (int i = 0; i < taille; i++) {
+            carteRetiree((T) cartes[position(i)]);
+            cartes[position(i)] = null;
+        }
+        debut = 0;
+        taille = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filtre) {
+        // compactage en un seul parcours
+        int garde = 0;
+        for (int i = 0; i < taille; i++) {
+            @SuppressWarnings("unchecked")
+            T carte = (T) cartes[position(i)];
+            if (!filtre.test(carte)) {
+                cartes[position(garde++)] = carte;
+            } else {
+                carteRetiree(carte);
+            }
+        }
+        if (garde == taille) {
+            return false;
+        }
+        for (int i = garde; i < taille; i++) {
+            cartes[position(i)] = null;
+        }
+        taille = garde;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == this) {
+            boolean modifiee = taille > 0;
+            clear();
+            return modifiee;
+        }
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(carte -> !c.contains(carte));
+    }
+}
@@ -1,6 +1,7 @@
 package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,10 +15,59 @@ public class Plateau {
      * Liste des routes
      */
     private final List<Route> routes;
+    /**
+     * Index des villes et des routes par nom, construits une seule fois à la
+     * création du plateau (les noms ne doivent plus changer ensuite)
+     */
+    private final Map<String, Ville> villesParNom;
+    private final Map<String, Route> routesParNom;
+    /**
+     * Graphe du réseau (identifiants entiers, adjacences compactes), partagé par
+     * tous les plateaux construits sur la même carte
+     */
+    private final GraphePlateau graphe;
+    /**
+     * Graphe de la carte d'Europe, construit au premier appel de
+     * {@link #makePlateauEurope()}
+     */
+    private static volatile GraphePlateau grapheEurope;
+    /**
+     * Routes qui n'ont pas encore été capturées et villes sans gare (indices =
+     * identifiants), tenus à jour à chaque changement de propriétaire
+     */
+    private final BitSet routesLibres = new BitSet();
+    private final BitSet villesLibres = new BitSet();
 
     public Plateau(List<Ville> villes, List<Route> routes) {
+        this(villes, routes, null);
+    }
+
+    /**
+     * @param graphe graphe déjà construit pour cette carte (ou null pour le
+     *               construire)
+     */
+    private Plateau(List<Ville> villes, List<Route> routes, GraphePlateau graphe) {
         this.villes = villes;
         this.routes = routes;
+        for (int i = 0; i < villes.size(); i++) {
+            villes.get(i).setId(i);
+            villes.get(i).setPlateau(this);
+            villesLibres.set(i, villes.get(i).getProprietaire() == null);
+        }
+        for (int i = 0; i < routes.size(); i++) {
+            routes.get(i).setId(i);
+            routes.get(i).setPlateau(this);
+            routesLibres.set(i, routes.get(i).getProprietaire() == null);
+        }
+        this.graphe = graphe != null ? graphe : new GraphePlateau(villes, routes);
+        villesParNom = new HashMap<>(2 * villes.size());
+        for (Ville ville : villes) {
+            villesParNom.put(ville.getNom(), ville);
+        }
+        routesParNom = new HashMap<>(2 * routes.size());
+        for (Route route : routes) {
+            routesParNom.put(route.getNom(), route);
+        }
     }
 
     public List<Ville> getVilles() {
@@ -28,6 +78,59 @@ public class Plateau {
         return routes;
     }
 
+    /**
+     * @return le graphe du réseau (en lecture seule, partagé entre les parties)
+     */
+    public GraphePlateau getGraphe() {
+        return graphe;
+    }
+
+    /**
+     * @return les identifiants des routes qui n'ont pas encore été capturées (à ne
+     * pas modifier)
+     */
+    public BitSet getRoutesLibres() {
+        return routesLibres;
+    }
+
+    /**
+     * @return les identifiants des villes sur lesquelles aucune gare n'a été
+     * construite (à ne pas modifier)
+     */
+    public BitSet getVillesLibres() {
+        return villesLibres;
+    }
+
+    /**
+     * Appelée par la route quand son propriétaire change
+     */
+    void proprietaireChange(Route route) {
+        routesLibres.set(route.getId(), route.getProprietaire() == null);
+    }
+
+    /**
+     * Appelée par la ville quand son propriétaire change
+     */
+    void proprietaireChange(Ville ville) {
+        villesLibres.set(ville.getId(), ville.getProprietaire() == null);
+    }
+
+    /**
+     * @return la ville dont le nom est passé en argument (ou null si aucune ville
+     * ne correspond)
+     */
+    public Ville getVille(String nom) {
+        return villesParNom.get(nom);
+    }
+
+    /**
+     * @return la route dont le nom est passé en argument (ou null si aucune route
+     * ne correspond)
+     */
+    public Route getRoute(String nom) {
+        return routesParNom.get(nom);
+    }
+
     static public Plateau makePlateauEurope() {
         Map<String, Ville> villes = new HashMap<>();
         villes.put("amsterdam", new Ville("Amsterdam"));
@@ -192,6 +295,10 @@ public class Plateau {
                 }
             }
         }
-        return new Plateau(new ArrayList<>(villes.values()), routes);
+        // L'ordre des villes et des routes est le même à chaque appel : le graphe
+        // n'est construit qu'une fois et partagé par tous les plateaux
+        Plateau plateau = new Plateau(new ArrayList<>(villes.values()), routes, grapheEurope);
+        grapheEurope = plateau.getGraphe();
+        return plateau;
     }
 }
@@ -0,0 +1,373 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocole binaire compact des clients websocket, proposé en alternative aux
+ * trames JSON (paramètre de connexion {@code protocole=binaire}).
+ * <p>
+ * Les trames contiennent les mêmes informations que l'état complet JSON (voir
+ * {@link SuiviEtat#etatJson()}), mais les éléments du plateau sont désignés
+ * par leur identifiant (indice dans la liste des villes ou des routes du
+ * jeu), les couleurs par leur ordinal, les destinations par leur indice dans
+ * le catalogue du jeu et les joueurs par leur indice, en entiers de taille
+ * variable (voir {@link EcrivainBinaire}). Les lignes de log sont envoyées
+ * sous forme d'événements (voir {@link EntreeLog}) à mettre en forme par le
+ * client. Trames du serveur :
+ * <pre>
+ * état     : TRAME_ETAT, version, prompt, villes, routes, joueurs, piles, log
+ * prompt   : instruction, nbBoutons x bouton, indice du joueur courant, peutPasser, graine (8 octets)
+ * bouton   : 1 + indice de la destination, ou 0 puis texte
+ * villes   : nbVilles x propriétaire (0, ou 1 + indice du joueur)
+ * routes   : nbRoutes x propriétaire
+ * joueurs  : nbJoueurs x joueur (voir Joueur.ecrireBinaire)
+ * piles    : pileCartesWagon, pileDestinations, défausse et cartes visibles (taille puis ordinal de chaque carte)
+ * log      : debutLog, nbLignes x ligne
+ * ligne    : 0 puis texte, ou 1 + ordinal de l'événement puis élément
+ * élément  : ELEMENT_TEXTE texte, ELEMENT_COULEUR ordinal, ELEMENT_VILLE id, ELEMENT_ROUTE id ou ELEMENT_JOUEUR indice
+ * page     : TRAME_PAGE_LOG, log (voir SuiviEtat.pageLogJson)
+ * </pre>
+ * Les réponses des clients sont des commandes d'un octet d'action suivi au
+ * besoin d'un identifiant (voir {@link #lireCommande(byte[], Jeu)}).
+ */
+public final class ProtocoleBinaire {
+    /**
+     * Types de trames envoyées par le serveur (premier octet)
+     */
+    public static final byte TRAME_ETAT = 1;
+    public static final byte TRAME_PAGE_LOG = 2;
+
+    /**
+     * Types d'éléments des lignes de log
+     */
+    public static final byte ELEMENT_TEXTE = 0;
+    public static final byte ELEMENT_COULEUR = 1;
+    public static final byte ELEMENT_VILLE = 2;
+    public static final byte ELEMENT_ROUTE = 3;
+    public static final byte ELEMENT_JOUEUR = 4;
+
+    /**
+     * Actions des commandes envoyées par les clients (premier octet)
+     */
+    public static final byte ACTION_PASSER = 0;
+    /**
+     * suivie de l'identifiant de la route
+     */
+    public static final byte ACTION_ROUTE = 1;
+    /**
+     * suivie de l'identifiant de la ville
+     */
+    public static final byte ACTION_VILLE = 2;
+    /**
+     * suivie de l'ordinal de la couleur (GRIS pour piocher face cachée)
+     */
+    public static final byte ACTION_CARTE = 3;
+    /**
+     * suivie de l'indice de la destination dans le catalogue
+     */
+    public static final byte ACTION_DESTINATION = 4;
+    public static final byte ACTION_PIOCHE_DESTINATIONS = 5;
+    /**
+     * suivie d'une réponse en texte libre
+     */
+    public static final byte ACTION_TEXTE = 6;
+    /**
+     * suivie d'un numéro de séquence : demande une page de l'historique du log
+     */
+    public static final byte ACTION_HISTORIQUE = 7;
+
+    private static final CouleurWagon[] COULEURS_WAGON = CouleurWagon.values();
+    private static final Joueur.Couleur[] COULEURS_JOUEUR = Joueur.Couleur.values();
+    private static final EntreeLog.Evenement[] EVENEMENTS = EntreeLog.Evenement.values();
+
+    private ProtocoleBinaire() {
+    }
+
+    /**
+     * Écrit un bouton du prompt (les boutons proposés sont des destinations)
+     */
+    static void ecrireBouton(EcrivainBinaire sortie, String bouton) {
+        int indice = Destination.indice(bouton);
+        sortie.entier(indice + 1);
+        if (indice < 0) {
+            sortie.texte(bouton);
+        }
+    }
+
+    /**
+     * Écrit le propriétaire d'une ville ou d'une route
+     */
+    static void ecrireProprietaire(EcrivainBinaire sortie, Joueur proprietaire, Joueur[] joueurs) {
+        sortie.entier(indice(proprietaire, joueurs) + 1);
+    }
+
+    /**
+     * Écrit une ligne de log (texte ou {@link EntreeLog}, voir
+     * {@link Historique#getLigne(int)})
+     */
+    static void ecrireLigne(EcrivainBinaire sortie, Object ligne, Joueur[] joueurs) {
+        if (!(ligne instanceof EntreeLog entree)) {
+            sortie.octet(0).texte((String) ligne);
+            return;
+        }
+        sortie.entier(entree.getEvenement().ordinal() + 1);
+        Object element = entree.getElement();
+        if (element instanceof CouleurWagon couleur) {
+            sortie.octet(ELEMENT_COULEUR).octet(couleur.ordinal());
+        } else if (element instanceof Ville ville) {
+            sortie.octet(ELEMENT_VILLE).entier(ville.getId());
+        } else if (element instanceof Route route) {
+            sortie.octet(ELEMENT_ROUTE).entier(route.getId());
+        } else if (element instanceof Joueur joueur && indice(joueur, joueurs) >= 0) {
+            sortie.octet(ELEMENT_JOUEUR).entier(indice(joueur, joueurs));
+        } else {
+            sortie.octet(ELEMENT_TEXTE).texte(element instanceof ElementLog e ? e.toLog() : String.valueOf(element));
+        }
+    }
+
+    private static int indice(Joueur joueur, Joueur[] joueurs) {
+        for (int i = 0; i < joueurs.length; i++) {
+            if (joueurs[i] == joueur) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Traduit une commande binaire en la réponse textuelle attendue par le jeu
+     * (voir {@link Jeu#traiterEntree(String)})
+     *
+     * @param jeu la partie à laquelle la commande est destinée (seuls ses villes
+     *            et ses routes sont lues : la méthode peut être appelée par un
+     *            autre thread que celui du jeu)
+     * @throws IllegalArgumentException si la commande est incomplète, désigne un
+     *                                  élément inconnu ou n'est pas une réponse
+     *                                  (demande d'historique)
+     */
+    public static String lireCommande(byte[] commande, Jeu jeu) {
+        LecteurBinaire entree = new LecteurBinaire(commande);
+        try {
+            byte action = entree.octet();
+            String reponse = switch (action) {
+                case ACTION_PASSER -> "";
+                case ACTION_ROUTE -> jeu.getRoutes().get(entree.entier()).getNom();
+                case ACTION_VILLE -> jeu.getVilles().get(entree.entier()).getNom();
+                case ACTION_CARTE -> COULEURS_WAGON[entree.octet()].name();
+                case ACTION_DESTINATION -> Destination.getDestination(entree.entier()).getNom();
+                case ACTION_PIOCHE_DESTINATIONS -> ActionsPossibles.DESTINATIONS;
+                case ACTION_TEXTE -> entree.texte();
+                default -> throw new IllegalArgumentException("Action inconnue : " + action);
+            };
+            if (!entree.estTermine()) {
+                throw new IllegalArgumentException("Commande trop longue");
+            }
+            return reponse;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Commande incomplète ou élément inconnu", e);
+        }
+    }
+
+    /**
+     * @return le numéro de séquence d'une demande d'historique
+     * ({@link #ACTION_HISTORIQUE}), ou -1 si la commande est une réponse au jeu
+     * @throws IllegalArgumentException si la demande est incomplète
+     */
+    public static int lireDemandeHistorique(byte[] commande) {
+        if (commande.length == 0 || commande[0] != ACTION_HISTORIQUE) {
+            return -1;
+        }
+        try {
+            LecteurBinaire entree = new LecteurBinaire(commande);
+            entree.octet();
+            return entree.entier();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Demande d'historique incomplète", e);
+        }
+    }
+
+    /**
+     * Encode une réponse textuelle sous la forme de la commande binaire la plus
+     * courte (ce que fait un client binaire)
+     */
+    public static byte[] ecrireCommande(String reponse, Jeu jeu) {
+        EcrivainBinaire sortie = new EcrivainBinaire(16);
+        CouleurWagon couleur;
+        Route route;
+        Ville ville;
+        int destination;
+        if (reponse.isEmpty()) {
+            sortie.octet(ACTION_PASSER);
+        } else if (reponse.equals(ActionsPossibles.DESTINATIONS)) {
+            sortie.octet(ACTION_PIOCHE_DESTINATIONS);
+        } else if ((couleur = CouleurWagon.depuisNom(reponse)) != null) {
+            sortie.octet(ACTION_CARTE).octet(couleur.ordinal());
+        } else if ((route = jeu.getRouteByNom(reponse)) != null) {
+            sortie.octet(ACTION_ROUTE).entier(route.getId());
+        } else if ((ville = jeu.getVilleByNom(reponse)) != null) {
+            sortie.octet(ACTION_VILLE).entier(ville.getId());
+        } else if ((destination = Destination.indice(reponse)) >= 0) {
+            sortie.octet(ACTION_DESTINATION).entier(destination);
+        } else {
+            sortie.octet(ACTION_TEXTE).texte(reponse);
+        }
+        return sortie.octets();
+    }
+
+    /**
+     * Décode une trame du serveur sous la forme de l'état JSON équivalent
+     * (tables et listes, voir {@link SuiviEtat#etatComplet()}), avec en plus
+     * le numéro de version pour une trame d'état, ou la clé {@code page} pour
+     * une page d'historique. Les lignes de log sont mises en forme avec les
+     * éléments de {@code jeu}, qui doit être la partie décrite par la trame.
+     *
+     * @throws IllegalArgumentException si la trame est incomplète
+     */
+    public static Map<String, Object> decoder(byte[] trame, Jeu jeu) {
+        LecteurBinaire entree = new LecteurBinaire(trame);
+        try {
+            Map<String, Object> data = new LinkedHashMap<>();
+            byte type = entree.octet();
+            if (type == TRAME_PAGE_LOG) {
+                data.put("page", true);
+                decoderLog(entree, data, jeu);
+                return data;
+            }
+            if (type != TRAME_ETAT) {
+                throw new IllegalArgumentException("Type de trame inconnu : " + type);
+            }
+            data.put("version", entree.entier());
+
+            Map<String, Object> prompt = new LinkedHashMap<>();
+            prompt.put("instruction", entree.texte());
+            List<String> boutons = new ArrayList<>();
+            for (int i = entree.entier(); i > 0; i--) {
+                int indice = entree.entier() - 1;
+                boutons.add(indice < 0 ? entree.texte() : Destination.getDestination(indice).getNom());
+            }
+            prompt.put("boutons", boutons);
+            int indiceCourant = entree.entier();
+            prompt.put("peutPasser", entree.booleen());
+            prompt.put("graine", Long.toString(entree.long64()));
+
+            int[] proprietairesVilles = new int[entree.entier()];
+            for (int i = 0; i < proprietairesVilles.length; i++) {
+                proprietairesVilles[i] = entree.entier() - 1;
+            }
+            int[] proprietairesRoutes = new int[entree.entier()];
+            for (int i = 0; i < proprietairesRoutes.length; i++) {
+                proprietairesRoutes[i] = entree.entier() - 1;
+            }
+
+            List<Map<String, Object>> joueurs = new ArrayList<>();
+            for (int i = entree.entier(); i > 0; i--) {
+                joueurs.add(decoderJoueur(entree, joueurs.size() == indiceCourant));
+            }
+            prompt.put("nomJoueurCourant", joueurs.get(indiceCourant).get("nom"));
+
+            data.put("prompt", prompt);
+            data.put("villes", decoderProprietaires(proprietairesVilles, jeu.getVilles(), joueurs));
+            data.put("routes", decoderProprietaires(proprietairesRoutes, jeu.getRoutes(), joueurs));
+            data.put("joueurs", joueurs);
+            Map<String, Object> piles = new LinkedHashMap<>();
+            piles.put("pileCartesWagon", entree.entier());
+            piles.put("pileDestinations", entree.entier());
+            piles.put("defausseCartesWagon", decoderCartes(entree));
+            piles.put("cartesWagonVisibles", decoderCartes(entree));
+            data.put("piles", piles);
+            decoderLog(entree, data, jeu);
+            return data;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Trame incomplète", e);
+        }
+    }
+
+    private static Map<String, Object> decoderJoueur(LecteurBinaire entree, boolean estJoueurCourant) {
+        Map<String, Object> joueur = new LinkedHashMap<>();
+        joueur.put("nom", entree.texte());
+        joueur.put("couleur", COULEURS_JOUEUR[entree.octet()].name());
+        joueur.put("score", entree.signe());
+        joueur.put("nbGares", entree.entier());
+        joueur.put("nbWagons", entree.entier());
+        joueur.put("estJoueurCourant", estJoueurCourant);
+        List<Map<String, Object>> destinations = new ArrayList<>();
+        for (int i = entree.entier(); i > 0; i--) {
+            int code = entree.entier();
+            Destination destination = Destination.getDestination(code >>> 1);
+            Map<String, Object> d = new LinkedHashMap<>();
+            d.put("ville1", destination.getVille1());
+            d.put("ville2", destination.getVille2());
+            d.put("valeur", destination.getValeur());
+            d.put("realisee", (code & 1) != 0);
+            destinations.add(d);
+        }
+        joueur.put("destinations", destinations);
+        joueur.put("cartesWagon", decoderMain(entree));
+        joueur.put("cartesWagonPosees", decoderMain(entree));
+        return joueur;
+    }
+
+    private static List<Map<String, Object>> decoderProprietaires(int[] proprietaires, List<?> elements,
+                                                                  List<Map<String, Object>> joueurs) {
+        List<Map<String, Object>> liste = new ArrayList<>(proprietaires.length);
+        for (int i = 0; i < proprietaires.length; i++) {
+            Map<String, Object> element = new LinkedHashMap<>();
+            Object e = elements.get(i);
+            element.put("nom", e instanceof Route route ? route.getNom() : ((Ville) e).getNom());
+            if (proprietaires[i] >= 0) {
+                element.put("proprietaire", joueurs.get(proprietaires[i]).get("couleur"));
+            }
+            liste.add(element);
+        }
+        return liste;
+    }
+
+    /**
+     * Main écrite comme le nombre de cartes de chaque couleur, décodée comme la
+     * liste des noms de ses cartes (triées par couleur)
+     */
+    private static List<String> decoderMain(LecteurBinaire entree) {
+        List<String> cartes = new ArrayList<>();
+        for (CouleurWagon couleur : COULEURS_WAGON) {
+            for (int i = entree.entier(); i > 0; i--) {
+                cartes.add(couleur.name());
+            }
+        }
+        return cartes;
+    }
+
+    private static List<String> decoderCartes(LecteurBinaire entree) {
+        int taille = entree.entier();
+        List<String> cartes = new ArrayList<>(taille);
+        for (int i = 0; i < taille; i++) {
+            cartes.add(COULEURS_WAGON[entree.octet()].name());
+        }
+        return cartes;
+    }
+
+    private static void decoderLog(LecteurBinaire entree, Map<String, Object> data, Jeu jeu) {
+        data.put("debutLog", entree.entier());
+        int nbLignes = entree.entier();
+        List<String> log = new ArrayList<>(nbLignes);
+        for (int i = 0; i < nbLignes; i++) {
+            int evenement = entree.entier();
+            if (evenement == 0) {
+                log.add(entree.texte());
+                continue;
+            }
+            byte type = entree.octet();
+            EntreeLog ligne = switch (type) {
+                case ELEMENT_COULEUR -> new EntreeLog(EVENEMENTS[evenement - 1], COULEURS_WAGON[entree.octet()]);
+                case ELEMENT_VILLE -> new EntreeLog(EVENEMENTS[evenement - 1], jeu.getVilles().get(entree.entier()));
+                case ELEMENT_ROUTE -> new EntreeLog(EVENEMENTS[evenement - 1], jeu.getRoutes().get(entree.entier()));
+                case ELEMENT_JOUEUR -> new EntreeLog(EVENEMENTS[evenement - 1], jeu.getJoueurs().get(entree.entier()));
+                default -> new EntreeLog(EVENEMENTS[evenement - 1], entree.texte());
+            };
+            log.add(ligne.texte());
+        }
+        data.put("log", log);
+    }
+}
@@ -0,0 +1,255 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Statistiques cumulées des parties d'un tournoi (voir {@link Tournoi}) :
+ * victoires et scores de chaque place autour de la table, distribution des
+ * scores et nombre de captures de chaque route.
+ * <p>
+ * Une instance n'est modifiée que par le thread qui joue ses parties ; les
+ * résultats des différents threads sont fusionnés à la fin (voir
+ * {@link #fusionner(ResultatsTournoi)}), sans verrou, et les résultats
+ * partiels transmis pendant le tournoi sont des copies.
+ */
+public class ResultatsTournoi {
+    /**
+     * Bornes de la distribution des scores (les scores en dehors sont comptés
+     * dans la première ou la dernière case)
+     */
+    public static final int SCORE_MIN = -100;
+    public static final int SCORE_MAX = 300;
+    /**
+     * Points du bonus "European Express" (plus long chemin continu)
+     */
+    public static final int POINTS_PLUS_LONG_CHEMIN = 10;
+
+    private long nbParties;
+    /**
+     * Nombre de parties arrêtées avant la fin (les joueurs ne progressaient plus)
+     */
+    private long nbPartiesInachevees;
+    /**
+     * Victoires et somme des scores de chaque place (indice = position du joueur
+     * dans la liste des joueurs)
+     */
+    private final long[] victoires;
+    private final long[] sommeScores;
+    /**
+     * Nombre de fois où chaque score a été obtenu (indice = score - SCORE_MIN)
+     */
+    private final long[] distributionScores = new long[SCORE_MAX - SCORE_MIN + 1];
+    /**
+     * Nombre de fois où chaque route a été capturée (indice = identifiant de la route)
+     */
+    private final long[] captures;
+
+    public ResultatsTournoi(int nbJoueurs, int nbRoutes) {
+        victoires = new long[nbJoueurs];
+        sommeScores = new long[nbJoueurs];
+        captures = new long[nbRoutes];
+    }
+
+    /**
+     * Ajoute une partie aux statistiques. Le score final d'un joueur est son
+     * score de routes et de gares ({@link Joueur#getScore()}, qui compte déjà
+     * 4 points par gare non utilisée), plus la valeur des destinations
+     * réalisées, moins celle des destinations non réalisées, plus le bonus du
+     * plus long chemin continu. Chaque gare permet d'emprunter une route d'un
+     * autre joueur qui part de sa ville : on retient les routes empruntées qui
+     * donnent le plus de points de destinations (voir
+     * {@link #pointsDestinations(Jeu, Joueur)}). En cas d'égalité, tous les
+     * premiers remportent la partie.
+     *
+     * @param jeu     la partie jouée
+     * @param chemins calcul du plus long chemin sur le plateau de la partie
+     */
+    public void enregistrer(Jeu jeu, CheminLePlusLong chemins) {
+        nbParties++;
+        if (!jeu.estTerminee()) {
+            nbPartiesInachevees++;
+            return;
+        }
+        List<Joueur> joueurs = jeu.getJoueurs();
+        List<Route> routes = jeu.getRoutes();
+        int[] scores = new int[joueurs.size()];
+        int[] longueurs = new int[joueurs.size()];
+        int longueurMax = 0;
+        for (int i = 0; i < joueurs.size(); i++) {
+            Joueur joueur = joueurs.get(i);
+            scores[i] = joueur.getScore() + pointsDestinations(jeu, joueur);
+            BitSet routesJoueur = new BitSet(routes.size());
+            for (Route route : routes) {
+                if (route.getProprietaire() == joueur) {
+                    routesJoueur.set(route.getId());
+                }
+            }
+            longueurs[i] = chemins.calculer(routesJoueur);
+            longueurMax = Math.max(longueurMax, longueurs[i]);
+        }
+        int scoreMax = Integer.MIN_VALUE;
+        for (int i = 0; i < scores.length; i++) {
+            if (longueurMax > 0 && longueurs[i] == longueurMax) {
+                scores[i] += POINTS_PLUS_LONG_CHEMIN;
+            }
+            scoreMax = Math.max(scoreMax, scores[i]);
+        }
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] == scoreMax) {
+                victoires[i]++;
+            }
+            sommeScores[i] += scores[i];
+            distributionScores[Math.min(SCORE_MAX, Math.max(SCORE_MIN, scores[i])) - SCORE_MIN]++;
+        }
+        for (Route route : routes) {
+            if (route.getProprietaire() != null) {
+                captures[route.getId()]++;
+            }
+        }
+    }
+
+    /**
+     * Calcule les points des destinations d'un joueur (valeur des destinations
+     * réalisées moins celle des destinations non réalisées), chacune de ses
+     * gares lui permettant d'emprunter une route d'un autre joueur qui part de
+     * la ville de la gare. Toutes les combinaisons de routes empruntées sont
+     * essayées (au plus 3 gares, chacune avec quelques routes) et la meilleure
+     * est retenue.
+     */
+    static int pointsDestinations(Jeu jeu, Joueur joueur) {
+        List<Route> routes = jeu.getRoutes();
+        // routes que chaque gare du joueur peut emprunter
+        List<List<Route>> empruntables = new ArrayList<>();
+        for (Ville ville : jeu.getVilles()) {
+            if (ville.getProprietaire() != joueur) {
+                continue;
+            }
+            List<Route> routesGare = new ArrayList<>();
+            for (Route route : routes) {
+                if (route.getProprietaire() != null && route.getProprietaire() != joueur
+                        && (route.getVille1() == ville || route.getVille2() == ville)) {
+                    routesGare.add(route);
+                }
+            }
+            if (!routesGare.isEmpty()) {
+                empruntables.add(routesGare);
+            }
+        }
+        int[] villes1 = new int[joueur.getDestinations().size()];
+        int[] villes2 = new int[villes1.length];
+        for (int i = 0; i < villes1.length; i++) {
+            Destination destination = joueur.getDestinations().get(i);
+            villes1[i] = jeu.getVilleByNom(destination.getVille1()).getId();
+            villes2[i] = jeu.getVilleByNom(destination.getVille2()).getId();
+        }
+        return meilleursPoints(jeu, joueur, empruntables, new Route[empruntables.size()], 0, villes1, villes2);
+    }
+
+    /**
+     * Essaie toutes les routes empruntables par les gares d'indice
+     * {@code gare} et suivants, les gares précédentes empruntant les routes
+     * de {@code choix}
+     */
+    private static int meilleursPoints(Jeu jeu, Joueur joueur, List<List<Route>> empruntables, Route[] choix,
+                                       int gare, int[] villes1, int[] villes2) {
+        if (gare == choix.length) {
+            ComposantesConnexes reseau = new ComposantesConnexes(jeu.getVilles().size());
+            for (Route route : jeu.getRoutes()) {
+                if (route.getProprietaire() == joueur) {
+                    reseau.reunir(route.getVille1().getId(), route.getVille2().getId());
+                }
+            }
+            for (Route route : choix) {
+                reseau.reunir(route.getVille1().getId(), route.getVille2().getId());
+            }
+            int points = 0;
+            for (int i = 0; i < villes1.length; i++) {
+                int valeur = joueur.getDestinations().get(i).getValeur();
+                points += reseau.sontReliees(villes1[i], villes2[i]) ? valeur : -valeur;
+            }
+            return points;
+        }
+        int meilleur = Integer.MIN_VALUE;
+        for (Route route : empruntables.get(gare)) {
+            choix[gare] = route;
+            meilleur = Math.max(meilleur, meilleursPoints(jeu, joueur, empruntables, choix, gare + 1, villes1, villes2));
+        }
+        return meilleur;
+    }
+
+    /**
+     * Ajoute les statistiques d'un autre ensemble de parties à celles-ci
+     */
+    public void fusionner(ResultatsTournoi autre) {
+        nbParties += autre.nbParties;
+        nbPartiesInachevees += autre.nbPartiesInachevees;
+        for (int i = 0; i < victoires.length; i++) {
+            victoires[i] += autre.victoires[i];
+            sommeScores[i] += autre.sommeScores[i];
+        }
+        for (int i = 0; i < distributionScores.length; i++) {
+            distributionScores[i] += autre.distributionScores[i];
+        }
+        for (int i = 0; i < captures.length; i++) {
+            captures[i] += autre.captures[i];
+        }
+    }
+
+    public long getNbParties() {
+        return nbParties;
+    }
+
+    public long getNbPartiesInachevees() {
+        return nbPartiesInachevees;
+    }
+
+    public long getNbVictoires(int place) {
+        return victoires[place];
+    }
+
+    /**
+     * @return la proportion de parties terminées remportées par le joueur à cette place
+     */
+    public double getTauxVictoire(int place) {
+        long nbTerminees = nbParties - nbPartiesInachevees;
+        return nbTerminees == 0 ? 0 : (double) victoires[place] / nbTerminees;
+    }
+
+    /**
+     * @return le score final moyen du joueur à cette place (parties terminées)
+     */
+    public double getScoreMoyen(int place) {
+        long nbTerminees = nbParties - nbPartiesInachevees;
+        return nbTerminees == 0 ? 0 : (double) sommeScores[place] / nbTerminees;
+    }
+
+    /**
+     * @return le nombre de scores finaux égaux à {@code score} (toutes places confondues)
+     */
+    public long getNbScores(int score) {
+        if (score < SCORE_MIN || score > SCORE_MAX) {
+            return 0;
+        }
+        return distributionScores[score - SCORE_MIN];
+    }
+
+    /**
+     * @return le nombre de parties où la route a été capturée
+     */
+    public long getNbCaptures(Route route) {
+        return captures[route.getId()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d parties (%d inachevées)%n", nbParties, nbPartiesInachevees));
+        for (int i = 0; i < victoires.length; i++) {
+            sb.append(String.format("place %d : %.1f %% de victoires, score moyen %.1f%n",
+                    i + 1, 100 * getTauxVictoire(i), getScoreMoyen(i)));
+        }
+        return sb.toString();
+    }
+}
@@ -2,9 +2,8 @@ package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
-public class Route {
+public class Route implements ElementLog {
     /**
      * Première extrémité
      */
@@ -30,6 +29,23 @@ public class Route {
      * (voir la classe Plateau pour plus de clarté)
      */
     private String nom;
+    /**
+     * Identifiant de la route sur le plateau (indice dans la liste du plateau, voir
+     * {@link GraphePlateau})
+     */
+    private int id;
+    /**
+     * Plateau auquel appartient la route (prévenu quand la route est capturée)
+     */
+    private Plateau plateau;
+    /**
+     * Ordre des clés de {@link #asPOJO()}
+     */
+    private static final String[] CLES_JSON = EcrivainJson.ordreHashMap("nom", "proprietaire");
+    /**
+     * Fragment HTML de la route dans le log (les villes ne changent pas)
+     */
+    private final String fragmentLog;
 
     public Route(Ville ville1, Ville ville2, int longueur, CouleurWagon couleur) {
         this.ville1 = ville1;
@@ -37,6 +53,7 @@ public class Route {
         this.longueur = longueur;
         this.couleur = couleur;
         nom = ville1.getNom() + " - " + ville2.getNom();
+        fragmentLog = "<span class=\"route\">" + nom + "</span>";
         proprietaire = null;
     }
 
@@ -62,6 +79,7 @@ public class Route {
 
     public void setProprietaire(Joueur proprietaire) {
         this.proprietaire = proprietaire;
+        if (plateau != null) plateau.proprietaireChange(this);
     }
 
     public String getNom() {
@@ -72,6 +90,18 @@ public class Route {
         this.nom = nom;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    void setPlateau(Plateau plateau) {
+        this.plateau = plateau;
+    }
+
     /**
      * Méthode de super équipe
      * @return le nombre de points gagnés en construsant une route
@@ -85,37 +115,22 @@ public class Route {
         return 0;
     }
 
-    public boolean testFaisabiliteCouleur(List<CouleurWagon> list, CouleurWagon couleurRoute){
-        int nbCouleur = 0, nbLocomotive=0;
-        for (CouleurWagon couleur : list) {
-            if (couleur.equals(couleurRoute)) nbCouleur++;
-            if(couleur.equals(CouleurWagon.LOCOMOTIVE))nbLocomotive++;
-        }
-        if(longueur > nbCouleur+nbLocomotive)return false;
-        return true;
+    public boolean testFaisabiliteCouleur(MainCartesWagon main, CouleurWagon couleurRoute){
+        return longueur <= main.nb(couleurRoute) + main.nb(CouleurWagon.LOCOMOTIVE);
     }
 
-    public boolean testFaisabiliteGris(List<CouleurWagon> list){
-        ArrayList<CouleurWagon> allCouleur=CouleurWagon.getCouleursSimples();
-        for (CouleurWagon couleur : allCouleur) {
-            int nbCouleur = 0, nbLocomotive=0;
-            for(CouleurWagon c: list) {
-                if(couleur.equals(c)) nbCouleur++;
-                if(c.equals(CouleurWagon.LOCOMOTIVE))nbLocomotive++;
-            }
-            if(longueur <= nbCouleur+nbLocomotive)return true;
-        }
-        return false;
+    public boolean testFaisabiliteGris(MainCartesWagon main){
+        return longueur <= main.nbMaxCouleurSimple() + main.nb(CouleurWagon.LOCOMOTIVE);
     }
 
-    public boolean verifierCouleurWagonChoisie(CouleurWagon wagonChoisi, List<CouleurWagon> cartesWagon,
-                                               List<CouleurWagon> cartesWagonPosees){
+    public boolean verifierCouleurWagonChoisie(CouleurWagon wagonChoisi, MainCartesWagon cartesWagon,
+                                               MainCartesWagon cartesWagonPosees){
         int nbWagonNecessaire = getLongueur();
-        int nbLocoEnMain = CouleurWagon.LOCOMOTIVE.compteNbCouleur(cartesWagon);
+        int nbLocoEnMain = cartesWagon.nb(CouleurWagon.LOCOMOTIVE);
 
         //Si on a déjà des cartes dans cartesPoses, test si la carte choisie est valide
         if (!cartesWagonPosees.isEmpty()) {
-            int nbLocoPose=CouleurWagon.LOCOMOTIVE.compteNbCouleur(cartesWagonPosees);
+            int nbLocoPose=cartesWagonPosees.nb(CouleurWagon.LOCOMOTIVE);
             //si la carte choisie n'est pas cohérente avec les cartes posées, il doit rechoisir
             if (!cartesWagonPosees.contains(CouleurWagon.LOCOMOTIVE)) {
                 if (!wagonChoisi.equals(cartesWagonPosees.get(0))&&!wagonChoisi.equals(CouleurWagon.LOCOMOTIVE))
@@ -126,7 +141,7 @@ public class Route {
                     if (!wagonChoisi.equals(CouleurWagon.LOCOMOTIVE)) {
                         if (!getCouleur().equals(CouleurWagon.GRIS) && !wagonChoisi.equals(getCouleur()))
                             return false;
-                        if (wagonChoisi.compteNbCouleur(cartesWagon) + nbLocoEnMain + nbLocoPose < nbWagonNecessaire
+                        if (cartesWagon.nb(wagonChoisi) + nbLocoEnMain + nbLocoPose < nbWagonNecessaire
                                 && !wagonChoisi.equals(CouleurWagon.LOCOMOTIVE))
                             return false;
                     }
@@ -140,7 +155,7 @@ public class Route {
         else {
             if(!wagonChoisi.equals(CouleurWagon.LOCOMOTIVE)){
                 if (getCouleur().equals(CouleurWagon.GRIS)){
-                    if(wagonChoisi.compteNbCouleur(cartesWagon) + nbLocoEnMain < nbWagonNecessaire) return false;
+                    if(cartesWagon.nb(wagonChoisi) + nbLocoEnMain < nbWagonNecessaire) return false;
                 }
                 if(!getCouleur().equals(CouleurWagon.GRIS)&&!wagonChoisi.equals(getCouleur())) return false;
             }
@@ -148,25 +163,20 @@ public class Route {
         return true;
     }
 
-    public boolean seConstruire(CouleurWagon wagonChoisi, Joueur joueur){
-        joueur.log("Vous avez posé "+wagonChoisi.toLog());
-        int nbWagonNecessaire=getLongueur();
-        joueur.getCartesWagonPosees().add(wagonChoisi);
-        joueur.getCartesWagon().remove(wagonChoisi);
-        while (joueur.getCartesWagonPosees().size() != nbWagonNecessaire){
-            String wagon = joueur.choisir("Choisir une carte wagon à poser", CouleurWagon.listeWagonToString(joueur.getCartesWagon()), new ArrayList<>(), false);
-            wagonChoisi=CouleurWagon.valueOf(wagon);
-            if(verifierCouleurWagonChoisie(wagonChoisi,joueur.getCartesWagon(),joueur.getCartesWagonPosees())) {
-                joueur.getCartesWagonPosees().add(wagonChoisi);
-                joueur.getCartesWagon().remove(wagonChoisi);
-                joueur.log("Vous avez posé "+wagonChoisi.toLog());
-            }
-        }
-        return true;
+    /**
+     * Appelée quand le joueur a posé toutes les cartes nécessaires à la capture de
+     * la route
+     *
+     * @return le nombre de cartes supplémentaires que le joueur doit défausser (0
+     * pour une route ordinaire), ou -1 si la capture échoue
+     */
+    public int piocherCartesSupplementaires(Joueur joueur) {
+        return 0;
     }
 
+    @Override
     public String toLog() {
-        return String.format("<span class=\"route\">%s - %s</span>", ville1.getNom(), ville2.getNom());
+        return fragmentLog;
     }
 
     @Override
@@ -185,4 +195,19 @@ public class Route {
         }
         return data;
     }
+
+    /**
+     * Écrit la représentation JSON de la route (la même que celle de {@link #asPOJO()})
+     */
+    public void ecrireJson(EcrivainJson json) {
+        json.debutObjet();
+        for (String cle : CLES_JSON) {
+            if (cle.equals("nom")) {
+                json.nom(cle).valeur(getNom());
+            } else if (proprietaire != null) {
+                json.nom(cle).valeur(proprietaire.getCouleur().name());
+            }
+        }
+        json.finObjet();
+    }
 }
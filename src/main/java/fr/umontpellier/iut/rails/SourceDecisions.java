@@ -0,0 +1,57 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Source des décisions des joueurs lorsque le jeu est simulé sans affichage
+ * (voir {@link Jeu#setModeSansAffichage(SourceDecisions, boolean)}) : au lieu
+ * d'attendre une instruction dans la file d'entrées, le jeu demande
+ * directement la réponse à la source (un robot, une stratégie à évaluer,
+ * etc.).
+ * <p>
+ * Les collections passées en argument sont réutilisées par le jeu : elles ne
+ * doivent être ni modifiées ni conservées après l'appel.
+ */
+@FunctionalInterface
+public interface SourceDecisions {
+    /**
+     * Renvoie la réponse du joueur à la question posée (les mêmes informations
+     * que celles envoyées à l'interface graphique par {@link Jeu#prompt})
+     *
+     * @param joueur      le joueur qui doit répondre
+     * @param instruction l'instruction donnée au joueur
+     * @param choix       les choix possibles (hors boutons)
+     * @param boutons     les choix proposés sous forme de boutons
+     * @param peutPasser  indique si le joueur peut passer (réponse "")
+     * @return la réponse du joueur (une réponse invalide est ignorée et la
+     * question est posée à nouveau)
+     */
+    String decider(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                   boolean peutPasser);
+
+    /**
+     * Joueur qui répond au hasard (uniformément parmi les choix, les boutons et
+     * la possibilité de passer)
+     *
+     * @param alea le générateur utilisé
+     */
+    static SourceDecisions aleatoire(Random alea) {
+        return (joueur, instruction, choix, boutons, peutPasser) -> {
+            int n = alea.nextInt(choix.size() + boutons.size() + (peutPasser ? 1 : 0));
+            if (n >= choix.size() + boutons.size()) {
+                return "";
+            }
+            Collection<String> liste = n < choix.size() ? choix : boutons;
+            if (liste == boutons) {
+                n -= choix.size();
+            }
+            Iterator<String> it = liste.iterator();
+            for (int i = 0; i < n; i++) {
+                it.next();
+            }
+            return it.next();
+        };
+    }
+}
@@ -0,0 +1,506 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Suivi des versions successives de l'état du jeu, pour n'envoyer aux clients
+ * que ce qui a changé depuis la dernière version qu'ils ont reçue.
+ * <p>
+ * Une nouvelle version est enregistrée à chaque appel de {@code Jeu.prompt}.
+ * Chaque ville, route et joueur retient la version à laquelle sa représentation
+ * a changé pour la dernière fois, et on retient le numéro de séquence de la
+ * prochaine ligne de log à chacune des {@link #CAPACITE_VERSIONS} dernières
+ * versions (voir {@link Historique}). Une trame différentielle depuis la
+ * version v contient alors :
+ * <ul>
+ * <li>les villes et routes dont le propriétaire a changé après v ;</li>
+ * <li>les joueurs dont la représentation (main, score, wagons, etc.) a changé après v ;</li>
+ * <li>les piles et le prompt courant (toujours) ;</li>
+ * <li>les lignes de log ajoutées après v.</li>
+ * </ul>
+ * Un client qui n'a encore reçu aucune version (ou dont la version est
+ * inconnue, ou trop ancienne pour être encore suivie) reçoit une trame
+ * complète : la mémoire occupée ne dépend pas de la durée de la partie.
+ * <p>
+ * Seules les {@link Jeu#CAPACITE_LOG} dernières lignes de log sont conservées,
+ * et l'état complet n'en contient que les {@link #TAILLE_PAGE_LOG} dernières :
+ * la taille des trames ne dépend pas de la durée de la partie. La clé
+ * {@code debutLog} des trames indique le numéro de séquence de leur première
+ * ligne de log ; un client peut demander les lignes plus anciennes, page par
+ * page (voir {@link #pageLogJson(int)}).
+ * <p>
+ * Chaque élément est conservé directement sous forme de fragment JSON, écrit
+ * par un {@link EcrivainJson} sans objets intermédiaires : une trame est
+ * l'assemblage des fragments qu'elle contient, dans un tampon réutilisé. Le
+ * texte obtenu est identique à celui de Gson sur les représentations
+ * {@code asPOJO} des éléments. Les lignes de log sont échappées une seule
+ * fois, lorsqu'elles sont copiées.
+ * <p>
+ * L'état est aussi conservé au format de {@link ProtocoleBinaire} : le prompt
+ * et les piles sont écrits par le jeu, chaque joueur est encodé lorsque sa
+ * représentation change, et les lignes de log sont conservées sans mise en
+ * forme (elles sont encodées comme des événements).
+ * <p>
+ * Les méthodes sont protégées par un verrou car les trames peuvent être
+ * demandées par les threads du serveur (connexion d'un client) pendant que le
+ * jeu enregistre une nouvelle version (voir
+ * {@link fr.umontpellier.iut.gui.FabriqueThreads} pour le choix du verrou).
+ */
+public class SuiviEtat {
+    /**
+     * Nombre de lignes de log de l'état complet et des pages d'historique
+     */
+    public static final int TAILLE_PAGE_LOG = 64;
+    /**
+     * Nombre de versions depuis lesquelles une trame différentielle peut être
+     * calculée (un client plus en retard reçoit une trame complète)
+     */
+    public static final int CAPACITE_VERSIONS = 256;
+    /**
+     * Lecteur des trames JSON pour les versions sous forme d'objets (Gson est
+     * sans état, une seule instance sert à toutes les parties)
+     */
+    private static final Gson GSON = new Gson();
+
+    private final ReentrantLock verrou = new ReentrantLock();
+    /**
+     * Numéro de la dernière version enregistrée (0 si aucune)
+     */
+    private int version;
+    /**
+     * Propriétaire de chaque ville et de chaque route à la dernière version
+     */
+    private Joueur[] proprietairesVilles;
+    private Joueur[] proprietairesRoutes;
+    /**
+     * Représentation JSON de chaque élément à la dernière version
+     */
+    private String[] jsonVilles;
+    private String[] jsonRoutes;
+    private String[] jsonJoueurs;
+    /**
+     * Version à laquelle chaque élément a changé pour la dernière fois
+     */
+    private int[] versionVilles;
+    private int[] versionRoutes;
+    private int[] versionJoueurs;
+    /**
+     * Numéro de séquence de la prochaine ligne de log à chacune des
+     * {@link #CAPACITE_VERSIONS} dernières versions (tampon circulaire, indice
+     * = numéro de version modulo la capacité)
+     */
+    private final int[] sequenceLog = new int[CAPACITE_VERSIONS];
+    /**
+     * Prompt et piles de la dernière version (JSON)
+     */
+    private String prompt;
+    private String piles;
+    /**
+     * Prompt, piles et joueurs de la dernière version au format binaire (null
+     * si la version a été enregistrée sans sa forme binaire)
+     */
+    private byte[] promptBinaire;
+    private byte[] pilesBinaire;
+    private byte[][] binairesJoueurs;
+    /**
+     * Joueurs de la partie (les propriétaires sont écrits par leur indice)
+     */
+    private Joueur[] joueurs;
+    /**
+     * Dernières lignes de log au format JSON, avec les mêmes numéros de
+     * séquence que dans le log du jeu
+     */
+    private final Historique logJson = new Historique(Jeu.CAPACITE_LOG);
+    /**
+     * Les mêmes lignes telles qu'elles ont été ajoutées au log du jeu (voir
+     * {@link Historique#getLigne(int)})
+     */
+    private final Historique logBrut = new Historique(Jeu.CAPACITE_LOG);
+    /**
+     * Tampons réutilisés pour écrire les éléments et assembler les trames
+     * (utilisés sous le verrou)
+     */
+    private final EcrivainJson ecrivainElements = new EcrivainJson();
+    private final EcrivainJson ecrivainTrames = new EcrivainJson();
+    private final EcrivainBinaire ecrivainBinaire = new EcrivainBinaire();
+    private final EcrivainBinaire ecrivainTramesBinaires = new EcrivainBinaire(4096);
+
+    public int getVersion() {
+        verrou.lock();
+        try {
+            return version;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Enregistre une nouvelle version de l'état du jeu, sans sa forme binaire
+     * (voir {@link #etatBinaire()})
+     *
+     * @param prompt description JSON de la question en cours
+     * @param piles  description JSON des piles de cartes
+     * @param logJeu log du jeu (un {@link Historique}, ou une liste dont les
+     *               numéros de séquence sont les indices)
+     * @return le numéro de la nouvelle version
+     */
+    public int enregistrerJson(String prompt, List<Ville> villes, List<Route> routes, List<Joueur> joueurs,
+                               String piles, List<String> logJeu) {
+        return enregistrer(prompt, null, villes, routes, joueurs, piles, null, logJeu);
+    }
+
+    /**
+     * Enregistre une nouvelle version de l'état du jeu
+     *
+     * @param prompt        description JSON de la question en cours
+     * @param promptBinaire la même description au format de {@link ProtocoleBinaire}
+     * @param piles         description JSON des piles de cartes
+     * @param pilesBinaire  la même description au format de {@link ProtocoleBinaire}
+     * @param logJeu        log du jeu (un {@link Historique}, ou une liste dont
+     *                      les numéros de séquence sont les indices)
+     * @return le numéro de la nouvelle version
+     */
+    public int enregistrer(String prompt, byte[] promptBinaire, List<Ville> villes, List<Route> routes,
+                           List<Joueur> joueurs, String piles, byte[] pilesBinaire, List<String> logJeu) {
+        verrou.lock();
+        try {
+            if (version == 0) {
+                this.joueurs = joueurs.toArray(new Joueur[0]);
+                binairesJoueurs = new byte[joueurs.size()][];
+                proprietairesVilles = new Joueur[villes.size()];
+                proprietairesRoutes = new Joueur[routes.size()];
+                jsonVilles = new String[villes.size()];
+                jsonRoutes = new String[routes.size()];
+                jsonJoueurs = new String[joueurs.size()];
+                versionVilles = new int[villes.size()];
+                versionRoutes = new int[routes.size()];
+                versionJoueurs = new int[joueurs.size()];
+            }
+            version++;
+            this.prompt = prompt;
+            this.piles = piles;
+            this.promptBinaire = promptBinaire;
+            this.pilesBinaire = pilesBinaire;
+
+            for (int i = 0; i < villes.size(); i++) {
+                Ville ville = villes.get(i);
+                if (jsonVilles[i] == null || proprietairesVilles[i] != ville.getProprietaire()) {
+                    proprietairesVilles[i] = ville.getProprietaire();
+                    ville.ecrireJson(ecrivainElements.vider());
+                    jsonVilles[i] = ecrivainElements.toString();
+                    versionVilles[i] = version;
+                }
+            }
+            for (int i = 0; i < routes.size(); i++) {
+                Route route = routes.get(i);
+                if (jsonRoutes[i] == null || proprietairesRoutes[i] != route.getProprietaire()) {
+                    proprietairesRoutes[i] = route.getProprietaire();
+                    route.ecrireJson(ecrivainElements.vider());
+                    jsonRoutes[i] = ecrivainElements.toString();
+                    versionRoutes[i] = version;
+                }
+            }
+            for (int i = 0; i < joueurs.size(); i++) {
+                joueurs.get(i).ecrireJson(ecrivainElements.vider());
+                // une chaîne n'est créée que si la représentation du joueur a changé
+                if (!ecrivainElements.contenuEgal(jsonJoueurs[i])) {
+                    jsonJoueurs[i] = ecrivainElements.toString();
+                    versionJoueurs[i] = version;
+                    joueurs.get(i).ecrireBinaire(ecrivainBinaire.vider());
+                    binairesJoueurs[i] = ecrivainBinaire.octets();
+                }
+            }
+
+            int premiere = logJeu instanceof Historique historique ? historique.getPremiereSequence() : 0;
+            // les lignes oubliées par le jeu avant d'avoir été copiées sont sautées
+            logJson.reprendreA(premiere);
+            logBrut.reprendreA(premiere);
+            for (int i = logJson.getSequenceSuivante() - premiere; i < logJeu.size(); i++) {
+                logJson.add(EcrivainJson.echapper(logJeu.get(i)));
+                logBrut.ajouterLigne(logJeu instanceof Historique historique
+                        ? historique.getLigne(premiere + i) : logJeu.get(i));
+            }
+            sequenceLog[version % CAPACITE_VERSIONS] = logJson.getSequenceSuivante();
+            return version;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie l'état complet du jeu au format JSON attendu par l'interface
+     * graphique (prompt, villes, routes, joueurs, piles et dernières lignes de
+     * log)
+     */
+    public String etatJson() {
+        verrou.lock();
+        try {
+            EcrivainJson json = ecrivainTrames.vider().debutObjet();
+            champ(json, "prompt", prompt);
+            json.nom("villes");
+            tableau(json, jsonVilles, null, 0);
+            json.nom("routes");
+            tableau(json, jsonRoutes, null, 0);
+            json.nom("joueurs");
+            tableau(json, jsonJoueurs, null, 0);
+            champ(json, "piles", piles);
+            log(json, debutFenetreLog(), logJson.getSequenceSuivante());
+            return json.finObjet().toString();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie la trame différentielle qui permet de passer de la version
+     * {@code depuis} à la version courante, au format JSON.
+     * Si {@code depuis} n'est pas une version suivie (0 pour un client qui se
+     * connecte ou qui demande une resynchronisation, ou une version plus
+     * ancienne que les {@link #CAPACITE_VERSIONS} dernières), la trame est
+     * complète.
+     *
+     * @param depuis la dernière version acquittée par le client
+     */
+    public String trameJson(int depuis) {
+        verrou.lock();
+        try {
+            boolean complet = !estSuivie(depuis);
+            if (complet) {
+                depuis = 0;
+            }
+            EcrivainJson json = ecrivainTrames.vider().debutObjet();
+            json.nom("version").valeur(version);
+            json.nom("depuis").valeur(depuis);
+            json.nom("complet").valeur(complet);
+            champ(json, "prompt", prompt);
+            json.nom("villes");
+            tableau(json, jsonVilles, versionVilles, depuis);
+            json.nom("routes");
+            tableau(json, jsonRoutes, versionRoutes, depuis);
+            json.nom("joueurs");
+            tableau(json, jsonJoueurs, versionJoueurs, depuis);
+            champ(json, "piles", piles);
+            log(json, debutLog(depuis), logJson.getSequenceSuivante());
+            return json.finObjet().toString();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie l'état complet du jeu sous forme d'objets simples (tables et
+     * listes, relues depuis le JSON)
+     */
+    public Map<String, Object> etatComplet() {
+        return objet(etatJson());
+    }
+
+    /**
+     * Renvoie la trame différentielle depuis la version {@code depuis} sous
+     * forme d'objets simples (voir {@link #trameJson(int)}). Les numéros de
+     * version et le début du log sont des entiers.
+     */
+    public Map<String, Object> trame(int depuis) {
+        verrou.lock();
+        try {
+            Map<String, Object> data = objet(trameJson(depuis));
+            boolean complet = !estSuivie(depuis);
+            data.put("version", version);
+            data.put("depuis", complet ? 0 : depuis);
+            data.put("debutLog", debutLog(depuis));
+            return data;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie une page de l'historique du log : les {@link #TAILLE_PAGE_LOG}
+     * lignes (au plus) qui précèdent la ligne de numéro de séquence
+     * {@code avant}, parmi les lignes conservées. La page est vide s'il n'y a
+     * plus de ligne conservée avant celle-ci.
+     *
+     * @param avant numéro de séquence de la plus ancienne ligne déjà reçue par
+     *              le client (clé {@code debutLog} d'une trame ou d'une page)
+     */
+    public String pageLogJson(int avant) {
+        verrou.lock();
+        try {
+            int fin = finPage(avant);
+            EcrivainJson json = ecrivainTrames.vider().debutObjet();
+            json.nom("page").valeur(true);
+            log(json, debutPage(fin), fin);
+            return json.finObjet().toString();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * @return la page de l'historique du log sous forme d'objets simples (voir
+     * {@link #pageLogJson(int)})
+     */
+    public Map<String, Object> pageLog(int avant) {
+        verrou.lock();
+        try {
+            Map<String, Object> data = objet(pageLogJson(avant));
+            data.put("debutLog", ((Number) data.get("debutLog")).intValue());
+            return data;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie l'état complet du jeu au format de {@link ProtocoleBinaire}
+     * (mêmes informations que {@link #etatJson()}, avec le numéro de version)
+     *
+     * @return la trame, vide si aucune version n'a été enregistrée ou si la
+     * dernière version a été enregistrée sans sa forme binaire (voir
+     * {@link #enregistrerJson}) : il n'y a alors rien à envoyer
+     */
+    public byte[] etatBinaire() {
+        verrou.lock();
+        try {
+            if (version == 0 || promptBinaire == null) {
+                return new byte[0];
+            }
+            EcrivainBinaire sortie = ecrivainTramesBinaires.vider();
+            sortie.octet(ProtocoleBinaire.TRAME_ETAT);
+            sortie.entier(version);
+            sortie.brut(promptBinaire);
+            sortie.entier(proprietairesVilles.length);
+            for (Joueur proprietaire : proprietairesVilles) {
+                ProtocoleBinaire.ecrireProprietaire(sortie, proprietaire, joueurs);
+            }
+            sortie.entier(proprietairesRoutes.length);
+            for (Joueur proprietaire : proprietairesRoutes) {
+                ProtocoleBinaire.ecrireProprietaire(sortie, proprietaire, joueurs);
+            }
+            sortie.entier(binairesJoueurs.length);
+            for (byte[] joueur : binairesJoueurs) {
+                sortie.brut(joueur);
+            }
+            sortie.brut(pilesBinaire);
+            logBinaire(sortie, debutFenetreLog(), logBrut.getSequenceSuivante());
+            return sortie.octets();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie une page de l'historique du log au format de
+     * {@link ProtocoleBinaire} (voir {@link #pageLogJson(int)})
+     */
+    public byte[] pageLogBinaire(int avant) {
+        verrou.lock();
+        try {
+            int fin = finPage(avant);
+            EcrivainBinaire sortie = ecrivainTramesBinaires.vider();
+            sortie.octet(ProtocoleBinaire.TRAME_PAGE_LOG);
+            logBinaire(sortie, debutPage(fin), fin);
+            return sortie.octets();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * @return le numéro de séquence qui suit la dernière ligne d'une page
+     * d'historique
+     */
+    private int finPage(int avant) {
+        return Math.max(logJson.getPremiereSequence(), Math.min(avant, logJson.getSequenceSuivante()));
+    }
+
+    private int debutPage(int fin) {
+        return Math.max(logJson.getPremiereSequence(), fin - TAILLE_PAGE_LOG);
+    }
+
+    /**
+     * @return le numéro de séquence de la première ligne de log d'une trame
+     * depuis la version {@code depuis} (0 pour une trame complète)
+     */
+    private int debutLog(int depuis) {
+        if (!estSuivie(depuis)) {
+            return debutFenetreLog();
+        }
+        return Math.max(sequenceLog[depuis % CAPACITE_VERSIONS], logJson.getPremiereSequence());
+    }
+
+    /**
+     * @return true si une trame différentielle peut être calculée depuis cette
+     * version (une des {@link #CAPACITE_VERSIONS} dernières)
+     */
+    private boolean estSuivie(int depuis) {
+        return depuis > 0 && depuis <= version && version - depuis < CAPACITE_VERSIONS;
+    }
+
+    /**
+     * @return le numéro de séquence de la première ligne de log de l'état complet
+     */
+    private int debutFenetreLog() {
+        return Math.max(logJson.getPremiereSequence(), logJson.getSequenceSuivante() - TAILLE_PAGE_LOG);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> objet(String json) {
+        return GSON.fromJson(json, LinkedHashMap.class);
+    }
+
+    /**
+     * Écrit un champ dont la valeur est un fragment JSON (le champ est omis si
+     * la valeur est absente, comme le fait Gson)
+     */
+    private static void champ(EcrivainJson json, String nom, String fragment) {
+        if (fragment != null) {
+            json.nom(nom).brut(fragment);
+        }
+    }
+
+    /**
+     * Écrit les fragments des éléments modifiés après la version {@code depuis}
+     * (tous les éléments si {@code versions} est null)
+     */
+    private static void tableau(EcrivainJson json, String[] fragments, int[] versions, int depuis) {
+        json.debutTableau();
+        if (fragments != null) {
+            for (int i = 0; i < fragments.length; i++) {
+                if (versions == null || versions[i] > depuis) {
+                    json.brut(fragments[i]);
+                }
+            }
+        }
+        json.finTableau();
+    }
+
+    /**
+     * Écrit les clés {@code debutLog} et {@code log} : les lignes de log dont
+     * le numéro de séquence est entre {@code debut} (inclus) et {@code fin}
+     * (exclu)
+     */
+    private void log(EcrivainJson json, int debut, int fin) {
+        json.nom("debutLog").valeur(debut);
+        json.nom("log").debutTableau();
+        for (int sequence = debut; sequence < fin; sequence++) {
+            json.brut(logJson.getSequence(sequence));
+        }
+        json.finTableau();
+    }
+
+    /**
+     * Écrit le début et les lignes de log d'une trame binaire (voir
+     * {@link ProtocoleBinaire})
+     */
+    private void logBinaire(EcrivainBinaire sortie, int debut, int fin) {
+        sortie.entier(debut);
+        sortie.entier(fin - debut);
+        for (int sequence = debut; sequence < fin; sequence++) {
+            ProtocoleBinaire.ecrireLigne(sortie, logBrut.getLigne(sequence), joueurs);
+        }
+    }
+}
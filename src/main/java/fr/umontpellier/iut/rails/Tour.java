@@ -0,0 +1,501 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Déroulement d'un tour de jeu d'un joueur, sous forme de machine à états.
+ * <p>
+ * Chaque état correspond à une question posée au joueur (instruction, choix
+ * possibles, boutons et possibilité de passer, voir {@link Joueur#choisir}).
+ * {@link #traiter(String)} applique la réponse du joueur et passe à l'état
+ * suivant ; une réponse invalide est ignorée et l'état ne change pas. Rien
+ * n'est rappelé récursivement : redemander une carte, ou revenir au choix de
+ * l'action quand une gare est refusée, consiste seulement à rester dans un
+ * état (ou à y revenir).
+ * <p>
+ * Le choix des destinations en début de partie passe aussi par cette machine
+ * (voir {@link #commencerChoixDestinations(List, int)}).
+ * <p>
+ * Chaque joueur garde une instance qu'il réutilise à chaque tour, listes de
+ * choix comprises.
+ */
+public class Tour {
+    public enum Etat {
+        /**
+         * Choix de l'action du tour (route, ville, carte wagon, destinations ou passer)
+         */
+        CHOIX_ACTION,
+        /**
+         * Choix des cartes wagon à poser pour capturer une route
+         */
+        POSE_ROUTE,
+        /**
+         * Choix des cartes supplémentaires à défausser pour un tunnel
+         */
+        DEFAUSSE_TUNNEL,
+        /**
+         * Choix des cartes wagon à défausser pour construire une gare
+         */
+        DEFAUSSE_GARE,
+        /**
+         * Choix de la deuxième carte wagon à piocher
+         */
+        DEUXIEME_CARTE_WAGON,
+        /**
+         * Choix des destinations à défausser
+         */
+        CHOIX_DESTINATIONS,
+        TERMINE
+    }
+
+    private final Joueur joueur;
+    private final ActionsPossibles actionsPossibles = new ActionsPossibles();
+    private static final String INSTRUCTION_DESTINATIONS_INITIALES = "Choisir les destinations à defausser (max 2)";
+    private static final String INSTRUCTION_DESTINATIONS = "Voulez-vous défausser certaines destinations ? (maximum 2)";
+
+    private Etat etat = Etat.TERMINE;
+
+    /**
+     * Question posée au joueur dans l'état courant
+     */
+    private String instruction;
+    private Collection<String> choix;
+    private boolean peutPasser;
+    /**
+     * Listes de choix réutilisées d'un état à l'autre (cartes en main, cartes
+     * wagon à piocher, destinations)
+     */
+    private final List<String> choixCartes = new ArrayList<>();
+    private final List<String> choixDestinations = new ArrayList<>();
+    private final List<String> aucunBouton = new ArrayList<>();
+
+    /**
+     * Route en cours de capture
+     */
+    private Route route;
+    /**
+     * Couleur et nombre de cartes restant à défausser pour un tunnel
+     */
+    private CouleurWagon couleurTunnel;
+    private int nbCartesTunnel;
+    /**
+     * Ville de la gare en construction et nombre de cartes restant à défausser
+     */
+    private Ville ville;
+    private int nbCartesGare;
+    /**
+     * Destinations proposées au joueur, destinations écartées et nombre minimum de
+     * destinations à garder
+     */
+    private final List<Destination> destinationsProposees = new ArrayList<>();
+    private final List<Destination> destinationsDefaussees = new ArrayList<>();
+    private int nbDestinationsMin;
+    /**
+     * Choix des destinations de début de partie (les destinations écartées ne
+     * retournent pas dans la pioche)
+     */
+    private boolean destinationsInitiales;
+
+    public Tour(Joueur joueur) {
+        this.joueur = joueur;
+    }
+
+    /**
+     * Commence un nouveau tour de jeu (choix de l'action)
+     */
+    public void commencer() {
+        choisirAction();
+    }
+
+    /**
+     * Propose au joueur une liste de destinations, parmi lesquelles il doit en
+     * garder au moins nbMin (voir {@link Joueur#choisirDestinations(List, int)})
+     */
+    public void commencerChoixDestinations(List<Destination> destinationsPossibles, int nbMin) {
+        destinationsProposees.clear();
+        destinationsProposees.addAll(destinationsPossibles);
+        destinationsDefaussees.clear();
+        nbDestinationsMin = nbMin;
+        destinationsInitiales = true;
+        instruction = INSTRUCTION_DESTINATIONS_INITIALES;
+        choisirDestinations();
+    }
+
+    public Etat getEtat() {
+        return etat;
+    }
+
+    public boolean estTermine() {
+        return etat == Etat.TERMINE;
+    }
+
+    public String getInstruction() {
+        return instruction;
+    }
+
+    public Collection<String> getChoix() {
+        return choix;
+    }
+
+    public Collection<String> getBoutons() {
+        return etat == Etat.CHOIX_DESTINATIONS ? choixDestinations : aucunBouton;
+    }
+
+    public boolean peutPasser() {
+        return peutPasser;
+    }
+
+    /**
+     * @return les destinations écartées lors du dernier choix de destinations
+     */
+    public List<Destination> getDestinationsDefaussees() {
+        return destinationsDefaussees;
+    }
+
+    /**
+     * Applique la réponse du joueur à la question de l'état courant
+     *
+     * @param entree réponse du joueur (la chaîne vide pour passer)
+     * @return false si la réponse n'est pas valide (elle est alors ignorée)
+     */
+    public boolean traiter(String entree) {
+        if (entree == null) {
+            return false;
+        }
+        switch (etat) {
+            case CHOIX_ACTION:
+                return traiterAction(entree);
+            case POSE_ROUTE:
+                return traiterPoseRoute(entree);
+            case DEFAUSSE_TUNNEL:
+                return traiterDefausseTunnel(entree);
+            case DEFAUSSE_GARE:
+                return traiterDefausseGare(entree);
+            case DEUXIEME_CARTE_WAGON:
+                return traiterDeuxiemeCarte(entree);
+            case CHOIX_DESTINATIONS:
+                return traiterDestinations(entree);
+            default:
+                return false;
+        }
+    }
+
+    private void choisirAction() {
+        etat = Etat.CHOIX_ACTION;
+        actionsPossibles.calculer(joueur);
+        instruction = "Que voulez-vous faire ?";
+        choix = actionsPossibles.getOptions();
+        peutPasser = true;
+    }
+
+    /**
+     * Passe dans un état où le joueur choisit une carte de sa main
+     */
+    private void choisirCarteEnMain(Etat etat, String instruction, boolean peutPasser) {
+        this.etat = etat;
+        this.instruction = instruction;
+        this.peutPasser = peutPasser;
+        choixCartes.clear();
+        for (CouleurWagon carte : joueur.getCartesWagon()) {
+            choixCartes.add(carte.name());
+        }
+        choix = choixCartes;
+    }
+
+    private boolean traiterAction(String entree) {
+        Jeu jeu = joueur.getJeu();
+        // passer son tour
+        if (entree.equals("")) {
+            etat = Etat.TERMINE;
+            return true;
+        }
+        // Capturer route ?
+        Route routeChoisie = jeu.getRouteByNom(entree);
+        if (routeChoisie != null) {
+            if (!actionsPossibles.peutCapturer(routeChoisie)) {
+                if (routeChoisie.getProprietaire() == null) joueur.log("Vous ne pouvez pas construire cette route");
+                return false;
+            }
+            route = routeChoisie;
+            joueur.log(EntreeLog.Evenement.ROUTE_CHOISIE, route);
+            choisirCarteEnMain(Etat.POSE_ROUTE, "Choisir une carte wagon à poser", false);
+            return true;
+        }
+        // Ville cliquée ?
+        Ville villeChoisie = jeu.getVilleByNom(entree);
+        if (villeChoisie != null) {
+            if (!actionsPossibles.peutConstruireGare(villeChoisie)) return false;
+            ville = villeChoisie;
+            nbCartesGare = 4 - joueur.getNbGares();
+            joueur.getCartesWagonPosees().clear();
+            choisirCarteEnMain(Etat.DEFAUSSE_GARE, "Choisir carte à défausser.", true);
+            return true;
+        }
+        // nouvelle Destination ?
+        if (entree.equals(ActionsPossibles.DESTINATIONS)) {
+            if (!actionsPossibles.peutPiocherDestinations()) return false;
+            piocherDestinations();
+            return true;
+        }
+        // carte Wagon face cachée ?
+        if (entree.equals(ActionsPossibles.PIOCHE_WAGON)) {
+            if (!actionsPossibles.peutPiocherWagon()) return false;
+            joueur.getCartesWagon().add(jeu.piocherCarteWagon());
+            joueur.log(EntreeLog.Evenement.CARTE_PIOCHEE, CouleurWagon.GRIS);
+            choisirDeuxiemeCarte();
+            return true;
+        }
+        // carte Wagon visible ?
+        CouleurWagon carte = CouleurWagon.depuisNom(entree);
+        if (carte == null || !jeu.getCartesWagonVisibles().contains(carte)) return false;
+        jeu.retirerCarteWagonVisible(carte);
+        joueur.getCartesWagon().add(carte);
+        joueur.log(EntreeLog.Evenement.CARTE_PIOCHEE, carte);
+        //si joueur a pioché une locomotive, il passe son tour
+        if (carte == CouleurWagon.LOCOMOTIVE) {
+            etat = Etat.TERMINE;
+        } else {
+            choisirDeuxiemeCarte();
+        }
+        return true;
+    }
+
+    private void choisirDeuxiemeCarte() {
+        Jeu jeu = joueur.getJeu();
+        etat = Etat.DEUXIEME_CARTE_WAGON;
+        instruction = "Quelle carte Wagon voulez-vous piocher ?";
+        peutPasser = true;
+        //créer une liste de choix avec toutes les wagons visibles + wagon caché
+        choixCartes.clear();
+        if (!jeu.getPileCartesWagon().isEmpty() || !jeu.getDefausseCartesWagon().isEmpty())
+            choixCartes.add(ActionsPossibles.PIOCHE_WAGON);
+        for (CouleurWagon wagon : jeu.getCartesWagonVisibles()) {
+            choixCartes.add(wagon.name());
+        }
+        choix = choixCartes;
+    }
+
+    private boolean traiterDeuxiemeCarte(String entree) {
+        Jeu jeu = joueur.getJeu();
+        //Si il veut rien piocher il passe son tour
+        if (entree.equals("")) {
+            etat = Etat.TERMINE;
+            return true;
+        }
+        if (!choixCartes.contains(entree)) return false;
+        //s'il a cliqué sur la pile wagon caché on lui pioche une carte wagon cachée
+        if (entree.equals(ActionsPossibles.PIOCHE_WAGON)) {
+            joueur.getCartesWagon().add(jeu.piocherCarteWagon());
+            joueur.log(EntreeLog.Evenement.CARTE_PIOCHEE, CouleurWagon.GRIS);
+            etat = Etat.TERMINE;
+            return true;
+        }
+        CouleurWagon carte = CouleurWagon.depuisNom(entree);
+        // choix loco interdit en deuxième carte
+        if (carte == CouleurWagon.LOCOMOTIVE) {
+            joueur.log("Choix impossible en deuxième carte...");
+            return true;
+        }
+        jeu.retirerCarteWagonVisible(carte);
+        joueur.getCartesWagon().add(carte);
+        joueur.log(EntreeLog.Evenement.CARTE_PIOCHEE, carte);
+        etat = Etat.TERMINE;
+        return true;
+    }
+
+    /**
+     * @return la carte choisie si elle est dans la main du joueur (null sinon)
+     */
+    private CouleurWagon carteEnMain(String entree) {
+        CouleurWagon carte = CouleurWagon.depuisNom(entree);
+        return carte != null && joueur.getCartesWagon().nb(carte) > 0 ? carte : null;
+    }
+
+    /**
+     * Déplace une carte de la main du joueur vers ses cartes posées
+     */
+    private void poser(CouleurWagon carte) {
+        joueur.getCartesWagonPosees().add(carte);
+        joueur.getCartesWagon().remove(carte);
+        joueur.log(EntreeLog.Evenement.CARTE_POSEE, carte);
+    }
+
+    /**
+     * Remet les cartes posées dans la main du joueur
+     */
+    private void reprendreCartesPosees() {
+        joueur.getCartesWagon().addAll(joueur.getCartesWagonPosees());
+        joueur.getCartesWagonPosees().clear();
+    }
+
+    private boolean traiterPoseRoute(String entree) {
+        CouleurWagon carte = carteEnMain(entree);
+        if (carte == null) return false;
+        MainCartesWagon posees = joueur.getCartesWagonPosees();
+        if (!route.verifierCouleurWagonChoisie(carte, joueur.getCartesWagon(), posees)) {
+            if (posees.isEmpty()) joueur.log(EntreeLog.Evenement.CARTE_INVALIDE, carte);
+            return true;
+        }
+        poser(carte);
+        if (posees.size() < route.getLongueur()) {
+            choisirCarteEnMain(Etat.POSE_ROUTE, "Choisir une carte wagon à poser", false);
+            return true;
+        }
+        // toutes les cartes sont posées (un tunnel peut en demander d'autres)
+        int nbSupplementaires = route.piocherCartesSupplementaires(joueur);
+        if (nbSupplementaires < 0) {
+            etat = Etat.TERMINE;
+        } else if (nbSupplementaires == 0) {
+            capturer();
+        } else {
+            // les cartes posées sont triées par couleur : la première est la couleur jouée
+            // (ou LOCOMOTIVE si le joueur n'a posé que des locomotives)
+            couleurTunnel = posees.get(0);
+            nbCartesTunnel = nbSupplementaires;
+            choisirCarteEnMain(Etat.DEFAUSSE_TUNNEL, "Choisir une carte supplémentaire à défausser", true);
+        }
+        return true;
+    }
+
+    private boolean traiterDefausseTunnel(String entree) {
+        if (entree.equals("")) {
+            reprendreCartesPosees();
+            joueur.log(EntreeLog.Evenement.CONSTRUCTION_ABANDONNEE, route);
+            etat = Etat.TERMINE;
+            return true;
+        }
+        CouleurWagon carte = carteEnMain(entree);
+        if (carte == null) return false;
+        if (carte == couleurTunnel || carte == CouleurWagon.LOCOMOTIVE) {
+            poser(carte);
+            nbCartesTunnel--;
+            if (nbCartesTunnel == 0) {
+                capturer();
+            } else {
+                choisirCarteEnMain(Etat.DEFAUSSE_TUNNEL, "Choisir une carte supplémentaire à défausser", true);
+            }
+        }
+        return true;
+    }
+
+    private void capturer() {
+        joueur.capturer(route);
+        etat = Etat.TERMINE;
+    }
+
+    private boolean traiterDefausseGare(String entree) {
+        Jeu jeu = joueur.getJeu();
+        if (entree.equals("")) {
+            // le joueur renonce à la gare et choisit une autre action
+            reprendreCartesPosees();
+            choisirAction();
+            return true;
+        }
+        CouleurWagon carte = carteEnMain(entree);
+        if (carte == null) return false;
+        // carte supprimée (temporairement si erreur de choix) de la main du joueur
+        joueur.getCartesWagonPosees().add(carte);
+        joueur.getCartesWagon().remove(carte);
+        joueur.log(EntreeLog.Evenement.CARTE_DEFAUSSEE_GARE, carte);
+        nbCartesGare--;
+        if (nbCartesGare > 0) {
+            choisirCarteEnMain(Etat.DEFAUSSE_GARE, "Choisir carte à défausser.", true);
+            return true;
+        }
+        // si les cartes défaussées sont de la même couleur (+ locos)
+        if (jeu.verifierCouleursDefausseesGare(joueur.getCartesWagonPosees())) {
+            joueur.construireGare(ville);
+            etat = Etat.TERMINE;
+        } else {
+            joueur.log("Couleurs défaussées non équivalentes");
+            // on remet les cartes dans la main du joueur, qui choisit une autre action
+            reprendreCartesPosees();
+            choisirAction();
+        }
+        return true;
+    }
+
+    private void piocherDestinations() {
+        Jeu jeu = joueur.getJeu();
+        destinationsProposees.clear();
+        destinationsDefaussees.clear();
+        for (int i = 0; i < 3; i++) {
+            if (!jeu.getPileDestinations().isEmpty())
+                destinationsProposees.add(jeu.piocherDestination());
+        }
+        nbDestinationsMin = 1;
+        destinationsInitiales = false;
+        instruction = INSTRUCTION_DESTINATIONS;
+        choisirDestinations();
+    }
+
+    /**
+     * @return les destinations proposées au joueur (état CHOIX_DESTINATIONS)
+     */
+    List<Destination> getDestinationsProposees() {
+        return destinationsProposees;
+    }
+
+    int getNbDestinationsMin() {
+        return nbDestinationsMin;
+    }
+
+    boolean estChoixDestinationsInitiales() {
+        return destinationsInitiales;
+    }
+
+    /**
+     * Replace le tour dans l'état CHOIX_DESTINATIONS (voir {@link Instantane})
+     */
+    void restaurerChoixDestinations(List<Destination> proposees, List<Destination> defaussees, int nbMin,
+                                    boolean initiales) {
+        destinationsProposees.clear();
+        destinationsProposees.addAll(proposees);
+        destinationsDefaussees.clear();
+        destinationsDefaussees.addAll(defaussees);
+        nbDestinationsMin = nbMin;
+        destinationsInitiales = initiales;
+        instruction = initiales ? INSTRUCTION_DESTINATIONS_INITIALES : INSTRUCTION_DESTINATIONS;
+        choisirDestinations();
+    }
+
+    private void choisirDestinations() {
+        if (destinationsProposees.size() <= nbDestinationsMin) {
+            garderDestinations();
+            return;
+        }
+        etat = Etat.CHOIX_DESTINATIONS;
+        peutPasser = true;
+        choixDestinations.clear();
+        for (Destination d : destinationsProposees) {
+            choixDestinations.add(d.getNom());
+        }
+        choix = choixDestinations;
+    }
+
+    private boolean traiterDestinations(String entree) {
+        if (entree.equals("")) {
+            garderDestinations();
+            return true;
+        }
+        int indice = choixDestinations.indexOf(entree);
+        if (indice < 0) return false;
+        Destination d = destinationsProposees.remove(indice);
+        destinationsDefaussees.add(d);
+        if (!destinationsInitiales) joueur.getJeu().getPileDestinations().add(d);
+        joueur.log(EntreeLog.Evenement.DESTINATION_ABANDONNEE, d.getNom());
+        choisirDestinations();
+        return true;
+    }
+
+    private void garderDestinations() {
+        for (Destination d : destinationsProposees) {
+            joueur.getDestinations().add(d);
+            joueur.log(EntreeLog.Evenement.DESTINATION_GARDEE, d.getNom());
+        }
+        destinationsProposees.clear();
+        etat = Etat.TERMINE;
+    }
+}
@@ -0,0 +1,201 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Tournoi entre robots : un grand nombre de parties sans affichage (voir
+ * {@link Jeu#setModeSansAffichage(SourceDecisions, boolean)}) jouées en
+ * parallèle sur tous les cœurs.
+ * <p>
+ * Les parties sont réparties par un {@link ForkJoinPool} : l'intervalle des
+ * parties à jouer est coupé en deux jusqu'à obtenir des lots de
+ * {@link #TAILLE_LOT} parties, et les threads inoccupés volent les lots des
+ * autres. Chaque lot est joué par un seul thread, avec sa propre source de
+ * décisions et ses propres statistiques : les threads ne partagent aucun état
+ * modifiable pendant les parties, et les statistiques sont fusionnées en
+ * remontant l'arbre des tâches.
+ * <p>
+ * Les résultats peuvent aussi être suivis pendant le tournoi (voir
+ * {@link #jouer(long, ForkJoinPool, Consumer)}) : chaque lot terminé est ajouté
+ * à un cumul partagé, et une copie du cumul est transmise à l'appelant.
+ * <p>
+ * La graine de chaque partie ne dépend que de la graine du tournoi et de
+ * l'indice de la partie (voir {@link #graineDePartie(long)}), pas du thread
+ * qui la joue : les mêmes parties sont distribuées quel que soit le nombre de
+ * threads.
+ */
+public class Tournoi {
+    /**
+     * Nombre de parties jouées d'un bloc par un même thread
+     */
+    public static final int TAILLE_LOT = 16;
+    /**
+     * Nombre maximum de décisions par partie (au-delà, la partie est abandonnée)
+     */
+    public static final int NB_MAX_DECISIONS = 1_000_000;
+
+    private final String[] nomsJoueurs;
+    private final long graine;
+    /**
+     * Crée la source de décisions d'un lot de parties
+     */
+    private final Supplier<SourceDecisions> fabriqueJoueurs;
+    /**
+     * Calcul du plus long chemin (ne dépend que du plateau, partagé par tous les threads)
+     */
+    private final CheminLePlusLong chemins;
+    private final int nbRoutes;
+    /**
+     * Nombre de parties déjà jouées (peut être consulté pendant le tournoi)
+     */
+    private final LongAdder nbPartiesJouees = new LongAdder();
+
+    /**
+     * Crée un tournoi avec une graine choisie au hasard
+     */
+    public Tournoi(String[] nomsJoueurs, Supplier<SourceDecisions> fabriqueJoueurs) {
+        this(nomsJoueurs, fabriqueJoueurs, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @param nomsJoueurs     noms des joueurs de chaque partie
+     * @param fabriqueJoueurs crée une source de décisions pour un lot de parties
+     *                        (appelée par le thread qui joue le lot)
+     * @param graine          graine dont dépendent les graines des parties
+     */
+    public Tournoi(String[] nomsJoueurs, Supplier<SourceDecisions> fabriqueJoueurs, long graine) {
+        this.nomsJoueurs = nomsJoueurs;
+        this.graine = graine;
+        this.fabriqueJoueurs = fabriqueJoueurs;
+        Plateau plateau = Plateau.makePlateauEurope();
+        chemins = new CheminLePlusLong(plateau.getGraphe());
+        nbRoutes = plateau.getRoutes().size();
+    }
+
+    /**
+     * Joue les parties du tournoi sur le pool commun
+     */
+    public ResultatsTournoi jouer(long nbParties) {
+        return jouer(nbParties, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Joue les parties du tournoi sur le pool donné (un thread par cœur pour
+     * occuper toute la machine)
+     */
+    public ResultatsTournoi jouer(long nbParties, ForkJoinPool pool) {
+        return pool.invoke(new Lot(0, nbParties, null));
+    }
+
+    /**
+     * Joue les parties du tournoi sur le pool donné, en transmettant les
+     * résultats partiels à chaque lot terminé
+     *
+     * @param suivi reçoit, après chaque lot, une copie des résultats de toutes
+     *              les parties déjà jouées (appelé par le thread qui a joué le
+     *              lot, jamais par deux threads à la fois, avec des résultats
+     *              qui portent sur de plus en plus de parties)
+     */
+    public ResultatsTournoi jouer(long nbParties, ForkJoinPool pool, Consumer<ResultatsTournoi> suivi) {
+        return pool.invoke(new Lot(0, nbParties, new Cumul(suivi)));
+    }
+
+    /**
+     * @return le nombre de parties jouées depuis la création du tournoi
+     */
+    public long getNbPartiesJouees() {
+        return nbPartiesJouees.sum();
+    }
+
+    public long getGraine() {
+        return graine;
+    }
+
+    /**
+     * @return la graine de la partie d'indice i du tournoi
+     */
+    public long graineDePartie(long i) {
+        return new SplittableRandom(graine + i).nextLong();
+    }
+
+    /**
+     * Joue les parties d'indices {@code debut} (inclus) à {@code fin} (exclus)
+     * dans le thread courant
+     */
+    private ResultatsTournoi jouerLot(long debut, long fin) {
+        ResultatsTournoi resultats = new ResultatsTournoi(nomsJoueurs.length, nbRoutes);
+        SourceDecisions joueurs = fabriqueJoueurs.get();
+        for (long i = debut; i < fin; i++) {
+            Jeu jeu = new Jeu(nomsJoueurs, graineDePartie(i));
+            jeu.setModeSansAffichage(joueurs, false);
+            jeu.simuler(NB_MAX_DECISIONS);
+            resultats.enregistrer(jeu, chemins);
+            nbPartiesJouees.increment();
+        }
+        return resultats;
+    }
+
+    /**
+     * Résultats cumulés des lots terminés, transmis au suivi du tournoi
+     */
+    private class Cumul {
+        private final ResultatsTournoi resultats = new ResultatsTournoi(nomsJoueurs.length, nbRoutes);
+        private final Consumer<ResultatsTournoi> suivi;
+
+        Cumul(Consumer<ResultatsTournoi> suivi) {
+            this.suivi = suivi;
+        }
+
+        synchronized void ajouter(ResultatsTournoi lot) {
+            resultats.fusionner(lot);
+            ResultatsTournoi copie = new ResultatsTournoi(nomsJoueurs.length, nbRoutes);
+            copie.fusionner(resultats);
+            suivi.accept(copie);
+        }
+    }
+
+    /**
+     * Tâche qui joue les parties d'indices {@code debut} (inclus) à {@code fin}
+     * (exclus)
+     */
+    private class Lot extends RecursiveTask<ResultatsTournoi> {
+        private static final long serialVersionUID = 1L;
+
+        private final long debut;
+        private final long fin;
+        /**
+         * Cumul auquel chaque lot terminé est ajouté (null si les résultats ne
+         * sont pas suivis pendant le tournoi)
+         */
+        private final Cumul cumul;
+
+        Lot(long debut, long fin, Cumul cumul) {
+            this.debut = debut;
+            this.fin = fin;
+            this.cumul = cumul;
+        }
+
+        @Override
+        protected ResultatsTournoi compute() {
+            if (fin - debut <= TAILLE_LOT) {
+                ResultatsTournoi resultats = jouerLot(debut, fin);
+                if (cumul != null) {
+                    cumul.ajouter(resultats);
+                }
+                return resultats;
+            }
+            long milieu = (debut + fin) >>> 1;
+            Lot gauche = new Lot(debut, milieu, cumul);
+            gauche.fork();
+            ResultatsTournoi resultats = new Lot(milieu, fin, cumul).compute();
+            resultats.fusionner(gauche.join());
+            return resultats;
+        }
+    }
+}
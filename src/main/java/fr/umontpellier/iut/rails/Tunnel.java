@@ -13,63 +13,40 @@ public class Tunnel extends Route {
     }
 
 
+    /**
+     * Retourne les 3 premières cartes de la pioche : le joueur doit défausser une
+     * carte supplémentaire (de la couleur jouée ou locomotive) pour chaque carte
+     * de la même couleur ou locomotive
+     */
     @Override
-    public boolean seConstruire(CouleurWagon wagonChoisi, Joueur joueur) {
-        super.seConstruire(wagonChoisi, joueur);
-        CouleurWagon couleurPose = null;
-        for (int i = 0; i < joueur.getCartesWagonPosees().size(); i++) {
-            if (joueur.getCartesWagonPosees().get(i).equals(CouleurWagon.LOCOMOTIVE)) {
-                couleurPose = CouleurWagon.LOCOMOTIVE;
-            } else {
-                couleurPose = joueur.getCartesWagonPosees().get(i);
-                break;
-            }
-        }
+    public int piocherCartesSupplementaires(Joueur joueur) {
+        // les cartes posées sont triées par couleur : la première est la couleur jouée
+        // (ou LOCOMOTIVE si le joueur n'a posé que des locomotives)
+        CouleurWagon couleurPose = joueur.getCartesWagonPosees().get(0);
         joueur.log("3 premières cartes de le pile : ");
         ArrayList<CouleurWagon> troisWagons = new ArrayList<>();
         for (int i = 0; i < 3; i++) {
             if (!joueur.getJeu().getPileCartesWagon().isEmpty() || !joueur.getJeu().getDefausseCartesWagon().isEmpty()) {
                 troisWagons.add(0, joueur.getJeu().piocherCarteWagon());
-                joueur.log(troisWagons.get(0).toLog());
+                joueur.log(EntreeLog.Evenement.CARTE_TUNNEL, troisWagons.get(0));
             }
         }
         joueur.getJeu().getDefausseCartesWagon().addAll(troisWagons);
         //on compare ces 3 cartes avec les cartes wagon en mai de joueur
         int nbDefausseTunnel = couleurPose.compteNbCouleur(troisWagons);
-        int nbDefaussePossible = couleurPose.compteNbCouleur(joueur.getCartesWagon());
+        int nbDefaussePossible = joueur.getCartesWagon().nb(couleurPose);
         if(!couleurPose.equals(CouleurWagon.LOCOMOTIVE)) {
             nbDefausseTunnel += CouleurWagon.LOCOMOTIVE.compteNbCouleur(troisWagons);
-            nbDefaussePossible += CouleurWagon.LOCOMOTIVE.compteNbCouleur(joueur.getCartesWagon());
+            nbDefaussePossible += joueur.getCartesWagon().nb(CouleurWagon.LOCOMOTIVE);
         }
         //Si joueur n'a pas pas assez de cartes à défausser, il passe son tour
         if(nbDefaussePossible<nbDefausseTunnel) {
             joueur.getCartesWagon().addAll(joueur.getCartesWagonPosees());
             joueur.getCartesWagonPosees().clear();
-            joueur.log("Vous ne pouvez pas construire "+toLog());
-            return false;
+            joueur.log(EntreeLog.Evenement.TUNNEL_IMPOSSIBLE, this);
+            return -1;
         }
-        if(nbDefausseTunnel==0) return true;
-
-        do {
-            String wagonSupADafausser = joueur.choisir("Choisir une carte supplémentaire à défausser"
-                    , CouleurWagon.listeWagonToString(joueur.getCartesWagon()), new ArrayList<>(), true);
-
-            if (wagonSupADafausser == "") {
-                joueur.getCartesWagon().addAll(joueur.getCartesWagonPosees());
-                joueur.getCartesWagonPosees().clear();
-                joueur.log("Vous abandonnez la construction de "+toLog());
-                return false;
-            }
-
-            CouleurWagon wagonSupADafausserCW=CouleurWagon.valueOf(wagonSupADafausser);
-            if(wagonSupADafausserCW.equals(couleurPose)||wagonSupADafausserCW.equals(CouleurWagon.LOCOMOTIVE)){
-                nbDefausseTunnel--;
-                joueur.getCartesWagonPosees().add(wagonSupADafausserCW);
-                joueur.getCartesWagon().remove(wagonSupADafausserCW);
-                joueur.log("Vous avez posé "+wagonSupADafausserCW.toLog());
-            }
-        } while (nbDefausseTunnel != 0);
-        return true;
+        return nbDefausseTunnel;
     }
 
 }
@@ -2,7 +2,7 @@ package fr.umontpellier.iut.rails;
 
 import java.util.HashMap;
 
-public class Ville {
+public class Ville implements ElementLog {
     /**
      * Nom complet de la ville
      */
@@ -11,14 +11,44 @@ public class Ville {
      * Joueur qui a construit une gare sur la ville (ou `null` si pas de gare)
      */
     private Joueur proprietaire;
+    /**
+     * Identifiant de la ville sur le plateau (indice dans la liste du plateau, voir
+     * {@link GraphePlateau})
+     */
+    private int id;
+    /**
+     * Plateau auquel appartient la ville (prévenu quand une gare y est construite)
+     */
+    private Plateau plateau;
+    /**
+     * Ordre des clés de {@link #asPOJO()}
+     */
+    private static final String[] CLES_JSON = EcrivainJson.ordreHashMap("nom", "proprietaire");
+    /**
+     * Fragment HTML de la ville dans le log
+     */
+    private final String fragmentLog;
 
     public Ville(String nom) {
         this.nom = nom;
+        fragmentLog = "<span class=\"ville\">" + nom + "</span>";
     }
 
     public String getNom() {
         return nom;
     }
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    void setPlateau(Plateau plateau) {
+        this.plateau = plateau;
+    }
     
     public Joueur getProprietaire() {
         return proprietaire;
@@ -26,6 +56,7 @@ public class Ville {
     
     public void setProprietaire(Joueur proprietaire) {
         this.proprietaire = proprietaire;
+        if (plateau != null) plateau.proprietaireChange(this);
     }
     
     @Override
@@ -33,8 +64,9 @@ public class Ville {
         return nom;
     }
 
+    @Override
     public String toLog() {
-        return String.format("<span class=\"ville\">%s</span>", nom);
+        return fragmentLog;
     }
 
     public Object asPOJO() {
@@ -45,4 +77,19 @@ public class Ville {
         }    
         return data;
     }    
+
+    /**
+     * Écrit la représentation JSON de la ville (la même que celle de {@link #asPOJO()})
+     */
+    public void ecrireJson(EcrivainJson json) {
+        json.debutObjet();
+        for (String cle : CLES_JSON) {
+            if (cle.equals("nom")) {
+                json.nom(cle).valeur(nom);
+            } else if (proprietaire != null) {
+                json.nom(cle).valeur(proprietaire.getCouleur().name());
+            }
+        }
+        json.finObjet();
+    }
 }
@@ -0,0 +1,268 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Jeu;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChargeServeurTest {
+    /**
+     * Nombre de parties hébergées simultanément pendant le test de charge
+     */
+    private static final int NB_PARTIES = 2000;
+    /**
+     * Nombre de parties inactives du test d'endurance sur threads virtuels (100 000
+     * avec le profil Maven java21)
+     */
+    private static final int NB_PARTIES_ENDURANCE = Integer.getInteger("rails.soak.parties", NB_PARTIES);
+
+    private final List<String> idsParties = new ArrayList<>();
+
+    @AfterEach
+    void nettoyer() throws InterruptedException {
+        for (String id : idsParties) {
+            Partie partie = GameServer.getPartie(id);
+            if (partie != null) {
+                GameServer.retirerPartie(id);
+                partie.arreter();
+                if (partie.getThread() != null) {
+                    partie.getThread().join();
+                }
+            }
+        }
+        System.clearProperty(GameServer.PROPRIETE_MAX_PARTIES);
+    }
+
+    /**
+     * Crée une session websocket factice qui demande à rejoindre une partie (les
+     * envois asynchrones se terminent immédiatement)
+     */
+    static Session session(String idPartie) {
+        Session session = mock(Session.class);
+        Map<String, Object> proprietes = new HashMap<>();
+        when(session.getUserProperties()).thenReturn(proprietes);
+        when(session.getRequestParameterMap()).thenReturn(Map.of(GameServer.PARAMETRE_PARTIE, List.of(idPartie)));
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, SendHandler.class).onResult(new SendResult());
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+        when(session.getAsyncRemote()).thenReturn(remote);
+        when(session.getId()).thenReturn(idPartie + "-" + System.identityHashCode(session));
+        return session;
+    }
+
+    private static long memoireUtilisee() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    void testRoutageDesEntreesVersLaBonnePartie() {
+        Partie p1 = GameServer.creerPartie("routage-1");
+        Partie p2 = GameServer.creerPartie("routage-2");
+        idsParties.add("routage-1");
+        idsParties.add("routage-2");
+        assertNull(GameServer.creerPartie("routage-1"));
+
+        WebSocketClient client = new WebSocketClient();
+        Session s1 = session("routage-1");
+        Session s2 = session("routage-2");
+        client.onOpen(s1);
+        client.onOpen(s2);
+        assertEquals(1, p1.getNbClients());
+        assertEquals(1, p2.getNbClients());
+
+        client.onMessage("Paris", s1);
+        client.onMessage("GRIS", s2);
+        assertEquals("Paris", p1.getJeu().lireLigne());
+        assertEquals("GRIS", p2.getJeu().lireLigne());
+
+        client.onClose(s1);
+        assertEquals(0, p1.getNbClients());
+        assertSame(p1, GameServer.getPartie("routage-1"));
+    }
+
+    @Test
+    void testNombreMaximalDeParties() throws IOException {
+        System.setProperty(GameServer.PROPRIETE_MAX_PARTIES, String.valueOf(GameServer.getNbParties() + 2));
+        idsParties.addAll(List.of("max-1", "max-2", "max-3"));
+        assertNotNull(GameServer.creerPartie("max-1"));
+        assertNotNull(GameServer.creerPartie("max-2"));
+        assertNull(GameServer.creerPartie("max-3"));
+        assertNull(GameServer.getOuCreerPartie("max-3"));
+        assertNull(GameServer.getPartie("max-3"));
+
+        // la connexion qui demande une nouvelle partie est refusée, les parties existantes restent accessibles
+        Session refusee = session("max-3");
+        new WebSocketClient().onOpen(refusee);
+        assertNull(GameServer.getPartie("max-3"));
+        assertTrue(refusee.getUserProperties().isEmpty());
+        verify(refusee).close(any(CloseReason.class));
+        Session acceptee = session("max-1");
+        new WebSocketClient().onOpen(acceptee);
+        assertEquals(1, GameServer.getPartie("max-1").getNbClients());
+    }
+
+    @Test
+    void testChargeMilliersDeParties() throws InterruptedException {
+        System.setProperty(GameServer.PROPRIETE_MAX_PARTIES, String.valueOf(GameServer.getNbParties() + NB_PARTIES));
+        int nbPartiesAvant = GameServer.getNbParties();
+        PrintStream sortie = System.out;
+        long memoireAvant = memoireUtilisee();
+        long debut = System.nanoTime();
+        List<Partie> parties = new ArrayList<>();
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            // les parties sont démarrées comme celles des clients : thread, premier prompt et état envoyé compris
+            for (int i = 0; i < NB_PARTIES; i++) {
+                String id = "charge-" + i;
+                idsParties.add(id);
+                parties.add(GameServer.getOuCreerPartie(id));
+            }
+            for (Partie partie : parties) {
+                while (partie.getEtatJeu().isEmpty()) {
+                    Thread.sleep(1);
+                }
+            }
+        } finally {
+            System.setOut(sortie);
+        }
+        long duree = System.nanoTime() - debut;
+        long memoireApres = memoireUtilisee();
+        int nbThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        assertEquals(nbPartiesAvant + NB_PARTIES, GameServer.getNbParties());
+
+        // une partie sur deux reçoit une instruction : seules celles-là avancent
+        WebSocketClient client = new WebSocketClient();
+        for (int i = 0; i < NB_PARTIES; i++) {
+            Session session = session(idsParties.get(i));
+            client.onOpen(session);
+            if (i % 2 == 0) {
+                client.onMessage("", session);
+            }
+        }
+        for (int i = 0; i < NB_PARTIES; i++) {
+            Jeu jeu = parties.get(i).getJeu();
+            String attendu = i % 2 == 0 ? "Largo" : "Guybrush";
+            for (int k = 0; k < 1000 && !jeu.getJoueurCourant().getNom().equals(attendu); k++) {
+                Thread.sleep(10);
+            }
+            assertEquals(attendu, jeu.getJoueurCourant().getNom());
+            assertEquals(1, parties.get(i).getNbClients());
+        }
+
+        long octetsParPartie = Math.max(1, (memoireApres - memoireAvant) / NB_PARTIES);
+        System.out.printf("%d parties démarrées en %d ms, %d Ko par partie (hors piles des %d threads), "
+                        + "capacité estimée : %d parties (tas max %d Mo)%n",
+                NB_PARTIES, duree / 1_000_000, octetsParPartie / 1024, nbThreads,
+                Runtime.getRuntime().maxMemory() / octetsParPartie,
+                Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    }
+
+    @Test
+    void testChargeModeEvenementiel() {
+        BoucleEvenements boucle = new BoucleEvenements(2);
+        long memoireAvant = memoireUtilisee();
+        long debut = System.nanoTime();
+        List<Partie> parties = new ArrayList<>();
+        for (int i = 0; i < NB_PARTIES; i++) {
+            Partie partie = new Partie("evenements-" + i, new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}));
+            partie.demarrer(boucle);
+            parties.add(partie);
+        }
+        // les 4 joueurs gardent leurs destinations, puis les 2 premiers passent leur tour
+        for (int k = 0; k < 6; k++) {
+            for (Partie partie : parties) {
+                partie.addInput("");
+            }
+        }
+        boucle.arreter();
+        long duree = System.nanoTime() - debut;
+        long memoireApres = memoireUtilisee();
+
+        for (Partie partie : parties) {
+            assertEquals("LeChuck", partie.getJeu().getJoueurCourant().getNom());
+            assertEquals(4, partie.getJeu().getJoueurs().get(3).getDestinations().size());
+            assertFalse(partie.estTerminee());
+        }
+        long octetsParPartie = Math.max(1, (memoireApres - memoireAvant) / NB_PARTIES);
+        System.out.printf("mode événementiel : %d parties sur %d threads, %d entrées traitées en %d ms, %d Ko par partie%n",
+                NB_PARTIES, boucle.getNbBoucles(), 6 * NB_PARTIES, duree / 1_000_000, octetsParPartie / 1024);
+    }
+
+    @Test
+    void testEnduranceThreadsVirtuels() throws InterruptedException {
+        PrintStream sortie = System.out;
+        List<Partie> parties = new ArrayList<>();
+        long memoireAvant = memoireUtilisee();
+        long debut = System.nanoTime();
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (int i = 0; i < NB_PARTIES_ENDURANCE; i++) {
+                Partie partie = new Partie("virtuels-" + i, new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}));
+                partie.demarrer(true);
+                parties.add(partie);
+            }
+            // toutes les parties attendent le choix des destinations du premier joueur
+            for (Partie partie : parties) {
+                while (partie.getJeu().getSuiviEtat().getVersion() == 0) {
+                    Thread.sleep(1);
+                }
+            }
+        } finally {
+            System.setOut(sortie);
+        }
+        long duree = System.nanoTime() - debut;
+        long memoireApres = memoireUtilisee();
+        int nbThreadsSysteme = ManagementFactory.getThreadMXBean().getThreadCount();
+        int nbPorteurs = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("ForkJoinPool-")) {
+                nbPorteurs++;
+            }
+        }
+
+        for (Partie partie : parties) {
+            assertFalse(partie.estTerminee());
+            partie.arreter();
+        }
+        for (Partie partie : parties) {
+            partie.getThread().join();
+            assertTrue(partie.estTerminee());
+        }
+        if (FabriqueThreads.threadsVirtuelsDisponibles()) {
+            assertTrue(nbThreadsSysteme < NB_PARTIES_ENDURANCE);
+        }
+        long octetsParPartie = Math.max(1, (memoireApres - memoireAvant) / NB_PARTIES_ENDURANCE);
+        System.out.printf("threads %s : %d parties inactives démarrées en %d ms, %d Ko par partie (tas utilisé %d Mo), "
+                        + "%d threads système dont %d threads porteurs%n",
+                FabriqueThreads.threadsVirtuelsDisponibles() ? "virtuels" : "système (Java < 21)",
+                NB_PARTIES_ENDURANCE, duree / 1_000_000, octetsParPartie / 1024,
+                (memoireApres - memoireAvant) / (1024 * 1024), nbThreadsSysteme, nbPorteurs);
+    }
+}
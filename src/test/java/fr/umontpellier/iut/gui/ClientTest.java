@@ -0,0 +1,71 @@
+package fr.umontpellier.iut.gui;
+
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClientTest {
+    /**
+     * Session dont les envois ne se terminent que lorsque le test le décide
+     */
+    private final LinkedBlockingQueue<SendHandler> envoisEnCours = new LinkedBlockingQueue<>();
+    private final List<String> tramesRecues = new CopyOnWriteArrayList<>();
+
+    private Client clientBloque() {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        doAnswer(invocation -> {
+            tramesRecues.add(invocation.getArgument(0));
+            envoisEnCours.add(invocation.getArgument(1));
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+        when(session.getAsyncRemote()).thenReturn(remote);
+        when(session.getId()).thenReturn("bloque");
+        return new Client(session, null, Client.Protocole.JSON);
+    }
+
+    @Test
+    void testClientLentNeRecoitQueLaDerniereTrame() throws InterruptedException {
+        Client client = clientBloque();
+        long coalescencesAvant = Client.getTotalCoalescences();
+
+        client.envoyer("trame-0");
+        SendHandler premierEnvoi = envoisEnCours.poll(5, TimeUnit.SECONDS);
+        assertNotNull(premierEnvoi);
+
+        // le client ne consomme plus : les envois ne doivent pas bloquer l'appelant
+        for (int i = 1; i <= 100; i++) {
+            client.envoyer("trame-" + i);
+        }
+        assertTrue(client.getNbTramesEnAttente() <= Client.CAPACITE_FILE);
+        assertTrue(client.getNbTramesCoalescees() > 0);
+        assertTrue(Client.getTotalCoalescences() > coalescencesAvant);
+
+        // le client se débloque : il reçoit les trames restantes, dont la dernière
+        premierEnvoi.onResult(new SendResult());
+        while (client.getNbTramesEnvoyees() + client.getNbTramesCoalescees() < 101) {
+            SendHandler envoi = envoisEnCours.poll(10, TimeUnit.SECONDS);
+            assertNotNull(envoi);
+            envoi.onResult(new SendResult());
+        }
+        assertEquals("trame-100", tramesRecues.get(tramesRecues.size() - 1));
+        assertEquals(101, tramesRecues.size() + client.getNbTramesCoalescees());
+        assertEquals(0, client.getNbTramesEnAttente());
+        assertNull(envoisEnCours.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(tramesRecues.size(), client.getNbTramesEnvoyees());
+    }
+}
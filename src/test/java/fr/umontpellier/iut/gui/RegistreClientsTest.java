@@ -0,0 +1,105 @@
+package fr.umontpellier.iut.gui;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegistreClientsTest {
+    private static final String ID_PARTIE = "stress-registre";
+    private static final int NB_THREADS = 8;
+    private static final int NB_SESSIONS_PAR_THREAD = 500;
+    private static final int NB_CYCLES = 10;
+
+    @AfterEach
+    void nettoyer() {
+        GameServer.retirerPartie(ID_PARTIE);
+    }
+
+    @Test
+    void testAjoutRetrait() {
+        RegistreClients registre = new RegistreClients();
+        Client c1 = new Client(null, null, Client.Protocole.JSON);
+        Client c2 = new Client(null, null, Client.Protocole.JSON);
+        registre.ajouter(c1);
+        registre.ajouter(c2);
+        registre.ajouter(c1);
+        assertEquals(2, registre.taille());
+
+        Client[] instantane = registre.instantane();
+        assertTrue(registre.retirer(c1));
+        assertFalse(registre.retirer(c1));
+        // l'instantané pris avant le retrait n'est pas modifié
+        assertArrayEquals(new Client[]{c1, c2}, instantane);
+        assertArrayEquals(new Client[]{c2}, registre.instantane());
+        assertTrue(registre.retirer(c2));
+        assertTrue(registre.estVide());
+    }
+
+    @Test
+    void testConnexionsDeconnexionsPendantLesDiffusions() throws Exception {
+        Partie partie = GameServer.creerPartie(ID_PARTIE);
+        assertNotNull(partie);
+
+        // les sessions factices sont créées à l'avance (Mockito n'aime pas les stubs concurrents)
+        List<List<Session>> sessions = new ArrayList<>();
+        for (int t = 0; t < NB_THREADS; t++) {
+            List<Session> sessionsThread = new ArrayList<>();
+            for (int i = 0; i < NB_SESSIONS_PAR_THREAD; i++) {
+                sessionsThread.add(ChargeServeurTest.session(ID_PARTIE));
+            }
+            sessions.add(sessionsThread);
+        }
+
+        ExecutorService executeur = Executors.newFixedThreadPool(NB_THREADS + 1);
+        AtomicBoolean fini = new AtomicBoolean();
+        AtomicLong nbDiffusions = new AtomicLong();
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            Future<?> diffusions = executeur.submit(() -> {
+                depart.await();
+                while (!fini.get()) {
+                    partie.diffuser();
+                    nbDiffusions.incrementAndGet();
+                }
+                return null;
+            });
+            List<Future<?>> connexions = new ArrayList<>();
+            for (List<Session> sessionsThread : sessions) {
+                connexions.add(executeur.submit(() -> {
+                    depart.await();
+                    for (int cycle = 0; cycle < NB_CYCLES; cycle++) {
+                        for (Session session : sessionsThread) {
+                            GameServer.addClient(session);
+                        }
+                        // au dernier cycle, la moitié des sessions reste connectée
+                        for (int i = 0; i < sessionsThread.size(); i++) {
+                            if (cycle < NB_CYCLES - 1 || i % 2 == 0) {
+                                GameServer.removeClient(sessionsThread.get(i));
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> connexion : connexions) {
+                connexion.get(60, TimeUnit.SECONDS);
+            }
+            fini.set(true);
+            diffusions.get(60, TimeUnit.SECONDS);
+        } finally {
+            executeur.shutdownNow();
+        }
+
+        assertTrue(nbDiffusions.get() > 0);
+        assertEquals(NB_THREADS * NB_SESSIONS_PAR_THREAD / 2, partie.getNbClients());
+    }
+}
@@ -0,0 +1,208 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Journal;
+import fr.umontpellier.iut.rails.SourceDecisions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+
+public class RepriseServeurTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    private Path dossier;
+    private String moteur;
+
+    @BeforeEach
+    void init() throws IOException {
+        dossier = Files.createTempDirectory("journaux");
+        moteur = System.getProperty(GameServer.PROPRIETE_MOTEUR);
+        System.setProperty(GameServer.PROPRIETE_JOURNAUX, dossier.toString());
+        System.setProperty(GameServer.PROPRIETE_MOTEUR, "evenements");
+    }
+
+    @AfterEach
+    void nettoyer() throws IOException {
+        GameServer.retirerPartie("reprise");
+        GameServer.retirerPartie("reprise-finie");
+        GameServer.retirerPartie("abandon");
+        GameServer.retirerPartie("illisible");
+        System.clearProperty(GameServer.PROPRIETE_JOURNAUX);
+        System.clearProperty(GameServer.PROPRIETE_DELAI_INACTIVITE);
+        if (moteur == null) {
+            System.clearProperty(GameServer.PROPRIETE_MOTEUR);
+        } else {
+            System.setProperty(GameServer.PROPRIETE_MOTEUR, moteur);
+        }
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            for (Path fichier : fichiers.toList()) {
+                Files.delete(fichier);
+            }
+        }
+        Files.delete(dossier);
+    }
+
+    /**
+     * Attend que la boucle de la partie ait traité toutes les entrées reçues
+     */
+    private static void attendre(String id) throws InterruptedException {
+        CountDownLatch fin = new CountDownLatch(1);
+        GameServer.getBoucle().executer(id, fin::countDown);
+        assertTrue(fin.await(10, TimeUnit.SECONDS));
+    }
+
+    private List<Path> fichiers() throws IOException {
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.toList();
+        }
+    }
+
+    @Test
+    void testRepriseApresArretDuServeur() throws Exception {
+        Partie partie = GameServer.getOuCreerPartie("reprise");
+        // les 4 joueurs gardent leurs destinations, puis les 2 premiers passent leur tour
+        for (int i = 0; i < 6; i++) {
+            GameServer.addInput("reprise", "");
+        }
+        attendre("reprise");
+        assertEquals("LeChuck", partie.getJeu().getJoueurCourant().getNom());
+        Path fichier = dossier.resolve("reprise.journal");
+        long taille = Files.size(fichier);
+
+        // l'identifiant est pris : le journal de la partie en cours n'est pas touché
+        assertNull(GameServer.creerPartie("reprise"));
+        assertSame(partie, GameServer.getPartie("reprise"));
+        assertEquals(taille, Files.size(fichier));
+        GameServer.addInput("reprise", "");
+        attendre("reprise");
+        assertTrue(Files.size(fichier) > taille);
+
+        // arrêt du serveur : la partie suivante de même identifiant reprend au même point
+        GameServer.retirerPartie("reprise");
+        Partie reprise = GameServer.getOuCreerPartie("reprise");
+        attendre("reprise");
+        assertNotSame(partie, reprise);
+        Jeu jeu = reprise.getJeu();
+        assertEquals(partie.getJeu().getGraine(), jeu.getGraine());
+        assertEquals("Elaine", jeu.getJoueurCourant().getNom());
+        assertEquals(4, jeu.getJoueurs().get(3).getDestinations().size());
+        assertFalse(reprise.estTerminee());
+
+        // un client qui rejoint la partie reprise reçoit son état
+        WebSocketClient client = new WebSocketClient();
+        client.onOpen(ChargeServeurTest.session("reprise"));
+        assertEquals(1, reprise.getNbClients());
+        assertTrue(reprise.getEtatJeu().contains("Elaine"));
+    }
+
+    @Test
+    void testPartieTermineeNonReprise() throws Exception {
+        // journal d'une partie finie que le serveur n'a pas eu le temps d'archiver
+        Path fichier = dossier.resolve("reprise-finie.journal");
+        Jeu finie = new Jeu(NOMS_JOUEURS);
+        try (OutputStream sortie = Files.newOutputStream(fichier)) {
+            finie.setJournal(new Journal(sortie, finie));
+            finie.setModeSansAffichage(SourceDecisions.aleatoire(new Random(5)), false);
+            assertTrue(finie.simuler(1_000_000));
+        }
+
+        // le même identifiant accueille une nouvelle partie, à chaque connexion
+        Partie partie = GameServer.getOuCreerPartie("reprise-finie");
+        attendre("reprise-finie");
+        assertFalse(partie.estTerminee());
+        assertFalse(partie.getJeu().estTerminee());
+        assertNotEquals(finie.getGraine(), partie.getJeu().getGraine());
+        assertSame(partie, GameServer.getOuCreerPartie("reprise-finie"));
+
+        // l'ancien journal est archivé, la nouvelle partie a le sien
+        assertTrue(Files.exists(fichier));
+        assertEquals(2, fichiers().size());
+        assertEquals(1, fichiers().stream().filter(f -> f.toString().endsWith(".termine")).count());
+        try (InputStream entree = Files.newInputStream(fichier)) {
+            assertEquals(partie.getJeu().getGraine(), new Journal.Lecteur(entree).getGraine());
+        }
+    }
+
+    @Test
+    void testJournalIllisibleMisDeCote() throws Exception {
+        Path fichier = dossier.resolve("illisible.journal");
+        Files.write(fichier, new byte[]{1, 2, 3, 4, 5, 6});
+
+        // la partie recommence avec un nouveau journal, l'ancien est gardé à côté
+        Partie partie = GameServer.getOuCreerPartie("illisible");
+        attendre("illisible");
+        assertNotNull(partie);
+        assertEquals(2, fichiers().size());
+        Path illisible = fichiers().stream().filter(f -> f.toString().endsWith(".illisible")).findFirst().orElseThrow();
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, Files.readAllBytes(illisible));
+        try (InputStream entree = Files.newInputStream(fichier)) {
+            assertEquals(partie.getJeu().getGraine(), new Journal.Lecteur(entree).getGraine());
+        }
+    }
+
+    @Test
+    void testPartieRefuseeSiLeJournalNePeutPasEtreCree() throws Exception {
+        // le "dossier" des journaux est un fichier : aucun journal ne peut y être créé
+        Path fichier = Files.createFile(dossier.resolve("pas-un-dossier"));
+        System.setProperty(GameServer.PROPRIETE_JOURNAUX, fichier.toString());
+        assertThrows(UncheckedIOException.class, () -> GameServer.getOuCreerPartie("sans-journal"));
+        assertNull(GameServer.getPartie("sans-journal"));
+
+        Session session = ChargeServeurTest.session("sans-journal");
+        new WebSocketClient().onOpen(session);
+        verify(session).close(any(CloseReason.class));
+        assertTrue(session.getUserProperties().isEmpty());
+        assertNull(GameServer.getPartie("sans-journal"));
+    }
+
+    @Test
+    void testPartieAbandonneeRetireePuisReprise() throws Exception {
+        System.setProperty(GameServer.PROPRIETE_DELAI_INACTIVITE, "50");
+        WebSocketClient client = new WebSocketClient();
+        Session session = ChargeServeurTest.session("abandon");
+        client.onOpen(session);
+        Partie partie = GameServer.getPartie("abandon");
+        for (int i = 0; i < 6; i++) {
+            client.onMessage("", session);
+        }
+        attendre("abandon");
+        assertEquals("LeChuck", partie.getJeu().getJoueurCourant().getNom());
+
+        // le dernier client part : la partie inachevée est retirée après le délai d'inactivité
+        client.onClose(session);
+        for (int i = 0; i < 1000 && GameServer.getPartie("abandon") != null; i++) {
+            Thread.sleep(10);
+        }
+        assertNull(GameServer.getPartie("abandon"));
+        assertFalse(partie.addClient(new Client(ChargeServeurTest.session("abandon"), partie, Client.Protocole.JSON)));
+        attendre("abandon");
+
+        // un nouveau client la retrouve à partir de son journal, qui n'a pas été archivé
+        assertEquals(List.of(dossier.resolve("abandon.journal")), fichiers());
+        client.onOpen(ChargeServeurTest.session("abandon"));
+        attendre("abandon");
+        Partie reprise = GameServer.getPartie("abandon");
+        assertNotSame(partie, reprise);
+        assertEquals(partie.getJeu().getGraine(), reprise.getJeu().getGraine());
+        assertEquals("LeChuck", reprise.getJeu().getJoueurCourant().getNom());
+        assertEquals(1, reprise.getNbClients());
+    }
+}
@@ -0,0 +1,89 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheminLePlusLongTest {
+    private final Plateau plateau = Plateau.makePlateauEurope();
+    private final GraphePlateau graphe = plateau.getGraphe();
+    private final CheminLePlusLong calcul = new CheminLePlusLong(graphe);
+
+    private BitSet routes(String... noms) {
+        BitSet routes = new BitSet();
+        for (String nom : noms) {
+            routes.set(plateau.getRoute(nom).getId());
+        }
+        return routes;
+    }
+
+    /**
+     * Recherche exhaustive (sans élagage) du plus long chemin à partir de v
+     */
+    private int naif(int v, BitSet routes, BitSet utilisees) {
+        int meilleur = 0;
+        for (int k = graphe.debutVoisins(v); k < graphe.finVoisins(v); k++) {
+            int r = graphe.routeVoisin(k);
+            if (routes.get(r) && !utilisees.get(r)) {
+                utilisees.set(r);
+                meilleur = Math.max(meilleur, graphe.longueur(r) + naif(graphe.voisin(k), routes, utilisees));
+                utilisees.clear(r);
+            }
+        }
+        return meilleur;
+    }
+
+    private int naif(BitSet routes) {
+        int meilleur = 0;
+        for (int v = 0; v < graphe.getNbVilles(); v++) {
+            meilleur = Math.max(meilleur, naif(v, routes, new BitSet()));
+        }
+        return meilleur;
+    }
+
+    @Test
+    void testCheminsSimples() {
+        assertEquals(0, calcul.calculer(new BitSet()));
+        // Brest - Dieppe (2) + Dieppe - Paris (1) + Paris - Frankfurt (3)
+        assertEquals(6, calcul.calculer(routes("Brest - Dieppe", "Dieppe - Paris", "Frankfurt - Paris(1)")));
+        // deux composantes : la plus longue compte
+        assertEquals(8, calcul.calculer(routes("Brest - Dieppe", "Petrograd - Stockholm")));
+        // boucle Paris - Bruxelles - Paris puis Paris - Dieppe
+        assertEquals(5, calcul.calculer(routes("Bruxelles - Paris(1)", "Bruxelles - Paris(2)", "Dieppe - Paris")));
+    }
+
+    @Test
+    void testIdentiqueARechercheExhaustive() {
+        Random random = new Random(42);
+        for (int essai = 0; essai < 200; essai++) {
+            BitSet routes = new BitSet();
+            int nb = 1 + random.nextInt(14);
+            if (essai % 2 == 0) {
+                for (int i = 0; i < nb; i++) {
+                    routes.set(random.nextInt(graphe.getNbRoutes()));
+                }
+            } else {
+                // réseau connexe obtenu en ajoutant des routes voisines
+                int v = random.nextInt(graphe.getNbVilles());
+                for (int i = 0; i < nb; i++) {
+                    int k = graphe.debutVoisins(v) + random.nextInt(graphe.degre(v));
+                    routes.set(graphe.routeVoisin(k));
+                    v = graphe.voisin(k);
+                }
+            }
+            assertEquals(naif(routes), calcul.calculer(routes), routes.toString());
+        }
+    }
+
+    @Test
+    void testCalculParallele() {
+        Jeu jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck"});
+        List<Joueur> joueurs = jeu.getJoueurs();
+        jeu.getRouteByNom("Brest - Dieppe").setProprietaire(joueurs.get(0));
+        jeu.getRouteByNom("Dieppe - Paris").setProprietaire(joueurs.get(0));
+        jeu.getRouteByNom("Petrograd - Stockholm").setProprietaire(joueurs.get(2));
+        assertArrayEquals(new int[]{3, 0, 8}, jeu.calculerCheminsLesPlusLongs());
+    }
+}
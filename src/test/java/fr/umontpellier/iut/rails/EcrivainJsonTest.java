@@ -0,0 +1,92 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EcrivainJsonTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    /**
+     * État complet tel qu'il était construit avant l'écriture au fil de l'eau
+     * (POJO des éléments, tables {@code Map.ofEntries}, puis Gson)
+     */
+    private static Map<String, Object> reference(Jeu jeu, Tour tour) {
+        Map<String, Object> prompt = Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("instruction", tour.getInstruction()),
+                new AbstractMap.SimpleEntry<String, Object>("boutons", new ArrayList<>(tour.getBoutons())),
+                new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", jeu.getJoueurCourant().getNom()),
+                new AbstractMap.SimpleEntry<String, Object>("peutPasser", tour.peutPasser()),
+                new AbstractMap.SimpleEntry<String, Object>("graine", Long.toString(jeu.getGraine())));
+        Map<String, Object> piles = Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", jeu.getPileCartesWagon().size()),
+                new AbstractMap.SimpleEntry<String, Object>("pileDestinations", jeu.getPileDestinations().size()),
+                new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", new ArrayList<>(jeu.getDefausseCartesWagon())),
+                new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", new ArrayList<>(jeu.getCartesWagonVisibles())));
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("prompt", prompt);
+        data.put("villes", jeu.getVilles().stream().map(Ville::asPOJO).toList());
+        data.put("routes", jeu.getRoutes().stream().map(Route::asPOJO).toList());
+        data.put("joueurs", jeu.getJoueurs().stream().map(Joueur::asPOJO).toList());
+        data.put("piles", piles);
+        // seules les dernières lignes du log sont envoyées
+        Historique log = jeu.getLog();
+        int debutLog = Math.max(log.getPremiereSequence(), log.getSequenceSuivante() - SuiviEtat.TAILLE_PAGE_LOG);
+        data.put("debutLog", debutLog);
+        data.put("log", log.subList(debutLog - log.getPremiereSequence(), log.size()));
+        return data;
+    }
+
+    @Test
+    void testEchappementsCommeGson() {
+        Gson gson = new Gson();
+        for (String texte : List.of("", "simple", "guillemets \" et \\ barre", "<span class=\"joueur\">a & b</span>",
+                "l'égalité = ok", "tab\tligne\nretour\r\bf\f\u0001\u001f", "   é ü ∞ 😀")) {
+            assertEquals(gson.toJson(texte), EcrivainJson.echapper(texte));
+        }
+    }
+
+    @Test
+    void testImbrication() {
+        EcrivainJson json = new EcrivainJson();
+        json.debutObjet().nom("a").valeur(1).nom("b").debutTableau().valeur("x").debutObjet().finObjet()
+                .debutTableau().finTableau().valeur(true).finTableau().nom("c").brut("{\"d\":null}").finObjet();
+        assertEquals("{\"a\":1,\"b\":[\"x\",{},[],true],\"c\":{\"d\":null}}", json.toString());
+        assertTrue(json.contenuEgal(json.toString()));
+        assertEquals("[]", json.vider().debutTableau().finTableau().toString());
+    }
+
+    @Test
+    void testEtatIdentiqueAGsonPendantUnePartie() {
+        Gson gson = new Gson();
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(11)), true);
+        SuiviEtat suivi = jeu.getSuiviEtat();
+        int nbDecisions = 0;
+        while (!jeu.estTerminee()) {
+            jeu.simuler(1);
+            Tour tour = jeu.getJoueurCourant().getTour();
+            jeu.enregistrerEtat(tour.getInstruction(), tour.getBoutons(), tour.peutPasser());
+            if (nbDecisions++ % 10 == 0 || jeu.estTerminee()) {
+                assertEquals(gson.toJson(reference(jeu, tour)), suivi.etatJson());
+            }
+        }
+
+        Map<String, Object> trame = new LinkedHashMap<>();
+        Map<String, Object> etat = reference(jeu, jeu.getJoueurCourant().getTour());
+        trame.put("version", suivi.getVersion());
+        trame.put("depuis", 0);
+        trame.put("complet", true);
+        trame.put("prompt", etat.get("prompt"));
+        trame.put("villes", etat.get("villes"));
+        trame.put("routes", etat.get("routes"));
+        trame.put("joueurs", etat.get("joueurs"));
+        trame.put("piles", etat.get("piles"));
+        trame.put("debutLog", etat.get("debutLog"));
+        trame.put("log", etat.get("log"));
+        assertEquals(gson.toJson(trame), suivi.trameJson(0));
+    }
+}
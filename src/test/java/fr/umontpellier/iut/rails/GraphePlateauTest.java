@@ -0,0 +1,51 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphePlateauTest {
+
+    @Test
+    void testAdjacencesCoherentesAvecLesRoutes() {
+        Plateau plateau = Plateau.makePlateauEurope();
+        GraphePlateau graphe = plateau.getGraphe();
+        List<Ville> villes = plateau.getVilles();
+        List<Route> routes = plateau.getRoutes();
+        assertEquals(villes.size(), graphe.getNbVilles());
+        assertEquals(routes.size(), graphe.getNbRoutes());
+
+        int sommeDegres = 0;
+        for (int v = 0; v < graphe.getNbVilles(); v++) {
+            assertEquals(v, villes.get(v).getId());
+            sommeDegres += graphe.degre(v);
+            for (int k = graphe.debutVoisins(v); k < graphe.finVoisins(v); k++) {
+                Route route = routes.get(graphe.routeVoisin(k));
+                Ville voisin = villes.get(graphe.voisin(k));
+                assertTrue(route.getVille1() == villes.get(v) && route.getVille2() == voisin
+                        || route.getVille2() == villes.get(v) && route.getVille1() == voisin);
+            }
+        }
+        assertEquals(2 * routes.size(), sommeDegres);
+
+        Route paris = plateau.getRoute("Marseille - Paris");
+        int r = paris.getId();
+        assertEquals(4, graphe.longueur(r));
+        assertEquals(CouleurWagon.GRIS, graphe.couleur(r));
+        assertEquals(GraphePlateau.ROUTE, graphe.type(r));
+        assertEquals(GraphePlateau.FERRY, graphe.type(plateau.getRoute("Amsterdam - London").getId()));
+        assertEquals(2, graphe.nbLocomotives(plateau.getRoute("Amsterdam - London").getId()));
+        assertEquals(GraphePlateau.TUNNEL, graphe.type(plateau.getRoute("Angora - Constantinople").getId()));
+    }
+
+    @Test
+    void testGraphePartageEntreLesParties() {
+        Jeu jeu1 = new Jeu(new String[]{"Guybrush", "Largo"});
+        Jeu jeu2 = new Jeu(new String[]{"Elaine", "LeChuck"});
+        assertSame(jeu1.getPlateau().getGraphe(), jeu2.getPlateau().getGraphe());
+        assertNotSame(jeu1.getRoutes().get(0), jeu2.getRoutes().get(0));
+        assertEquals(jeu1.getRoutes().get(0).getId(), jeu2.getRoutes().get(0).getId());
+    }
+}
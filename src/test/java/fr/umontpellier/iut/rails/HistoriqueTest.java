@@ -0,0 +1,65 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoriqueTest {
+    @Test
+    void testLesPlusAnciennesLignesSontOubliees() {
+        Historique historique = new Historique(3);
+        historique.add("a");
+        historique.add("b");
+        assertEquals(List.of("a", "b"), historique);
+        assertEquals(0, historique.getPremiereSequence());
+
+        historique.add("c");
+        historique.add("d");
+        historique.add("e");
+        assertEquals(List.of("c", "d", "e"), historique);
+        assertEquals(2, historique.getPremiereSequence());
+        assertEquals(5, historique.getSequenceSuivante());
+        assertEquals("d", historique.getSequence(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> historique.getSequence(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> historique.getSequence(5));
+    }
+
+    @Test
+    void testNumerotationContinueApresOubli() {
+        Historique historique = new Historique(4);
+        historique.add("a");
+        historique.clear();
+        assertTrue(historique.isEmpty());
+        historique.add("b");
+        assertEquals(1, historique.getPremiereSequence());
+
+        historique.reprendreA(10);
+        historique.add("c");
+        assertEquals(List.of("c"), historique);
+        assertEquals("c", historique.getSequence(10));
+        historique.reprendreA(5);
+        assertEquals(11, historique.getSequenceSuivante());
+    }
+
+    @Test
+    void testEntreesMisesEnFormeALaLecture() {
+        int[] nbMisesEnForme = {0};
+        ElementLog element = () -> {
+            nbMisesEnForme[0]++;
+            return "<b>x</b>";
+        };
+        Historique historique = new Historique(4);
+        historique.ajouter(new EntreeLog(EntreeLog.Evenement.ROUTE_CHOISIE, element));
+        historique.ajouter(new EntreeLog(EntreeLog.Evenement.CARTE_PIOCHEE, CouleurWagon.ROUGE));
+        historique.add("texte");
+        assertEquals(0, nbMisesEnForme[0]);
+
+        assertEquals("Route choisie : <b>x</b>", historique.get(0));
+        assertEquals(1, nbMisesEnForme[0]);
+        assertEquals("Vous avez pioché <img class=\"couleur\" src=\"images/symbole-ROUGE.png\">"
+                + "<span class=\"couleur rouge\">Rouge</span>", historique.getSequence(1));
+        assertEquals(List.of("texte"), historique.subList(2, 3));
+    }
+}
@@ -0,0 +1,63 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static fr.umontpellier.iut.rails.TestUtils.assertMemeEtat;
+import static fr.umontpellier.iut.rails.TestUtils.jouerJusquAuDebutDUnTour;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstantaneTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    /**
+     * Termine les deux parties avec les mêmes décisions et vérifie qu'elles
+     * finissent à l'identique
+     */
+    private static void assertMemeSuite(Jeu attendu, Jeu jeu) {
+        attendu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(17)), false);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(17)), false);
+        attendu.simuler(1_000_000);
+        jeu.simuler(1_000_000);
+        assertMemeEtat(attendu, jeu);
+    }
+
+    @Test
+    void testRestaurationEnCoursDePartie() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(3)), false);
+        jouerJusquAuDebutDUnTour(jeu, 600);
+        assertFalse(jeu.estTerminee());
+
+        Jeu restaure = Instantane.restaurer(Instantane.capturer(jeu));
+        assertEquals(jeu.getGraine(), restaure.getGraine());
+        assertMemeEtat(jeu, restaure);
+        assertMemeSuite(jeu, restaure);
+    }
+
+    @Test
+    void testRestaurationPendantLesDestinationsInitiales() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(4)), false);
+        jeu.demarrer();
+        assertEquals(Tour.Etat.CHOIX_DESTINATIONS, jeu.getJoueurCourant().getTour().getEtat());
+
+        Jeu restaure = Instantane.restaurer(Instantane.capturer(jeu));
+        assertMemeEtat(jeu, restaure);
+        assertMemeSuite(jeu, restaure);
+    }
+
+    @Test
+    void testInstantaneInvalide() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(null, false);
+        jeu.demarrer();
+        byte[] instantane = Instantane.capturer(jeu);
+        byte[] tronque = Arrays.copyOf(instantane, instantane.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> Instantane.restaurer(tronque));
+        instantane[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> Instantane.restaurer(instantane));
+    }
+}
@@ -7,7 +7,12 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JoueurTest {
@@ -90,4 +95,79 @@ public class JoueurTest {
                 CouleurWagon.ROUGE));
         assertEquals(nbCartesWagon - 2, pileCartesWagon.size());
     }
+
+    @Test
+    void testDestinationRealiseeApresCaptures() {
+        Destination brestParis = new Destination("Brest", "Paris", 5);
+        Destination brestMarseille = new Destination("Brest", "Marseille", 7);
+        joueur1.getDestinations().add(brestParis);
+        joueur1.getDestinations().add(brestMarseille);
+        joueur1.getCartesWagon().add(CouleurWagon.ORANGE);
+        joueur1.getCartesWagon().add(CouleurWagon.ORANGE);
+        joueur1.getCartesWagon().add(CouleurWagon.ROSE);
+
+        jeu.setInput("ORANGE", "ORANGE");
+        joueur1.choixRoute("Brest - Dieppe");
+        assertFalse(joueur1.estRealisee(brestParis));
+
+        jeu.setInput("ROSE");
+        joueur1.choixRoute("Dieppe - Paris");
+        assertTrue(joueur1.estRealisee(brestParis));
+        assertFalse(joueur1.estRealisee(brestMarseille));
+        assertFalse(joueur2.estRealisee(brestParis));
+
+        List<?> destinations = (List<?>) ((Map<?, ?>) joueur1.asPOJO()).get("destinations");
+        assertEquals(true, ((Map<?, ?>) destinations.get(0)).get("realisee"));
+        assertEquals(false, ((Map<?, ?>) destinations.get(1)).get("realisee"));
+    }
+
+    @Test
+    void testToutesLesDestinationsSontSurLePlateau() {
+        List<Destination> destinations = new ArrayList<>(Destination.makeDestinationsEurope());
+        destinations.addAll(Destination.makeDestinationsLonguesEurope());
+        for (Destination destination : destinations) {
+            assertNotNull(jeu.getVilleByNom(destination.getVille1()), destination.getNom());
+            assertNotNull(jeu.getVilleByNom(destination.getVille2()), destination.getNom());
+            assertFalse(joueur1.estRealisee(destination));
+        }
+    }
+
+    @Test
+    void testSeulesLesActionsJouablesSontProposees() {
+        joueur1.getCartesWagon().add(CouleurWagon.ORANGE);
+        joueur1.getCartesWagon().add(CouleurWagon.ORANGE);
+        ActionsPossibles actions = new ActionsPossibles();
+        actions.calculer(joueur1);
+        assertTrue(actions.getOptions().contains("Brest - Dieppe"));
+        assertFalse(actions.getOptions().contains("Dieppe - Paris"));
+        assertTrue(actions.getOptions().contains("Paris"));
+
+        // la route ROSE ne peut pas être payée : le choix est ignoré et le joueur rejoue
+        jeu.setInput("Dieppe - Paris", "Brest - Dieppe", "ORANGE", "ORANGE");
+        joueur1.jouerTour();
+        Route brestDieppe = jeu.getRouteByNom("Brest - Dieppe");
+        assertEquals(joueur1, brestDieppe.getProprietaire());
+        assertEquals(null, jeu.getRouteByNom("Dieppe - Paris").getProprietaire());
+        assertFalse(jeu.getPlateau().getRoutesLibres().get(brestDieppe.getId()));
+
+        // plus de cartes : plus de route ni de gare possible
+        actions.calculer(joueur1);
+        assertFalse(actions.getOptions().contains("Brest - Dieppe"));
+        assertFalse(actions.getOptions().contains("Paris"));
+    }
+
+    @Test
+    void testChoisirInterrompu() {
+        Jeu jeuServeur = new Jeu(new String[] { "Guybrush", "Largo" });
+        Joueur joueur = jeuServeur.getJoueurs().get(0);
+        Thread.currentThread().interrupt();
+        try {
+            // la partie est arrêtée : le choix est abandonné au lieu de boucler
+            assertNull(joueur.choisir("Choisissez", List.of("A", "B"), List.of(), true));
+            assertNull(joueur.choisir("Choisissez", List.of("A", "B"), List.of(), false));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
 }
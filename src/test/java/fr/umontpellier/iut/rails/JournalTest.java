@@ -0,0 +1,160 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static fr.umontpellier.iut.rails.TestUtils.assertMemeEtat;
+import static fr.umontpellier.iut.rails.TestUtils.jouerJusquAuDebutDUnTour;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    /**
+     * Vérifie que la partie reconstruite à partir du journal est dans le même
+     * état que la partie d'origine, log compris
+     */
+    private static void assertMemePartie(Jeu attendu, Jeu jeu) {
+        assertEquals(attendu.getLog(), jeu.getLog());
+        assertMemeEtat(attendu, jeu);
+    }
+
+    @Test
+    void testPartieRejoueeDepuisLeJournal() throws IOException {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        jeu.setJournal(new Journal(octets, jeu));
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(5)), true);
+        assertTrue(jeu.simuler(1_000_000));
+
+        Jeu rejoue = Journal.rejouer(new ByteArrayInputStream(octets.toByteArray()));
+        assertTrue(rejoue.estTerminee());
+        assertEquals(jeu.getGraine(), rejoue.getGraine());
+        assertMemePartie(jeu, rejoue);
+
+        Journal.Lecteur lecteur = new Journal.Lecteur(new ByteArrayInputStream(octets.toByteArray()));
+        assertArrayEquals(NOMS_JOUEURS, lecteur.getNomsJoueurs());
+        assertTrue(lecteur.suivante());
+        assertTrue(lecteur.getDateEntree() >= lecteur.getDate());
+    }
+
+    @Test
+    void testRepriseApresArretBrutal() throws IOException {
+        Path fichier = Files.createTempFile("partie", ".journal");
+        fichier.toFile().deleteOnExit();
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        Journal journal = Journal.creer(fichier, jeu);
+        jeu.setJournal(journal);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(8)), true);
+        assertFalse(jeu.simuler(300));
+        journal.close();
+        // arrêt pendant l'écriture d'un enregistrement
+        Files.write(fichier, new byte[]{0, 0, 0, 12, 0, 0}, StandardOpenOption.APPEND);
+
+        Jeu repris = Journal.reprendre(fichier);
+        assertFalse(repris.estTerminee());
+        assertMemePartie(jeu, repris);
+
+        // la partie continue et son journal reste lisible
+        Tour tour = repris.getJoueurCourant().getTour();
+        String entree = tour.peutPasser() ? "" : tour.getChoix().iterator().next();
+        repris.traiterEntree(entree);
+        jeu.traiterEntree(entree);
+        Jeu rejoue = Journal.rejouer(Files.newInputStream(fichier));
+        assertMemePartie(jeu, rejoue);
+    }
+
+    @Test
+    void testJournalArchiveEnFinDePartie() throws IOException {
+        Path dossier = Files.createTempDirectory("journaux");
+        Path fichier = dossier.resolve("partie.journal");
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setJournal(Journal.creer(fichier, jeu));
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(5)), true);
+        assertTrue(jeu.simuler(1_000_000));
+
+        // le journal est archivé : la partie ne sera pas reprise
+        assertFalse(Files.exists(fichier));
+        Path archive;
+        try (var fichiers = Files.list(dossier)) {
+            archive = fichiers.findFirst().orElseThrow();
+        }
+        assertTrue(archive.getFileName().toString().endsWith(".termine"));
+        assertMemePartie(jeu, Journal.rejouer(Files.newInputStream(archive)));
+        Files.delete(archive);
+        Files.delete(dossier);
+    }
+
+    @Test
+    void testPartieArreteeSiLeJournalEchoue() throws IOException {
+        // flux qui refuse toute écriture après l'en-tête et les 10 premières entrées
+        OutputStream sortie = new OutputStream() {
+            private int nbEcritures;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int debut, int longueur) throws IOException {
+                if (++nbEcritures > 11) {
+                    throw new IOException("disque plein");
+                }
+            }
+        };
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        Journal journal = new Journal(sortie, jeu);
+        jeu.setJournal(journal);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(5)), true);
+        assertFalse(jeu.simuler(1_000_000));
+
+        assertTrue(journal.estEnEchec());
+        assertEquals("disque plein", journal.getErreur().getMessage());
+        assertTrue(jeu.estArretee());
+        assertFalse(jeu.estTerminee());
+        int nbLignes = jeu.getLog().getSequenceSuivante();
+        assertEquals("La partie est arrêtée : son journal ne peut plus être écrit", jeu.getLog().getSequence(nbLignes - 1));
+        // les entrées suivantes ne sont plus jouées
+        jeu.traiterEntree("");
+        assertEquals(nbLignes, jeu.getLog().getSequenceSuivante());
+        assertFalse(journal.enregistrer(""));
+    }
+
+    @Test
+    void testRepriseDepuisUnInstantaneEtLaFinDuJournal() throws IOException {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        jeu.setJournal(new Journal(octets, jeu));
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(6)), true);
+        jouerJusquAuDebutDUnTour(jeu, 400);
+        byte[] instantane = Instantane.capturer(jeu);
+        int nbEntreesInstantane = jeu.getNbEntrees();
+        int debutLog = jeu.getLog().getSequenceSuivante();
+        // quelques entrées de plus, jusqu'au milieu d'une action
+        jeu.simuler(37);
+        assertFalse(jeu.estTerminee());
+        assertTrue(jeu.getNbEntrees() > nbEntreesInstantane);
+
+        Jeu repris = Journal.rejouer(instantane, new ByteArrayInputStream(octets.toByteArray()));
+        assertMemeEtat(jeu, repris);
+        // le log ne contient que les messages des entrées rejouées
+        assertEquals(jeu.getLog().subList(debutLog - jeu.getLog().getPremiereSequence(), jeu.getLog().size()),
+                repris.getLog());
+
+        // un instantané d'une autre partie est refusé
+        Jeu autre = new Jeu(NOMS_JOUEURS);
+        autre.setModeSansAffichage(null, false);
+        autre.demarrer();
+        assertThrows(IOException.class,
+                () -> Journal.rejouer(Instantane.capturer(autre), new ByteArrayInputStream(octets.toByteArray())));
+    }
+}
@@ -0,0 +1,54 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MainCartesWagonTest {
+
+    @Test
+    void testVueTrieeParCouleur() {
+        MainCartesWagon main = new MainCartesWagon();
+        Collections.addAll(main, CouleurWagon.LOCOMOTIVE, CouleurWagon.ROUGE, CouleurWagon.NOIR, CouleurWagon.ROUGE);
+        assertEquals(List.of(CouleurWagon.NOIR, CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.LOCOMOTIVE), main);
+        assertEquals(2, main.nb(CouleurWagon.ROUGE));
+        assertEquals(2, main.nbMaxCouleurSimple());
+        assertTrue(main.remove(CouleurWagon.LOCOMOTIVE));
+        assertFalse(main.remove(CouleurWagon.LOCOMOTIVE));
+        assertEquals(CouleurWagon.NOIR, main.remove(0));
+        assertEquals(List.of(CouleurWagon.ROUGE, CouleurWagon.ROUGE), main);
+        main.clear();
+        assertTrue(main.isEmpty());
+        assertEquals(0, main.nb(CouleurWagon.ROUGE));
+    }
+
+    @Test
+    void testCommeUneListeTriee() {
+        // mêmes opérations sur une main et sur une liste triée après chaque opération
+        Random random = new Random(1);
+        CouleurWagon[] couleurs = {CouleurWagon.NOIR, CouleurWagon.BLANC, CouleurWagon.JAUNE, CouleurWagon.ROUGE,
+                CouleurWagon.ORANGE, CouleurWagon.BLEU, CouleurWagon.VERT, CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE};
+        MainCartesWagon main = new MainCartesWagon();
+        List<CouleurWagon> reference = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            CouleurWagon couleur = couleurs[random.nextInt(couleurs.length)];
+            if (random.nextInt(3) > 0 || reference.isEmpty()) {
+                main.add(couleur);
+                reference.add(couleur);
+            } else if (random.nextBoolean()) {
+                assertEquals(reference.remove(couleur), main.remove(couleur));
+            } else {
+                int indice = random.nextInt(reference.size());
+                assertEquals(reference.remove(indice), main.remove(indice));
+            }
+            Collections.sort(reference);
+            assertEquals(reference, main);
+            assertEquals(Collections.frequency(reference, couleur), main.nb(couleur));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PiocheTest {
+
+    @Test
+    void testPiocherEtAjouter() {
+        Pioche<Integer> pioche = new Pioche<>(List.of(1, 2, 3));
+        pioche.ajouterDessus(0);
+        pioche.ajouterDessous(4);
+        assertEquals(List.of(0, 1, 2, 3, 4), pioche);
+        assertEquals(0, pioche.piocher());
+        assertEquals(1, pioche.remove(0));
+        pioche.add(1, 9);
+        assertEquals(List.of(2, 9, 3, 4), pioche);
+        assertEquals(3, pioche.remove(2));
+        assertEquals(List.of(2, 9, 4), pioche);
+        pioche.clear();
+        assertNull(pioche.piocher());
+    }
+
+    @Test
+    void testCommeUneListe() {
+        // mêmes opérations sur une Pioche et sur une ArrayList (avec agrandissements et tour du tableau)
+        Random random = new Random(1);
+        Pioche<Integer> pioche = new Pioche<>();
+        List<Integer> reference = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(5);
+            if (operation == 0 || reference.isEmpty()) {
+                pioche.add(0, i);
+                reference.add(0, i);
+            } else if (operation == 1) {
+                pioche.add(i);
+                reference.add(i);
+            } else if (operation == 2) {
+                assertEquals(reference.remove(0), pioche.piocher());
+            } else if (operation == 3) {
+                int j = random.nextInt(reference.size());
+                assertEquals(reference.remove(j), pioche.remove(j));
+            } else {
+                int j = random.nextInt(reference.size() + 1);
+                pioche.add(j, i);
+                reference.add(j, i);
+            }
+        }
+        assertEquals(reference, pioche);
+        Collections.sort(pioche);
+        Collections.sort(reference);
+        assertEquals(reference, pioche);
+        pioche.removeIf(x -> x % 2 == 0);
+        reference.removeIf(x -> x % 2 == 0);
+        assertEquals(reference, pioche);
+    }
+
+    @Test
+    void testEchanger() {
+        Pioche<Integer> pioche = new Pioche<>();
+        Pioche<Integer> defausse = new Pioche<>(List.of(1, 2, 3));
+        pioche.echanger(defausse);
+        assertEquals(List.of(1, 2, 3), pioche);
+        assertTrue(defausse.isEmpty());
+        defausse.add(4);
+        assertEquals(List.of(4), defausse);
+        assertEquals(3, pioche.size());
+    }
+
+    @Test
+    void testCompteursPileCartesWagon() {
+        Random random = new Random(2);
+        CouleurWagon[] couleurs = CouleurWagon.values();
+        PileCartesWagon pile = new PileCartesWagon(List.of(CouleurWagon.ROUGE, CouleurWagon.LOCOMOTIVE));
+        PileCartesWagon defausse = new PileCartesWagon();
+        for (int i = 0; i < 2000; i++) {
+            CouleurWagon couleur = couleurs[random.nextInt(couleurs.length)];
+            int operation = random.nextInt(6);
+            if (operation == 0 || pile.isEmpty()) {
+                pile.add(random.nextInt(pile.size() + 1), couleur);
+            } else if (operation == 1) {
+                defausse.add(pile.piocher());
+            } else if (operation == 2) {
+                pile.set(random.nextInt(pile.size()), couleur);
+            } else if (operation == 3) {
+                pile.remove(couleur);
+            } else if (operation == 4) {
+                Collections.shuffle(pile, random);
+            } else {
+                pile.echanger(defausse);
+            }
+            for (CouleurWagon c : couleurs) {
+                assertEquals(Collections.frequency(pile, c), pile.nb(c));
+                assertEquals(Collections.frequency(defausse, c), defausse.nb(c));
+            }
+        }
+        pile.removeIf(c -> c == CouleurWagon.LOCOMOTIVE);
+        assertEquals(0, pile.nb(CouleurWagon.LOCOMOTIVE));
+        assertEquals(pile.size(), pile.nbNonLocomotives());
+        pile.clear();
+        assertEquals(0, pile.nbNonLocomotives());
+    }
+}
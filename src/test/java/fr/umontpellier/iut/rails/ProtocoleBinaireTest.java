@@ -0,0 +1,75 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtocoleBinaireTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    /**
+     * Relit un objet comme Gson relit le JSON envoyé aux clients (nombres en
+     * virgule flottante)
+     */
+    private static Object commeJson(Object objet) {
+        Gson gson = new Gson();
+        return gson.fromJson(gson.toJson(objet), Object.class);
+    }
+
+    @Test
+    void testEtatEquivalentAuJsonPendantUnePartie() {
+        Gson gson = new Gson();
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(13)), true);
+        SuiviEtat suivi = jeu.getSuiviEtat();
+        int nbDecisions = 0;
+        while (!jeu.estTerminee()) {
+            jeu.simuler(1);
+            Tour tour = jeu.getJoueurCourant().getTour();
+            jeu.enregistrerEtat(tour.getInstruction(), tour.getBoutons(), tour.peutPasser());
+            if (nbDecisions++ % 10 == 0 || jeu.estTerminee()) {
+                byte[] trame = suivi.etatBinaire();
+                Map<String, Object> etat = ProtocoleBinaire.decoder(trame, jeu);
+                assertEquals(suivi.getVersion(), etat.remove("version"));
+                assertEquals(gson.fromJson(suivi.etatJson(), Object.class), commeJson(etat));
+                assertTrue(trame.length < suivi.etatJson().length() / 4);
+            }
+        }
+
+        int debut = (Integer) suivi.trame(0).get("debutLog");
+        assertEquals(commeJson(suivi.pageLog(debut)), commeJson(ProtocoleBinaire.decoder(suivi.pageLogBinaire(debut), jeu)));
+    }
+
+    @Test
+    void testCommandes() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        Map<String, Byte> reponses = Map.of(
+                "", ProtocoleBinaire.ACTION_PASSER,
+                "destinations", ProtocoleBinaire.ACTION_PIOCHE_DESTINATIONS,
+                "GRIS", ProtocoleBinaire.ACTION_CARTE,
+                "LOCOMOTIVE", ProtocoleBinaire.ACTION_CARTE,
+                "Budapest - Wien(1)", ProtocoleBinaire.ACTION_ROUTE,
+                "Kyiv - Warszawa", ProtocoleBinaire.ACTION_ROUTE,
+                "Marseille", ProtocoleBinaire.ACTION_VILLE,
+                "Brest - Marseille (7)", ProtocoleBinaire.ACTION_DESTINATION,
+                "réponse libre", ProtocoleBinaire.ACTION_TEXTE);
+        for (Map.Entry<String, Byte> reponse : reponses.entrySet()) {
+            byte[] commande = ProtocoleBinaire.ecrireCommande(reponse.getKey(), jeu);
+            assertEquals(reponse.getValue(), commande[0]);
+            assertEquals(reponse.getKey(), ProtocoleBinaire.lireCommande(commande, jeu));
+            assertEquals(-1, ProtocoleBinaire.lireDemandeHistorique(commande));
+        }
+        assertEquals(2, ProtocoleBinaire.ecrireCommande("Budapest - Wien(1)", jeu).length);
+
+        assertEquals(300, ProtocoleBinaire.lireDemandeHistorique(new byte[]{ProtocoleBinaire.ACTION_HISTORIQUE, (byte) 0xAC, 0x02}));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireDemandeHistorique(new byte[]{ProtocoleBinaire.ACTION_HISTORIQUE}));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireCommande(new byte[]{ProtocoleBinaire.ACTION_ROUTE, 127}, jeu));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireCommande(new byte[]{ProtocoleBinaire.ACTION_CARTE}, jeu));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireCommande(new byte[]{ProtocoleBinaire.ACTION_PASSER, 0}, jeu));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireCommande(new byte[]{42}, jeu));
+    }
+}
@@ -0,0 +1,83 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck", "Elaine", "Stan"};
+
+    @Test
+    void testPartieCompleteSansAffichage() {
+        PrintStream sortie = System.out;
+        ByteArrayOutputStream affichage = new ByteArrayOutputStream();
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(42)), false);
+        try {
+            System.setOut(new PrintStream(affichage));
+            assertTrue(jeu.simuler(1_000_000));
+        } finally {
+            System.setOut(sortie);
+        }
+        assertTrue(jeu.estTerminee());
+        assertEquals(0, affichage.size());
+        assertTrue(jeu.getLog().isEmpty());
+        assertEquals(0, jeu.getSuiviEtat().getVersion());
+        boolean finDePartie = false;
+        for (Joueur joueur : jeu.getJoueurs()) {
+            finDePartie |= joueur.getNbWagons() <= 2;
+        }
+        assertTrue(finDePartie);
+    }
+
+    @Test
+    void testDecisionsDemandeesALaSource() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        int[] nbDecisions = new int[1];
+        // tous les joueurs gardent leurs destinations puis piochent des cartes face cachée
+        jeu.setModeSansAffichage((joueur, instruction, choix, boutons, peutPasser) -> {
+            nbDecisions[0]++;
+            return boutons.isEmpty() ? ActionsPossibles.PIOCHE_WAGON : "";
+        }, true);
+        assertFalse(jeu.simuler(5 + 2 * NOMS_JOUEURS.length));
+        for (Joueur joueur : jeu.getJoueurs()) {
+            assertEquals(4, joueur.getDestinations().size());
+            assertEquals(6, joueur.getCartesWagon().size());
+        }
+        assertEquals(5 + 2 * NOMS_JOUEURS.length, nbDecisions[0]);
+        assertFalse(jeu.getLog().isEmpty());
+    }
+
+    @Test
+    void testPartieRejoueeDepuisSaGraine() {
+        Jeu jeu1 = new Jeu(NOMS_JOUEURS, 2024);
+        Jeu jeu2 = new Jeu(NOMS_JOUEURS, 2024);
+        assertEquals(2024, jeu1.getGraine());
+        assertEquals(jeu1.getPileCartesWagon(), jeu2.getPileCartesWagon());
+        assertEquals(jeu1.getCartesWagonVisibles(), jeu2.getCartesWagonVisibles());
+        for (int i = 0; i < NOMS_JOUEURS.length; i++) {
+            assertEquals(jeu1.getJoueurs().get(i).getCouleur(), jeu2.getJoueurs().get(i).getCouleur());
+        }
+        jeu1.setModeSansAffichage(SourceDecisions.aleatoire(new Random(7)), true);
+        jeu2.setModeSansAffichage(SourceDecisions.aleatoire(new Random(7)), true);
+        assertFalse(jeu1.simuler(0));
+        assertFalse(jeu2.simuler(0));
+        assertTrue(jeu1.getLog().contains("Graine de la partie : 2024"));
+        assertTrue(jeu1.simuler(1_000_000));
+        assertTrue(jeu2.simuler(1_000_000));
+        assertEquals(jeu1.getLog(), jeu2.getLog());
+        assertEquals(jeu1.getLog().getSequenceSuivante(), jeu2.getLog().getSequenceSuivante());
+        // seules les dernières lignes d'une partie complète sont conservées
+        assertEquals(Jeu.CAPACITE_LOG, jeu1.getLog().size());
+        assertFalse(jeu1.getLog().contains("Graine de la partie : 2024"));
+        for (int i = 0; i < NOMS_JOUEURS.length; i++) {
+            assertEquals(jeu1.getJoueurs().get(i).getScore(), jeu2.getJoueurs().get(i).getScore());
+        }
+
+        assertNotEquals(new Jeu(NOMS_JOUEURS, 2025).getPileCartesWagon(), new Jeu(NOMS_JOUEURS, 2024).getPileCartesWagon());
+    }
+}
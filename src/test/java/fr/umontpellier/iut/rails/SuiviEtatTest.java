@@ -0,0 +1,153 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuiviEtatTest {
+    private static final Gson GSON = new Gson();
+
+    private IOJeu jeu;
+    private SuiviEtat suivi;
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[] { "Guybrush", "Largo", "LeChuck", "Elaine" });
+        suivi = new SuiviEtat();
+    }
+
+    private int enregistrer() {
+        return suivi.enregistrerJson(GSON.toJson(Map.of("instruction", "test")), jeu.getVilles(), jeu.getRoutes(),
+                jeu.getJoueurs(), GSON.toJson(Map.of("pileCartesWagon", jeu.getPileCartesWagon().size())),
+                (List<String>) TestUtils.getAttribute(jeu, "log"));
+    }
+
+    @Test
+    void testTrameCompleteALaConnexion() {
+        jeu.log("début");
+        assertEquals(1, enregistrer());
+
+        Map<String, Object> trame = suivi.trame(0);
+        assertEquals(true, trame.get("complet"));
+        assertEquals(jeu.getVilles().size(), ((List<?>) trame.get("villes")).size());
+        assertEquals(jeu.getRoutes().size(), ((List<?>) trame.get("routes")).size());
+        assertEquals(4, ((List<?>) trame.get("joueurs")).size());
+        assertEquals(List.of("début"), trame.get("log"));
+
+        // une version inconnue donne aussi une trame complète
+        assertEquals(true, suivi.trame(42).get("complet"));
+    }
+
+    @Test
+    void testTrameDifferentielle() {
+        jeu.log("début");
+        int v1 = enregistrer();
+
+        Joueur joueur = jeu.getJoueurs().get(1);
+        jeu.getRouteByNom("Marseille - Paris").setProprietaire(joueur);
+        jeu.getVilles().get(0).setProprietaire(joueur);
+        joueur.setScore(20);
+        jeu.log("capture");
+        int v2 = enregistrer();
+
+        Map<String, Object> trame = suivi.trame(v1);
+        assertEquals(false, trame.get("complet"));
+        assertEquals(v2, trame.get("version"));
+        List<?> routes = (List<?>) trame.get("routes");
+        assertEquals(1, routes.size());
+        assertEquals("Marseille - Paris", ((Map<?, ?>) routes.get(0)).get("nom"));
+        assertEquals(1, ((List<?>) trame.get("villes")).size());
+        List<?> joueurs = (List<?>) trame.get("joueurs");
+        assertEquals(1, joueurs.size());
+        assertEquals("Largo", ((Map<?, ?>) joueurs.get(0)).get("nom"));
+        assertEquals(List.of("capture"), trame.get("log"));
+        assertEquals(1, trame.get("debutLog"));
+
+        // rien n'a changé depuis la dernière version
+        Map<String, Object> vide = suivi.trame(v2);
+        assertTrue(((List<?>) vide.get("routes")).isEmpty());
+        assertTrue(((List<?>) vide.get("joueurs")).isEmpty());
+        assertTrue(((List<?>) vide.get("log")).isEmpty());
+    }
+
+    @Test
+    void testLogBorneEtPagine() {
+        int nbLignes = Jeu.CAPACITE_LOG + 10;
+        for (int i = 0; i < nbLignes / 2; i++) {
+            jeu.log("ligne " + i);
+        }
+        int v1 = enregistrer();
+        for (int i = nbLignes / 2; i < nbLignes; i++) {
+            jeu.log("ligne " + i);
+        }
+        enregistrer();
+
+        // l'état complet ne contient que la dernière page du log
+        Map<String, Object> trame = suivi.trame(0);
+        int debut = nbLignes - SuiviEtat.TAILLE_PAGE_LOG;
+        assertEquals(debut, trame.get("debutLog"));
+        List<?> log = (List<?>) trame.get("log");
+        assertEquals(SuiviEtat.TAILLE_PAGE_LOG, log.size());
+        assertEquals("ligne " + debut, log.get(0));
+        assertEquals("ligne " + (nbLignes - 1), log.get(log.size() - 1));
+
+        // une trame différentielle contient les lignes ajoutées depuis v1
+        assertEquals(nbLignes / 2, suivi.trame(v1).get("debutLog"));
+        assertEquals(nbLignes - nbLignes / 2, ((List<?>) suivi.trame(v1).get("log")).size());
+
+        // les pages précédentes s'arrêtent à la plus ancienne ligne conservée
+        Map<String, Object> page = suivi.pageLog(debut);
+        assertEquals(true, page.get("page"));
+        assertEquals(debut - SuiviEtat.TAILLE_PAGE_LOG, page.get("debutLog"));
+        assertEquals("ligne " + (debut - 1), ((List<?>) page.get("log")).get(SuiviEtat.TAILLE_PAGE_LOG - 1));
+        int premiere = nbLignes - Jeu.CAPACITE_LOG;
+        page = suivi.pageLog(premiere + 5);
+        assertEquals(premiere, page.get("debutLog"));
+        assertEquals(List.of("ligne 10", "ligne 11", "ligne 12", "ligne 13", "ligne 14"), page.get("log"));
+        assertTrue(((List<?>) suivi.pageLog(premiere).get("log")).isEmpty());
+    }
+
+    @Test
+    void testVersionsSuiviesBornees() {
+        jeu.log("début");
+        int v1 = enregistrer();
+        for (int i = 0; i < SuiviEtat.CAPACITE_VERSIONS - 1; i++) {
+            jeu.log("ligne " + i);
+            enregistrer();
+        }
+        int version = suivi.getVersion();
+        // la plus ancienne version suivie
+        assertEquals(false, suivi.trame(v1).get("complet"));
+        assertEquals(1, suivi.trame(v1).get("debutLog"));
+
+        jeu.log("dernière");
+        enregistrer();
+        // v1 n'est plus suivie : le client reçoit une trame complète
+        Map<String, Object> trame = suivi.trame(v1);
+        assertEquals(true, trame.get("complet"));
+        assertEquals(0, trame.get("depuis"));
+        assertEquals(jeu.getRoutes().size(), ((List<?>) trame.get("routes")).size());
+        assertEquals(SuiviEtat.TAILLE_PAGE_LOG, ((List<?>) trame.get("log")).size());
+        assertEquals(false, suivi.trame(version).get("complet"));
+        assertEquals(List.of("dernière"), suivi.trame(version).get("log"));
+    }
+
+    @Test
+    void testEtatBinaireVideSansFormeBinaire() {
+        assertEquals(0, suivi.etatBinaire().length);
+        // version enregistrée sans sa forme binaire : il n'y a rien à envoyer
+        enregistrer();
+        assertEquals(0, suivi.etatBinaire().length);
+
+        SuiviEtat suiviJeu = jeu.getSuiviEtat();
+        jeu.enregistrerEtat("test", List.of(), true);
+        byte[] trame = suiviJeu.etatBinaire();
+        assertTrue(trame.length > 0);
+        assertEquals(suiviJeu.getVersion(), ProtocoleBinaire.decoder(trame, jeu).get("version"));
+    }
+}
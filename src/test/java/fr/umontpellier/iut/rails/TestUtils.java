@@ -5,6 +5,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class TestUtils {
     /**
      * Renvoie un attribut d'un objet à partir de son nom.
@@ -71,4 +73,51 @@ public class TestUtils {
         }
         return true;
     }
+
+    /**
+     * Vérifie que deux parties sont dans le même état (piles, joueurs, tour en
+     * cours et propriétaires des routes), sans comparer leurs logs
+     *
+     * @param attendu la partie de référence
+     * @param jeu     la partie reconstruite (instantané, journal, etc.)
+     */
+    public static void assertMemeEtat(Jeu attendu, Jeu jeu) {
+        assertEquals(attendu.estTerminee(), jeu.estTerminee());
+        assertEquals(attendu.getNbEntrees(), jeu.getNbEntrees());
+        assertEquals(attendu.getPileCartesWagon(), jeu.getPileCartesWagon());
+        assertEquals(attendu.getCartesWagonVisibles(), jeu.getCartesWagonVisibles());
+        assertEquals(attendu.getDefausseCartesWagon(), jeu.getDefausseCartesWagon());
+        assertEquals(attendu.getPileDestinations().toString(), jeu.getPileDestinations().toString());
+        assertEquals(attendu.getJoueurCourant().getNom(), jeu.getJoueurCourant().getNom());
+        assertEquals(attendu.getJoueurCourant().getTour().getEtat(), jeu.getJoueurCourant().getTour().getEtat());
+        assertEquals(attendu.getJoueurCourant().getTour().getChoix(), jeu.getJoueurCourant().getTour().getChoix());
+        assertEquals(attendu.getJoueurs().size(), jeu.getJoueurs().size());
+        for (int i = 0; i < attendu.getJoueurs().size(); i++) {
+            Joueur j1 = attendu.getJoueurs().get(i);
+            Joueur j2 = jeu.getJoueurs().get(i);
+            assertEquals(j1.getNom(), j2.getNom());
+            assertEquals(j1.getCouleur(), j2.getCouleur());
+            assertEquals(j1.getScore(), j2.getScore());
+            assertEquals(j1.getNbWagons(), j2.getNbWagons());
+            assertEquals(j1.getNbGares(), j2.getNbGares());
+            assertEquals(j1.getCartesWagon(), j2.getCartesWagon());
+            assertEquals(j1.getDestinations().toString(), j2.getDestinations().toString());
+        }
+        for (int i = 0; i < attendu.getRoutes().size(); i++) {
+            Joueur p1 = attendu.getRoutes().get(i).getProprietaire();
+            Joueur p2 = jeu.getRoutes().get(i).getProprietaire();
+            assertEquals(p1 == null ? null : p1.getNom(), p2 == null ? null : p2.getNom());
+        }
+    }
+
+    /**
+     * Joue au moins nbDecisions réponses (mode sans affichage), puis continue
+     * jusqu'au début du tour d'un joueur
+     */
+    public static void jouerJusquAuDebutDUnTour(Jeu jeu, int nbDecisions) {
+        jeu.simuler(nbDecisions);
+        while (!jeu.estTerminee() && jeu.getJoueurCourant().getTour().getEtat() != Tour.Etat.CHOIX_ACTION) {
+            jeu.simuler(1);
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TourTest {
+    private IOJeu jeu;
+    private Joueur joueur;
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo", "LeChuck"});
+        joueur = jeu.getJoueurs().get(0);
+        joueur.getCartesWagon().clear();
+    }
+
+    @Test
+    void testGareAbandonneeSansRecursion() {
+        joueur.getCartesWagon().add(CouleurWagon.ROUGE);
+        Tour tour = new Tour(joueur);
+        tour.commencer();
+        // beaucoup d'allers-retours entre le choix de l'action et la défausse pour la gare
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(tour.traiter("Paris"));
+            assertEquals(Tour.Etat.DEFAUSSE_GARE, tour.getEtat());
+            assertFalse(tour.traiter("BLEU"));
+            assertTrue(tour.traiter(""));
+            assertEquals(Tour.Etat.CHOIX_ACTION, tour.getEtat());
+        }
+        assertEquals(List.of(CouleurWagon.ROUGE), joueur.getCartesWagon());
+
+        assertTrue(tour.traiter("Paris"));
+        assertTrue(tour.traiter("ROUGE"));
+        assertTrue(tour.estTermine());
+        assertEquals(joueur, jeu.getVilleByNom("Paris").getProprietaire());
+        assertEquals(2, joueur.getNbGares());
+    }
+
+    @Test
+    void testCaptureTunnelPasAPas() {
+        // Marseille - Zurich : tunnel rose de longueur 2
+        joueur.getCartesWagon().add(CouleurWagon.ROSE);
+        joueur.getCartesWagon().add(CouleurWagon.ROSE);
+        joueur.getCartesWagon().add(CouleurWagon.LOCOMOTIVE);
+        List<CouleurWagon> pile = jeu.getPileCartesWagon();
+        pile.add(0, CouleurWagon.ROUGE);
+        pile.add(0, CouleurWagon.BLEU);
+        pile.add(0, CouleurWagon.ROSE);
+
+        Tour tour = new Tour(joueur);
+        tour.commencer();
+        assertFalse(tour.traiter("Inexistante - Route"));
+        assertTrue(tour.traiter("Marseille - Zurich"));
+        assertEquals(Tour.Etat.POSE_ROUTE, tour.getEtat());
+        assertFalse(tour.peutPasser());
+        assertTrue(tour.traiter("ROSE"));
+        assertTrue(tour.traiter("ROSE"));
+        // une carte rose parmi les 3 retournées : une carte de plus à défausser
+        assertEquals(Tour.Etat.DEFAUSSE_TUNNEL, tour.getEtat());
+        assertTrue(tour.traiter("LOCOMOTIVE"));
+        assertTrue(tour.estTermine());
+        assertEquals(joueur, jeu.getRouteByNom("Marseille - Zurich").getProprietaire());
+        assertTrue(joueur.getCartesWagon().isEmpty());
+        assertEquals(43, joueur.getNbWagons());
+    }
+}
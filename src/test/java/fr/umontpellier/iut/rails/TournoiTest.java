@@ -0,0 +1,98 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TournoiTest {
+    private static final String[] NOMS_JOUEURS = {"Guybrush", "Largo", "LeChuck"};
+
+    @Test
+    void testTournoiParallele() {
+        Tournoi tournoi = new Tournoi(NOMS_JOUEURS, () -> SourceDecisions.aleatoire(new Random(7)), 42);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<ResultatsTournoi> partiels = new ArrayList<>();
+        ResultatsTournoi resultats;
+        try {
+            resultats = tournoi.jouer(100, pool, partiels::add);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(100, resultats.getNbParties());
+        // un résultat partiel par lot, sur de plus en plus de parties
+        assertEquals(8, partiels.size());
+        for (int i = 1; i < partiels.size(); i++) {
+            assertTrue(partiels.get(i).getNbParties() > partiels.get(i - 1).getNbParties());
+        }
+        ResultatsTournoi dernier = partiels.get(partiels.size() - 1);
+        assertEquals(100, dernier.getNbParties());
+        assertEquals(resultats.getNbVictoires(0), dernier.getNbVictoires(0));
+        assertEquals(100, tournoi.getNbPartiesJouees());
+
+        long nbTerminees = resultats.getNbParties() - resultats.getNbPartiesInachevees();
+        assertTrue(nbTerminees > 0);
+        long nbVictoires = 0;
+        for (int i = 0; i < NOMS_JOUEURS.length; i++) {
+            nbVictoires += resultats.getNbVictoires(i);
+        }
+        // en cas d'égalité, plusieurs joueurs remportent la même partie
+        assertTrue(nbVictoires >= nbTerminees);
+        long nbScores = 0;
+        for (int score = ResultatsTournoi.SCORE_MIN; score <= ResultatsTournoi.SCORE_MAX; score++) {
+            nbScores += resultats.getNbScores(score);
+        }
+        assertEquals(NOMS_JOUEURS.length * nbTerminees, nbScores);
+        long nbCaptures = 0;
+        for (Route route : Plateau.makePlateauEurope().getRoutes()) {
+            nbCaptures += resultats.getNbCaptures(route);
+        }
+        assertTrue(nbCaptures > 0);
+    }
+
+    @Test
+    void testFusionResultats() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS, 3);
+        jeu.setModeSansAffichage(SourceDecisions.aleatoire(new Random(3)), false);
+        assertTrue(jeu.simuler(Tournoi.NB_MAX_DECISIONS));
+        CheminLePlusLong chemins = new CheminLePlusLong(jeu.getPlateau().getGraphe());
+        ResultatsTournoi partie = new ResultatsTournoi(NOMS_JOUEURS.length, jeu.getRoutes().size());
+        partie.enregistrer(jeu, chemins);
+
+        ResultatsTournoi total = new ResultatsTournoi(NOMS_JOUEURS.length, jeu.getRoutes().size());
+        total.fusionner(partie);
+        total.fusionner(partie);
+        assertEquals(2, total.getNbParties());
+        assertEquals(0, total.getNbPartiesInachevees());
+        for (int i = 0; i < NOMS_JOUEURS.length; i++) {
+            assertEquals(2 * partie.getNbVictoires(i), total.getNbVictoires(i));
+            assertEquals(partie.getScoreMoyen(i), total.getScoreMoyen(i));
+        }
+        for (Route route : jeu.getRoutes()) {
+            assertEquals(route.getProprietaire() == null ? 0 : 2, total.getNbCaptures(route));
+        }
+    }
+
+    @Test
+    void testGareEmprunteUneRouteAdverse() {
+        Jeu jeu = new Jeu(NOMS_JOUEURS);
+        Joueur joueur = jeu.getJoueurs().get(0);
+        Joueur adversaire = jeu.getJoueurs().get(1);
+        joueur.getDestinations().clear();
+        joueur.getDestinations().add(new Destination("Brest", "Paris", 5));
+        joueur.getDestinations().add(new Destination("Brest", "Marseille", 7));
+        jeu.getRouteByNom("Brest - Dieppe").setProprietaire(joueur);
+        jeu.getRouteByNom("Dieppe - Paris").setProprietaire(adversaire);
+        jeu.getRouteByNom("Brest - Paris").setProprietaire(adversaire);
+        assertEquals(-12, ResultatsTournoi.pointsDestinations(jeu, joueur));
+
+        // la gare de Dieppe emprunte Dieppe - Paris, celle de Paris n'apporte rien de plus
+        jeu.getVilleByNom("Dieppe").setProprietaire(joueur);
+        jeu.getVilleByNom("Paris").setProprietaire(joueur);
+        assertEquals(5 - 7, ResultatsTournoi.pointsDestinations(jeu, joueur));
+    }
+}